@@ -17,7 +17,9 @@
 
 package io.opensharding.transaction.base;
 
+import com.google.common.base.Supplier;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.keygen.GeneratedKeysConnectionProxy;
 import io.opensharding.transaction.base.saga.ShardingSQLTransactionManager;
 import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.spi.database.DatabaseType;
@@ -49,6 +51,7 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
         for (ResourceDataSource each : resourceDataSources) {
             registerDataSourceMap(each.getOriginalName(), each.getDataSource());
         }
+        shardingSQLTransactionManager.recoverLocalUndoLog(dataSourceMap);
     }
     
     private void registerDataSourceMap(final String datasourceName, final DataSource dataSource) {
@@ -85,7 +88,20 @@ public final class SagaShardingTransactionManager implements ShardingTransaction
     public Connection getConnection(final String dataSourceName) throws SQLException {
         Connection result = dataSourceMap.get(dataSourceName).getConnection();
         if (isInTransaction()) {
-            shardingSQLTransactionManager.getCurrentTransaction().getCachedConnections().put(dataSourceName, result);
+            final ShardingSQLTransaction shardingSQLTransaction = shardingSQLTransactionManager.getCurrentTransaction();
+            result = GeneratedKeysConnectionProxy.newInstance(result, new Supplier<Boolean>() {
+                
+                @Override
+                public Boolean get() {
+                    return !shardingSQLTransaction.isAnchorDataSource(dataSourceName);
+                }
+            });
+            try {
+                shardingSQLTransaction.cacheConnection(dataSourceName, result);
+            } catch (final ShardingException ex) {
+                result.close();
+                throw ex;
+            }
         }
         return result;
     }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.context;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execute status tracker of SQL transactions in one sharding SQL transaction.
+ *
+ * <p>
+ * Counts SQL transactions of each execute status, so outcome of transaction is decided without scanning SQL transactions.
+ * Status of all SQL transactions can be overridden at once, overridden status takes precedence over status of each SQL transaction.
+ * </p>
+ */
+public final class ExecuteStatusTracker {
+    
+    private final AtomicInteger[] counts = new AtomicInteger[ExecuteStatus.values().length];
+    
+    private final AtomicInteger totalCount = new AtomicInteger();
+    
+    private volatile ExecuteStatus overriddenStatus;
+    
+    public ExecuteStatusTracker() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new AtomicInteger();
+        }
+    }
+    
+    /**
+     * Track new SQL transaction.
+     *
+     * @param executeStatus execute status of SQL transaction
+     */
+    public void add(final ExecuteStatus executeStatus) {
+        counts[executeStatus.ordinal()].incrementAndGet();
+        totalCount.incrementAndGet();
+    }
+    
+    /**
+     * Track status change of SQL transaction.
+     *
+     * @param from execute status before change
+     * @param to execute status after change
+     */
+    public void change(final ExecuteStatus from, final ExecuteStatus to) {
+        if (from != to) {
+            counts[from.ordinal()].decrementAndGet();
+            counts[to.ordinal()].incrementAndGet();
+        }
+    }
+    
+    /**
+     * Get count of SQL transactions in execute status.
+     *
+     * @param executeStatus execute status
+     * @return count of SQL transactions
+     */
+    public int getCount(final ExecuteStatus executeStatus) {
+        return counts[executeStatus.ordinal()].get();
+    }
+    
+    /**
+     * Get count of all tracked SQL transactions.
+     *
+     * @return count of SQL transactions
+     */
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+    
+    /**
+     * Override status of all SQL transactions.
+     *
+     * @param executeStatus execute status
+     */
+    public void override(final ExecuteStatus executeStatus) {
+        overriddenStatus = executeStatus;
+    }
+    
+    /**
+     * Get overridden status.
+     *
+     * @return overridden status, null if not overridden
+     */
+    public ExecuteStatus getOverriddenStatus() {
+        return overriddenStatus;
+    }
+}
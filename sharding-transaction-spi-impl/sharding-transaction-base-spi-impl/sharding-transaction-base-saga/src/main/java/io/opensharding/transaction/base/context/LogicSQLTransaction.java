@@ -17,18 +17,29 @@
 
 package io.opensharding.transaction.base.context;
 
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.SettableFuture;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.metadata.ActualTableNames;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.metadata.table.TableMetas;
 import org.apache.shardingsphere.core.parse.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.DeleteStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.InsertStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Logic SQL transaction.
@@ -50,8 +61,15 @@ public class LogicSQLTransaction {
     
     private TableMetaData tableMetaData;
     
+    private ActualTableNames actualTableNames;
+    
     private final Queue<SQLTransaction> sqlTransactions = new ConcurrentLinkedQueue<>();
     
+    private final AtomicBoolean snapshotsLoading = new AtomicBoolean();
+    
+    @Getter(AccessLevel.NONE)
+    private final SettableFuture<Map<RouteUnit, SQLRevertExecutor>> loadedRevertExecutors = SettableFuture.create();
+    
     public void doInit(final SQLRouteResult sqlRouteResult, final TableMetas tableMetas) {
         this.sqlRouteResult = sqlRouteResult;
         logicTableName = sqlRouteResult.getShardingStatement().getTables().getSingleTableName();
@@ -59,6 +77,53 @@ public class LogicSQLTransaction {
         tableMetaData = tableMetas.get(logicTableName);
     }
     
+    /**
+     * Get actual table names of routing result, built on first access.
+     *
+     * @return actual table names
+     */
+    public synchronized ActualTableNames getActualTableNames() {
+        if (null == actualTableNames) {
+            actualTableNames = new ActualTableNames(sqlRouteResult.getRoutingResult().getRoutingUnits());
+        }
+        return actualTableNames;
+    }
+    
+    /**
+     * Publish SQL revert executors loaded for route units, and wake up all route units waiting for them.
+     *
+     * @param revertExecutors loaded SQL revert executors
+     */
+    public void finishLoadingSnapshots(final Map<RouteUnit, SQLRevertExecutor> revertExecutors) {
+        loadedRevertExecutors.set(new ConcurrentHashMap<>(revertExecutors));
+    }
+    
+    /**
+     * Publish failure of loading snapshots, and wake up all route units waiting for them.
+     *
+     * @param cause cause of failure
+     */
+    public void failLoadingSnapshots(final Exception cause) {
+        loadedRevertExecutors.setException(cause);
+    }
+    
+    /**
+     * Wait until snapshots of all route units are loaded, then take SQL revert executor of route unit.
+     *
+     * @param routeUnit route unit
+     * @return loaded SQL revert executor, absent if route unit is not loaded by parallel snapshot loader
+     */
+    public Optional<SQLRevertExecutor> awaitLoadedRevertExecutor(final RouteUnit routeUnit) {
+        try {
+            return Optional.fromNullable(loadedRevertExecutors.get().remove(routeUnit));
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ShardingException("Interrupted while waiting snapshots of route units", ex);
+        } catch (final ExecutionException ex) {
+            throw new ShardingException("Load snapshots of route units failed", ex);
+        }
+    }
+    
     /**
      * Whether logic SQL is writable transaction or not.
      *
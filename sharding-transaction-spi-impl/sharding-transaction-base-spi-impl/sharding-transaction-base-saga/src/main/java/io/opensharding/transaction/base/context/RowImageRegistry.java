@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.context;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Row image registry.
+ *
+ * <p>
+ * Records which rows, identified by data source, actual table and primary key values, already own a pre-image
+ * in current saga transaction. Compensation replays revert SQL in reverse order, so the earliest image of a row
+ * always wins and later images of the same columns could be skipped.
+ * </p>
+ */
+public final class RowImageRegistry {
+    
+    private static final String ALL_COLUMNS = "*";
+    
+    private final ConcurrentMap<List<Object>, Set<String>> imagedColumns = new ConcurrentHashMap<>();
+    
+    /**
+     * Register row inserted by current transaction, whose revert deletes the whole row.
+     *
+     * @param dataSourceName data source name
+     * @param actualTableName actual table name
+     * @param primaryKeyValues primary key values
+     */
+    public void registerInsertedRow(final String dataSourceName, final String actualTableName, final List<Object> primaryKeyValues) {
+        getImagedColumns(createKey(dataSourceName, actualTableName, primaryKeyValues)).add(ALL_COLUMNS);
+    }
+    
+    /**
+     * Register image of row columns.
+     *
+     * @param dataSourceName data source name
+     * @param actualTableName actual table name
+     * @param primaryKeyValues primary key values
+     * @param columnNames imaged column names
+     * @return true if columns have been imaged before, otherwise columns are registered and return false
+     */
+    public boolean registerImage(final String dataSourceName, final String actualTableName, final List<Object> primaryKeyValues, final Collection<String> columnNames) {
+        Set<String> columns = getImagedColumns(createKey(dataSourceName, actualTableName, primaryKeyValues));
+        if (isCovered(columns, columnNames)) {
+            return true;
+        }
+        for (String each : columnNames) {
+            columns.add(each.toLowerCase());
+        }
+        return false;
+    }
+    
+    /**
+     * Judge whether columns of row have been imaged or not.
+     *
+     * @param dataSourceName data source name
+     * @param actualTableName actual table name
+     * @param primaryKeyValues primary key values
+     * @param columnNames column names
+     * @return imaged or not
+     */
+    public boolean isImaged(final String dataSourceName, final String actualTableName, final List<Object> primaryKeyValues, final Collection<String> columnNames) {
+        Set<String> columns = imagedColumns.get(createKey(dataSourceName, actualTableName, primaryKeyValues));
+        return null != columns && isCovered(columns, columnNames);
+    }
+    
+    private boolean isCovered(final Set<String> columns, final Collection<String> columnNames) {
+        if (columns.contains(ALL_COLUMNS)) {
+            return true;
+        }
+        for (String each : columnNames) {
+            if (!columns.contains(each.toLowerCase())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Set<String> getImagedColumns(final List<Object> key) {
+        Set<String> result = imagedColumns.get(key);
+        if (null == result) {
+            imagedColumns.putIfAbsent(key, Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
+            result = imagedColumns.get(key);
+        }
+        return result;
+    }
+    
+    private List<Object> createKey(final String dataSourceName, final String actualTableName, final List<Object> primaryKeyValues) {
+        List<Object> values = new ArrayList<>(primaryKeyValues.size());
+        for (Object each : primaryKeyValues) {
+            values.add(normalize(each));
+        }
+        return Arrays.<Object>asList(dataSourceName, null == actualTableName ? null : actualTableName.toLowerCase(), values);
+    }
+    
+    private Object normalize(final Object value) {
+        if (value instanceof Number) {
+            try {
+                return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+            } catch (final NumberFormatException ignored) {
+                return value.toString();
+            }
+        }
+        return value;
+    }
+}
@@ -18,6 +18,8 @@
 package io.opensharding.transaction.base.context;
 
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.SQLRevertEngine;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -44,15 +46,69 @@ public final class SQLTransaction {
     
     private final List<Collection<Object>> parameters;
     
-    private ExecuteStatus executeStatus = ExecuteStatus.EXECUTING;
+    private String actualTableName;
+    
+    private volatile ExecuteStatus executeStatus = ExecuteStatus.EXECUTING;
+    
+    @Setter(AccessLevel.NONE)
+    @Getter(AccessLevel.NONE)
+    private ExecuteStatusTracker executeStatusTracker;
     
     private RevertSQLResult revertSQLResult;
     
+    private SQLRevertEngine sqlRevertEngine;
+    
+    private volatile boolean compensated;
+    
     public SQLTransaction(final String dataSourceName, final String sql, final List<Collection<Object>> parameters, final ExecuteStatus executeStatus) {
         this(dataSourceName, sql, parameters);
         this.executeStatus = executeStatus;
     }
     
+    /**
+     * Get execute status.
+     *
+     * @return overridden status of sharding SQL transaction if present, otherwise status of this SQL transaction
+     */
+    public ExecuteStatus getExecuteStatus() {
+        ExecuteStatus result = null == executeStatusTracker ? null : executeStatusTracker.getOverriddenStatus();
+        return null == result ? executeStatus : result;
+    }
+    
+    /**
+     * Set execute status.
+     *
+     * @param executeStatus execute status
+     */
+    public synchronized void setExecuteStatus(final ExecuteStatus executeStatus) {
+        if (null != executeStatusTracker) {
+            executeStatusTracker.change(this.executeStatus, executeStatus);
+        }
+        this.executeStatus = executeStatus;
+    }
+    
+    synchronized void trackExecuteStatus(final ExecuteStatusTracker executeStatusTracker) {
+        this.executeStatusTracker = executeStatusTracker;
+        executeStatusTracker.add(executeStatus);
+    }
+    
+    /**
+     * Get revert SQL result.
+     *
+     * <p>
+     * Revert SQL is materialized from captured undo data on first access, which only happens when compensation is needed.
+     * </p>
+     *
+     * @return revert SQL result, null if nothing to revert
+     */
+    public synchronized RevertSQLResult getRevertSQLResult() {
+        if (null == revertSQLResult && null != sqlRevertEngine) {
+            revertSQLResult = sqlRevertEngine.revert().orNull();
+            sqlRevertEngine = null;
+        }
+        return revertSQLResult;
+    }
+    
     @Override
     public String toString() {
         return "SagaBranchTransaction{" + "dataSourceName='" + dataSourceName + '\'' + ", sql='" + sql + '\''
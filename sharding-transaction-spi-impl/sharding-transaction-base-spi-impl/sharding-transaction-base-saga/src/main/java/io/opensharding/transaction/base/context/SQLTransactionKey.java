@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.context;
+
+import io.opensharding.transaction.base.utils.SagaParameterCodec;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Key of SQL transaction index.
+ *
+ * <p>
+ * Parameters are compared by their encoded forms of {@code SagaParameterCodec}, which are what saga actuator passes back to transport,
+ * parameters without any value are treated as no parameters.
+ * </p>
+ */
+final class SQLTransactionKey {
+    
+    private final String dataSourceName;
+    
+    private final String sql;
+    
+    private final List<? extends List<String>> parameters;
+    
+    private final int hashCode;
+    
+    SQLTransactionKey(final String dataSourceName, final String sql, final List<? extends List<String>> parameters) {
+        this.dataSourceName = dataSourceName;
+        this.sql = sql;
+        this.parameters = isEmpty(parameters) ? Collections.<List<String>>emptyList() : parameters;
+        hashCode = 31 * (31 * dataSourceName.hashCode() + sql.hashCode()) + this.parameters.hashCode();
+    }
+    
+    private static boolean isEmpty(final List<? extends List<String>> parameters) {
+        if (null == parameters) {
+            return true;
+        }
+        for (List<String> each : parameters) {
+            if (!each.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Create key from SQL parameters.
+     *
+     * @param dataSourceName data source name
+     * @param sql SQL
+     * @param parameters SQL parameters
+     * @return SQL transaction key
+     */
+    static SQLTransactionKey of(final String dataSourceName, final String sql, final Collection<? extends Collection<Object>> parameters) {
+        if (null == parameters) {
+            return new SQLTransactionKey(dataSourceName, sql, null);
+        }
+        return new SQLTransactionKey(dataSourceName, sql, SagaParameterCodec.encode(parameters));
+    }
+    
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SQLTransactionKey)) {
+            return false;
+        }
+        SQLTransactionKey other = (SQLTransactionKey) obj;
+        return hashCode == other.hashCode && dataSourceName.equals(other.dataSourceName) && sql.equals(other.sql) && parameters.equals(other.parameters);
+    }
+    
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -18,9 +18,13 @@
 package io.opensharding.transaction.base.context;
 
 import com.google.common.base.Optional;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.TableMetas;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
@@ -28,11 +32,16 @@ import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 import java.sql.Connection;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Sharding SQL transaction.
@@ -55,6 +64,34 @@ public final class ShardingSQLTransaction {
     @Setter
     private TransactionOperationType operationType = TransactionOperationType.BEGIN;
     
+    @Setter
+    private UndoDataBudget undoDataBudget = new UndoDataBudget(Long.MAX_VALUE);
+    
+    private final RowImageRegistry rowImageRegistry = new RowImageRegistry();
+    
+    private final ExecuteStatusTracker executeStatusTracker = new ExecuteStatusTracker();
+    
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<SQLTransactionKey, Queue<SQLTransaction>> sqlTransactionIndex = new ConcurrentHashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentMap<SQLTransactionKey, Queue<SQLTransaction>> revertSQLTransactionIndex = new ConcurrentHashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final Queue<SQLTransaction> unindexedRevertSQLTransactions = new ConcurrentLinkedQueue<>();
+    
+    @Setter
+    private boolean localAnchorEnabled;
+    
+    private String anchorDataSourceName;
+    
+    private boolean anchorJoined;
+    
+    private volatile boolean anchorFailed;
+    
+    @Getter(AccessLevel.NONE)
+    private final Collection<String> multipleConnectionDataSourceNames = new HashSet<>();
+    
     /**
      * Go to next logic SQL transaction.
      *
@@ -74,30 +111,126 @@ public final class ShardingSQLTransaction {
         currentLogicSQLTransaction.doInit(sqlRouteResult, tableMetas);
         if (currentLogicSQLTransaction.isWritableTransaction()) {
             logicSQLTransactions.add(currentLogicSQLTransaction);
+            if (localAnchorEnabled && null == anchorDataSourceName && !sqlRouteResult.getRouteUnits().isEmpty()) {
+                String dataSourceName = sqlRouteResult.getRouteUnits().iterator().next().getDataSourceName();
+                anchorDataSourceName = multipleConnectionDataSourceNames.contains(dataSourceName) ? null : dataSourceName;
+            }
         }
     }
     
+    /**
+     * Cache connection of data source.
+     *
+     * <p>
+     * Route units can not be bound to their connections, so anchor data source must be accessed by only one connection.
+     * Anchor is given up if another connection is opened on it before it is joined, and the connection is refused after that.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @param connection connection
+     */
+    public void cacheConnection(final String dataSourceName, final Connection connection) {
+        if (cachedConnections.containsKey(dataSourceName)) {
+            multipleConnectionDataSourceNames.add(dataSourceName);
+            if (isAnchorDataSource(dataSourceName)) {
+                if (anchorJoined) {
+                    throw new ShardingException(String.format("Can not open more than one connection on anchor data source `%s`", dataSourceName));
+                }
+                anchorDataSourceName = null;
+            }
+        }
+        cachedConnections.put(dataSourceName, connection);
+    }
+    
+    /**
+     * Whether data source is the anchor of this transaction or not.
+     *
+     * <p>
+     * Anchor data source is the first data source written by this transaction,
+     * its route units run in a native local transaction on the cached connection, without snapshot and compensation.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @return true or false
+     */
+    public boolean isAnchorDataSource(final String dataSourceName) {
+        return null != anchorDataSourceName && anchorDataSourceName.equals(dataSourceName);
+    }
+    
+    /**
+     * Get connection of anchor data source.
+     *
+     * @return connection of anchor data source, absent if no anchor data source joined
+     */
+    public Optional<Connection> getAnchorConnection() {
+        return null == anchorDataSourceName ? Optional.<Connection>absent() : Optional.fromNullable(cachedConnections.get(anchorDataSourceName));
+    }
+    
+    /**
+     * Mark local transaction of anchor data source joined.
+     */
+    public void markAnchorJoined() {
+        anchorJoined = true;
+    }
+    
+    /**
+     * Mark SQL executed on anchor data source failed.
+     *
+     * <p>
+     * Anchor data source records no SQL transaction, so its failure can not be resolved by forward recovery.
+     * </p>
+     */
+    public void markAnchorFailed() {
+        anchorFailed = true;
+    }
+    
+    /**
+     * Whether this transaction contains SQL transactions which need saga or not.
+     *
+     * @return true or false
+     */
+    public boolean isContainsSQLTransaction() {
+        return 0 < executeStatusTracker.getTotalCount();
+    }
+    
     /**
      * Whether branch transactions contain exception or not.
      *
      * @return true or false
      */
     public boolean isContainsException() {
+        return 0 < executeStatusTracker.getCount(ExecuteStatus.FAILURE);
+    }
+    
+    /**
+     * Whether this transaction contains SQL transactions which have revert SQL but are not compensated or not.
+     *
+     * @return true or false
+     */
+    public boolean isContainsUncompensatedSQLTransaction() {
         for (LogicSQLTransaction each : logicSQLTransactions) {
-            if (isLogicSQLTransactionFailed(each)) {
-                return true;
+            for (SQLTransaction sqlTransaction : each.getSqlTransactions()) {
+                if (!sqlTransaction.isCompensated() && null != sqlTransaction.getRevertSQLResult()) {
+                    return true;
+                }
             }
         }
         return false;
     }
     
-    private boolean isLogicSQLTransactionFailed(final LogicSQLTransaction logicSQLTransaction) {
-        for (SQLTransaction each : logicSQLTransaction.getSqlTransactions()) {
-            if (ExecuteStatus.FAILURE.equals(each.getExecuteStatus())) {
-                return true;
+    /**
+     * Get names of data sources written by this transaction.
+     *
+     * @return data source names
+     */
+    public Collection<String> getWrittenDataSourceNames() {
+        Collection<String> result = new LinkedHashSet<>();
+        for (LogicSQLTransaction each : logicSQLTransactions) {
+            for (SQLTransaction sqlTransaction : each.getSqlTransactions()) {
+                result.add(sqlTransaction.getDataSourceName());
             }
         }
-        return false;
+        return result;
     }
     
     /**
@@ -106,7 +239,10 @@ public final class ShardingSQLTransaction {
      * @param sqlTransaction branch transaction
      */
     public void addSQLTransaction(final SQLTransaction sqlTransaction) {
+        sqlTransaction.trackExecuteStatus(executeStatusTracker);
         currentLogicSQLTransaction.getSqlTransactions().add(sqlTransaction);
+        index(sqlTransactionIndex, SQLTransactionKey.of(sqlTransaction.getDataSourceName(), sqlTransaction.getSql(), sqlTransaction.getParameters()), sqlTransaction);
+        unindexedRevertSQLTransactions.add(sqlTransaction);
     }
     
     /**
@@ -115,15 +251,7 @@ public final class ShardingSQLTransaction {
      * @param executeStatus execute status
      */
     public void changeAllLogicTransactionStatus(final ExecuteStatus executeStatus) {
-        for (LogicSQLTransaction each : logicSQLTransactions) {
-            changeLogicSQLTransactionStatus(each, executeStatus);
-        }
-    }
-    
-    private void changeLogicSQLTransactionStatus(final LogicSQLTransaction logicSQLTransaction, final ExecuteStatus executeStatus) {
-        for (SQLTransaction each : logicSQLTransaction.getSqlTransactions()) {
-            each.setExecuteStatus(executeStatus);
-        }
+        executeStatusTracker.override(executeStatus);
     }
     
     /**
@@ -135,51 +263,48 @@ public final class ShardingSQLTransaction {
      * @return saga branch transaction
      */
     public Optional<SQLTransaction> findSQLTransaction(final String dataSourceName, final String sql, final List<List<String>> sagaParameters) {
-        Optional<SQLTransaction> result = Optional.absent();
-        for (LogicSQLTransaction each : logicSQLTransactions) {
-            result = doFindSQLTransaction(each, dataSourceName, sql, sagaParameters);
+        SQLTransactionKey key = new SQLTransactionKey(dataSourceName, sql, sagaParameters);
+        if (ExecuteStatus.COMPENSATING == executeStatusTracker.getOverriddenStatus() || 0 < executeStatusTracker.getCount(ExecuteStatus.COMPENSATING)) {
+            indexRevertSQLTransactions();
+            Optional<SQLTransaction> result = findSQLTransaction(revertSQLTransactionIndex.get(key), true);
             if (result.isPresent()) {
                 return result;
             }
         }
-        return result;
+        return findSQLTransaction(sqlTransactionIndex.get(key), false);
     }
     
-    private Optional<SQLTransaction> doFindSQLTransaction(final LogicSQLTransaction logicSQLTransaction, final String dataSourceName,
-                                                          final String sql, final List<List<String>> sagaParameters) {
-        for (SQLTransaction each : logicSQLTransaction.getSqlTransactions()) {
-            if (dataSourceName.equals(each.getDataSourceName())) {
-                if (ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && sql.equals(each.getRevertSQLResult().getSql())
-                    && judgeRevertParameters(sagaParameters, each.getRevertSQLResult().getParameters())) {
-                    return Optional.of(each);
-                } else if (!ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && sql.equals(each.getSql())
-                    && judgeParameters(sagaParameters, each.getParameters())) {
-                    return Optional.of(each);
-                }
+    private Optional<SQLTransaction> findSQLTransaction(final Queue<SQLTransaction> sqlTransactions, final boolean compensating) {
+        if (null == sqlTransactions) {
+            return Optional.absent();
+        }
+        for (SQLTransaction each : sqlTransactions) {
+            if (compensating == ExecuteStatus.COMPENSATING.equals(each.getExecuteStatus()) && !(compensating && each.isCompensated())) {
+                return Optional.of(each);
             }
         }
         return Optional.absent();
     }
     
-    private boolean judgeParameters(List<List<String>> sagaParameters, List<Collection<Object>> sqlParameters) {
-        Iterator<List<String>> sagaParameterIterator = sagaParameters.iterator();
-        Iterator<Collection<Object>> sqlParameterIterator = sqlParameters.iterator();
-        while (sagaParameterIterator.hasNext()) {
-            if (!sagaParameterIterator.next().toString().equals(sqlParameterIterator.next().toString())) {
-                return false;
+    private synchronized void indexRevertSQLTransactions() {
+        SQLTransaction sqlTransaction;
+        while (null != (sqlTransaction = unindexedRevertSQLTransactions.poll())) {
+            RevertSQLResult revertSQLResult = sqlTransaction.getRevertSQLResult();
+            if (null != revertSQLResult) {
+                index(revertSQLTransactionIndex, SQLTransactionKey.of(sqlTransaction.getDataSourceName(), revertSQLResult.getSql(), revertSQLResult.getParameters()), sqlTransaction);
             }
         }
-        return true;
     }
     
-    private boolean judgeRevertParameters(List<List<String>> sagaParameters, List<Collection<Object>> revertParameters) {
-        Iterator<List<String>> sagaParameterIterator = sagaParameters.iterator();
-        Iterator<Collection<Object>> revertParameterIterator = revertParameters.iterator();
-        while (sagaParameterIterator.hasNext()) {
-            if (!sagaParameterIterator.next().toString().equals(revertParameterIterator.next().toString())) {
-                return false;
+    private void index(final ConcurrentMap<SQLTransactionKey, Queue<SQLTransaction>> index, final SQLTransactionKey key, final SQLTransaction sqlTransaction) {
+        Queue<SQLTransaction> sqlTransactions = index.get(key);
+        if (null == sqlTransactions) {
+            Queue<SQLTransaction> newSQLTransactions = new ConcurrentLinkedQueue<>();
+            sqlTransactions = index.putIfAbsent(key, newSQLTransactions);
+            if (null == sqlTransactions) {
+                sqlTransactions = newSQLTransactions;
             }
         }
-        return true;
+        sqlTransactions.add(sqlTransaction);
     }
 }
@@ -25,16 +25,28 @@ import io.opensharding.transaction.base.context.SQLTransaction;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
 import io.opensharding.transaction.base.hook.revert.DMLSQLRevertEngine;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.executor.RowImageAware;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorFactory;
+import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.keygen.GeneratedKeysHolder;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.snapshot.ParallelSnapshotLoader;
+import io.opensharding.transaction.base.hook.revert.undo.LocalUndoLog;
+import io.opensharding.transaction.base.saga.ShardingSQLTransactionManager;
 import io.opensharding.transaction.base.utils.Constant;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.execute.hook.SQLExecutionHook;
 import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLUnit;
 import org.apache.shardingsphere.spi.database.DataSourceMetaData;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -44,12 +56,21 @@ import java.util.Map;
  * @author yangyi
  * @author zhaojun
  */
+@Slf4j
 public final class SQLTransactionExecutionHook implements SQLExecutionHook {
     
     private ShardingSQLTransaction shardingSQLTransaction;
     
     private SQLTransaction sqlTransaction;
     
+    private SQLRevertExecutor sqlRevertExecutor;
+    
+    private Connection connection;
+    
+    private boolean localTransactionStarted;
+    
+    private boolean anchorDataSource;
+    
     @Override
     public void start(final RouteUnit routeUnit, final DataSourceMetaData dataSourceMetaData, final boolean isTrunkThread, final Map<String, Object> shardingExecuteDataMap) {
         if (!shardingExecuteDataMap.containsKey(Constant.SAGA_TRANSACTION_KEY)) {
@@ -59,9 +80,23 @@ public final class SQLTransactionExecutionHook implements SQLExecutionHook {
         if (!shardingSQLTransaction.getCurrentLogicSQLTransaction().isWritableTransaction()) {
             return;
         }
-        sqlTransaction = new SQLTransaction(routeUnit.getDataSourceName(), routeUnit.getSqlUnit().getSql(), splitParameters(routeUnit.getSqlUnit()), ExecuteStatus.EXECUTING);
-        sqlTransaction.setRevertSQLResult(doSQLRevert(shardingSQLTransaction.getCurrentLogicSQLTransaction(), routeUnit).orNull());
+        if (shardingSQLTransaction.isAnchorDataSource(routeUnit.getDataSourceName())) {
+            anchorDataSource = true;
+            joinAnchorLocalTransaction(routeUnit.getDataSourceName());
+            return;
+        }
+        LogicSQLTransaction logicSQLTransaction = shardingSQLTransaction.getCurrentLogicSQLTransaction();
+        SQLRevertExecutorContext context = getSQLRevertExecutorContext(logicSQLTransaction, routeUnit);
+        beginLocalUndoLogTransaction(context.getConnection());
+        sqlTransaction = new SQLTransaction(routeUnit.getDataSourceName(), routeUnit.getSqlUnit().getSql(),
+            splitParameters(routeUnit.getSqlUnit(), context.getRevertSQLPlan()), ExecuteStatus.EXECUTING);
+        sqlTransaction.setActualTableName(context.getActualTableName());
+        sqlRevertExecutor = getSQLRevertExecutor(logicSQLTransaction, context);
+        sqlTransaction.setSqlRevertEngine(new DMLSQLRevertEngine(sqlRevertExecutor));
         shardingSQLTransaction.addSQLTransaction(sqlTransaction);
+        if (sqlRevertExecutor instanceof InsertSQLRevertExecutor) {
+            armGeneratedKeysHolder((InsertSQLRevertExecutor) sqlRevertExecutor);
+        }
     }
     
     @Override
@@ -69,28 +104,154 @@ public final class SQLTransactionExecutionHook implements SQLExecutionHook {
         if (null != sqlTransaction) {
             sqlTransaction.setExecuteStatus(ExecuteStatus.SUCCESS);
         }
+        if (sqlRevertExecutor instanceof InsertSQLRevertExecutor && !((InsertSQLRevertExecutor) sqlRevertExecutor).acceptGeneratedKeys(GeneratedKeysHolder.poll())) {
+            failWithoutGeneratedKeys();
+        }
+        if (null != sqlTransaction) {
+            writeLocalUndoLog();
+        }
+        if (sqlRevertExecutor instanceof RowImageAware) {
+            ((RowImageAware) sqlRevertExecutor).registerRowImages();
+        }
     }
     
     @Override
     public void finishFailure(final Exception cause) {
+        if (anchorDataSource) {
+            shardingSQLTransaction.markAnchorFailed();
+        }
         if (null != sqlTransaction) {
             sqlTransaction.setExecuteStatus(ExecuteStatus.FAILURE);
         }
+        if (sqlRevertExecutor instanceof InsertSQLRevertExecutor) {
+            GeneratedKeysHolder.poll();
+        }
+        rollbackLocalUndoLogTransaction();
+    }
+    
+    private void failWithoutGeneratedKeys() {
+        sqlTransaction.setSqlRevertEngine(null);
+        if (localTransactionStarted) {
+            sqlTransaction.setExecuteStatus(ExecuteStatus.FAILURE);
+            rollbackLocalUndoLogTransaction();
+        }
+        throw new ShardingException(String.format("Could not capture generated keys of insert, it can not be compensated. datasource:[%s], table:[%s]",
+            sqlTransaction.getDataSourceName(), sqlTransaction.getActualTableName()));
+    }
+    
+    private void armGeneratedKeysHolder(final InsertSQLRevertExecutor insertSQLRevertExecutor) {
+        Optional<String> generatedKeyColumn = insertSQLRevertExecutor.findGeneratedKeyColumn();
+        if (generatedKeyColumn.isPresent()) {
+            GeneratedKeysHolder.arm(generatedKeyColumn.get());
+        }
+    }
+    
+    private void joinAnchorLocalTransaction(final String dataSourceName) {
+        Connection anchorConnection = shardingSQLTransaction.getCachedConnections().get(dataSourceName);
+        try {
+            if (null != anchorConnection && anchorConnection.getAutoCommit()) {
+                anchorConnection.setAutoCommit(false);
+            }
+            shardingSQLTransaction.markAnchorJoined();
+        } catch (final SQLException ex) {
+            throw new ShardingException(String.format("Begin local transaction of anchor data source `%s` failed", dataSourceName), ex);
+        }
+    }
+    
+    private void beginLocalUndoLogTransaction(final Connection connection) {
+        if (!ShardingSQLTransactionManager.getInstance().getLocalUndoLog().isPresent() || null == connection) {
+            return;
+        }
+        this.connection = connection;
+        try {
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                localTransactionStarted = true;
+            }
+        } catch (final SQLException ex) {
+            throw new ShardingException("Begin local transaction for undo log failed", ex);
+        }
+    }
+    
+    private void writeLocalUndoLog() {
+        Optional<LocalUndoLog> localUndoLog = ShardingSQLTransactionManager.getInstance().getLocalUndoLog();
+        if (!localUndoLog.isPresent() || null == connection) {
+            return;
+        }
+        try {
+            RevertSQLResult revertSQLResult = sqlTransaction.getRevertSQLResult();
+            if (null != revertSQLResult) {
+                localUndoLog.get().write(connection, shardingSQLTransaction.getId(), sqlTransaction.getSqlTransactionId(), revertSQLResult);
+            }
+            if (localTransactionStarted) {
+                connection.commit();
+                connection.setAutoCommit(true);
+                localTransactionStarted = false;
+            }
+        } catch (final SQLException | RuntimeException ex) {
+            sqlTransaction.setExecuteStatus(ExecuteStatus.FAILURE);
+            rollbackLocalUndoLogTransaction();
+            throw new ShardingException("Write local undo log failed", ex);
+        }
+    }
+    
+    private void rollbackLocalUndoLogTransaction() {
+        if (!localTransactionStarted) {
+            return;
+        }
+        localTransactionStarted = false;
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (final SQLException ex) {
+            log.warn("Rollback local transaction for undo log failed", ex);
+        }
     }
     
-    private Optional<RevertSQLResult> doSQLRevert(final LogicSQLTransaction logicSQLTransaction, final RouteUnit routeUnit) {
-        SQLRevertExecutorContext context = getSqlRevertExecutorContext(logicSQLTransaction, routeUnit);
-        return new DMLSQLRevertEngine(SQLRevertExecutorFactory.newInstance(context)).revert();
+    private SQLRevertExecutor getSQLRevertExecutor(final LogicSQLTransaction logicSQLTransaction, final SQLRevertExecutorContext context) {
+        Optional<ParallelSnapshotLoader> parallelSnapshotLoader = ShardingSQLTransactionManager.getInstance().getParallelSnapshotLoader();
+        if (!parallelSnapshotLoader.isPresent() || 1 >= logicSQLTransaction.getSqlRouteResult().getRouteUnits().size()) {
+            return SQLRevertExecutorFactory.newInstance(context);
+        }
+        if (logicSQLTransaction.getSnapshotsLoading().compareAndSet(false, true)) {
+            loadSnapshots(parallelSnapshotLoader.get(), logicSQLTransaction);
+        }
+        Optional<SQLRevertExecutor> result = logicSQLTransaction.awaitLoadedRevertExecutor(context.getRouteUnit());
+        return result.isPresent() ? result.get() : SQLRevertExecutorFactory.newInstance(context);
     }
     
-    private SQLRevertExecutorContext getSqlRevertExecutorContext(LogicSQLTransaction logicSQLTransaction, RouteUnit routeUnit) {
+    private void loadSnapshots(final ParallelSnapshotLoader parallelSnapshotLoader, final LogicSQLTransaction logicSQLTransaction) {
+        try {
+            logicSQLTransaction.finishLoadingSnapshots(parallelSnapshotLoader.load(getSQLRevertExecutorContexts(logicSQLTransaction)));
+            // CHECKSTYLE:OFF
+        } catch (final Exception ex) {
+            // CHECKSTYLE:ON
+            logicSQLTransaction.failLoadingSnapshots(ex);
+        }
+    }
+    
+    private Collection<SQLRevertExecutorContext> getSQLRevertExecutorContexts(final LogicSQLTransaction logicSQLTransaction) {
+        Collection<SQLRevertExecutorContext> result = new LinkedList<>();
+        for (RouteUnit each : logicSQLTransaction.getSqlRouteResult().getRouteUnits()) {
+            if (!shardingSQLTransaction.isAnchorDataSource(each.getDataSourceName()) && shardingSQLTransaction.getCachedConnections().containsKey(each.getDataSourceName())) {
+                result.add(getSQLRevertExecutorContext(logicSQLTransaction, each));
+            }
+        }
+        return result;
+    }
+    
+    private SQLRevertExecutorContext getSQLRevertExecutorContext(final LogicSQLTransaction logicSQLTransaction, final RouteUnit routeUnit) {
         Connection connection = shardingSQLTransaction.getCachedConnections().get(routeUnit.getDataSourceName());
-        return new SQLRevertExecutorContext(logicSQLTransaction.getLogicSQL(), logicSQLTransaction.getSqlRouteResult(), routeUnit, logicSQLTransaction.getTableMetaData(), connection);
+        ShardingSQLTransactionManager transactionManager = ShardingSQLTransactionManager.getInstance();
+        return new SQLRevertExecutorContext(logicSQLTransaction.getLogicSQL(), logicSQLTransaction.getSqlRouteResult(), routeUnit,
+            transactionManager.getRevertTableMetaDataCache().get(logicSQLTransaction.getTableMetaData()), logicSQLTransaction.getActualTableNames(), connection,
+            transactionManager.getRevertSQLPlanCache(), shardingSQLTransaction.getUndoDataBudget(), transactionManager.getSagaConfiguration().getSnapshotFetchSize(),
+            shardingSQLTransaction.getRowImageRegistry());
     }
     
-    private List<Collection<Object>> splitParameters(final SQLUnit sqlUnit) {
+    private List<Collection<Object>> splitParameters(final SQLUnit sqlUnit, final RevertSQLPlan revertSQLPlan) {
         List<Collection<Object>> result = Lists.newArrayList();
-        int placeholderCount = countPlaceholder(sqlUnit.getSql());
+        int placeholderCount = revertSQLPlan.getPlaceholderCount(sqlUnit.getSql());
         if (placeholderCount == sqlUnit.getParameters().size()) {
             result.add(sqlUnit.getParameters());
         } else {
@@ -99,14 +260,4 @@ public final class SQLTransactionExecutionHook implements SQLExecutionHook {
         return result;
     }
     
-    private int countPlaceholder(final String sql) {
-        int result = 0;
-        int currentIndex = 0;
-        while (-1 != (currentIndex = sql.indexOf("?", currentIndex))) {
-            result++;
-            currentIndex += 1;
-        }
-        return result;
-    }
-    
 }
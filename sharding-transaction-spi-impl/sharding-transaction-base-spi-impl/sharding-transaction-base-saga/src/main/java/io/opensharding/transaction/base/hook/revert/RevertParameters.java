@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoRecord;
+import lombok.RequiredArgsConstructor;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Revert parameters replayed from undo data.
+ *
+ * <p>
+ * Parameters are not materialized, every traversal replays undo rows and converts them on the fly,
+ * so they could only be iterated, never accessed by index.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class RevertParameters extends AbstractCollection<Collection<Object>> {
+    
+    private final Iterable<UndoRecord> undoRecords;
+    
+    private final int size;
+    
+    private final Function<UndoRecord, Collection<Object>> parametersFunction;
+    
+    public RevertParameters(final UndoData undoData, final Function<UndoRecord, Collection<Object>> parametersFunction) {
+        this(undoData, undoData.size(), parametersFunction);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public Iterator<Collection<Object>> iterator() {
+        return Iterators.transform(undoRecords.iterator(), parametersFunction);
+    }
+}
@@ -17,12 +17,13 @@
 
 package io.opensharding.transaction.base.hook.revert;
 
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevert;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 import java.util.Collection;
 import java.util.LinkedList;
-import java.util.List;
 
 /**
  * Revert SQL result.
@@ -36,5 +37,9 @@ public final class RevertSQLResult {
     
     private final String sql;
     
-    private final List<Collection<Object>> parameters = new LinkedList<>();
+    @Setter
+    private Collection<Collection<Object>> parameters = new LinkedList<>();
+    
+    @Setter
+    private SetBasedRevert setBasedRevert;
 }
@@ -17,10 +17,15 @@
 
 package io.opensharding.transaction.base.hook.revert.executor;
 
+import com.google.common.base.Optional;
+import io.opensharding.transaction.base.context.RowImageRegistry;
+import io.opensharding.transaction.base.hook.revert.metadata.ActualTableNames;
+import io.opensharding.transaction.base.hook.revert.metadata.RevertTableMetaData;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlanCache;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
 import lombok.Getter;
 import org.apache.shardingsphere.core.exception.ShardingException;
-import org.apache.shardingsphere.core.metadata.column.ColumnMetaData;
-import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.DeleteStatement;
@@ -28,11 +33,8 @@ import org.apache.shardingsphere.core.parse.sql.statement.dml.InsertStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
 import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
-import org.apache.shardingsphere.core.route.type.RoutingUnit;
-import org.apache.shardingsphere.core.route.type.TableUnit;
 
 import java.sql.Connection;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -62,25 +64,52 @@ public class SQLRevertExecutorContext implements SQLRevertContext {
     
     private List<String> primaryKeyColumns;
     
-    public SQLRevertExecutorContext(final String logicSQL, final SQLRouteResult sqlRouteResult, final RouteUnit routeUnit, final TableMetaData tableMetaData, final Connection connection) {
+    private Collection<String> inexactColumns;
+    
+    private RevertSQLPlan revertSQLPlan;
+    
+    private UndoDataBudget undoDataBudget;
+    
+    private int snapshotFetchSize;
+    
+    private RowImageRegistry rowImageRegistry;
+    
+    private int batchSize;
+    
+    public SQLRevertExecutorContext(final String logicSQL, final SQLRouteResult sqlRouteResult, final RouteUnit routeUnit, final RevertTableMetaData revertTableMetaData,
+                                    final ActualTableNames actualTableNames, final Connection connection, final RevertSQLPlanCache revertSQLPlanCache,
+                                    final UndoDataBudget undoDataBudget, final int snapshotFetchSize, final RowImageRegistry rowImageRegistry) {
         this.logicSQL = logicSQL;
         this.shardingStatement = sqlRouteResult.getShardingStatement();
         this.routeUnit = routeUnit;
         this.dataSourceName = routeUnit.getDataSourceName();
         this.logicTableName = getLogicTableName(shardingStatement.getSQLStatement());
-        this.actualTableName = getActualTableName(sqlRouteResult.getRoutingResult().getRoutingUnits(), routeUnit);
+        this.actualTableName = getActualTableName(actualTableNames, routeUnit);
         this.parameters = routeUnit.getSqlUnit().getParameters();
-        this.primaryKeyColumns = getPrimaryKeyColumns(tableMetaData);
+        this.primaryKeyColumns = getPrimaryKeyColumns(revertTableMetaData);
+        this.inexactColumns = revertTableMetaData.getInexactColumns();
         this.connection = connection;
+        this.revertSQLPlan = revertSQLPlanCache.getRevertSQLPlan(logicSQL, actualTableName, shardingStatement.getSQLStatement(), revertTableMetaData);
+        this.undoDataBudget = undoDataBudget;
+        this.snapshotFetchSize = snapshotFetchSize;
+        this.rowImageRegistry = rowImageRegistry;
+        this.batchSize = getBatchSize(routeUnit.getSqlUnit().getSql());
     }
     
-    private String getActualTableName(final Collection<RoutingUnit> routingUnits, final RouteUnit routeUnit) {
-        for (RoutingUnit each : routingUnits) {
-            if (each.getDataSourceName().equalsIgnoreCase(routeUnit.getDataSourceName())) {
-                return getAvailableActualTableName(each, logicTableName);
-            }
+    private int getBatchSize(final String actualSQL) {
+        int placeholderCount = revertSQLPlan.getPlaceholderCount(actualSQL);
+        if (0 < placeholderCount && placeholderCount < parameters.size() && 0 == parameters.size() % placeholderCount) {
+            return parameters.size() / placeholderCount;
         }
-        throw new ShardingException(String.format("Could not find actual table name of [%s]", routeUnit));
+        return 1;
+    }
+    
+    private String getActualTableName(final ActualTableNames actualTableNames, final RouteUnit routeUnit) {
+        Optional<String> result = actualTableNames.find(routeUnit.getDataSourceName(), logicTableName);
+        if (!result.isPresent()) {
+            throw new ShardingException(String.format("Could not find actual table name of [%s]", routeUnit));
+        }
+        return result.get();
     }
     
     private String getLogicTableName(final SQLStatement sqlStatement) {
@@ -96,25 +125,10 @@ public class SQLRevertExecutorContext implements SQLRevertContext {
         throw new UnsupportedOperationException("Can not support transaction for operate multiple tables");
     }
     
-    private String getAvailableActualTableName(final RoutingUnit routingUnit, final String logicTableName) {
-        for (TableUnit each : routingUnit.getTableUnits()) {
-            if (each.getLogicTableName().equalsIgnoreCase(logicTableName)) {
-                return each.getActualTableName();
-            }
-        }
-        throw new ShardingException(String.format("Could not get available actual table name of [%s]", routingUnit));
-    }
-    
-    private List<String> getPrimaryKeyColumns(final TableMetaData tableMetaData) {
-        List<String> result = new ArrayList<>();
-        for (ColumnMetaData each : tableMetaData.getColumns().values()) {
-            if (each.isPrimaryKey()) {
-                result.add(each.getName());
-            }
-        }
-        if (result.isEmpty()) {
+    private List<String> getPrimaryKeyColumns(final RevertTableMetaData revertTableMetaData) {
+        if (revertTableMetaData.getPrimaryKeyColumns().isEmpty()) {
             throw new RuntimeException("Not supported table without primary key");
         }
-        return result;
+        return revertTableMetaData.getPrimaryKeyColumns();
     }
 }
@@ -17,8 +17,11 @@
 
 package io.opensharding.transaction.base.hook.revert.executor;
 
+import com.google.common.base.Optional;
 import io.opensharding.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.executor.update.InverseUpdateSQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.executor.update.InverseUpdateSQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
 import io.opensharding.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
@@ -50,7 +53,12 @@ public final class SQLRevertExecutorFactory {
         } else if (sqlStatement instanceof DeleteStatement) {
             return new DeleteSQLRevertExecutor(context, new DeleteSnapshotAccessor(context));
         } else if (sqlStatement instanceof UpdateStatement) {
-            return new UpdateSQLRevertExecutor(context, new UpdateSnapshotAccessor(context));
+            UpdateSnapshotAccessor snapshotAccessor = new UpdateSnapshotAccessor(context);
+            Optional<InverseUpdateSQLRevertContext> inverseRevertContext = InverseUpdateSQLRevertContext.newInstance(context, snapshotAccessor);
+            if (inverseRevertContext.isPresent()) {
+                return new InverseUpdateSQLRevertExecutor(context, inverseRevertContext.get());
+            }
+            return new UpdateSQLRevertExecutor(context, snapshotAccessor);
         } else {
             throw new UnsupportedOperationException("unsupported SQL statement");
         }
@@ -18,12 +18,9 @@
 package io.opensharding.transaction.base.hook.revert.executor.delete;
 
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
 import lombok.Getter;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-
 /**
  * Delete SQL revert context.
  *
@@ -35,10 +32,10 @@ public class DeleteSQLRevertContext implements SQLRevertContext {
     
     private final String actualTable;
     
-    private final List<Map<String, Object>> undoData = new LinkedList<>();
+    private final UndoData undoData;
     
-    public DeleteSQLRevertContext(final String tableName, final List<Map<String, Object>> undoData) {
+    public DeleteSQLRevertContext(final String tableName, final UndoData undoData) {
         this.actualTable = tableName;
-        this.undoData.addAll(undoData);
+        this.undoData = undoData;
     }
 }
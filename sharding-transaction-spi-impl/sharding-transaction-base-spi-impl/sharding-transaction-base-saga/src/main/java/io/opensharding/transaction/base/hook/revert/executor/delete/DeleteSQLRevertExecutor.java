@@ -17,16 +17,21 @@
 
 package io.opensharding.transaction.base.hook.revert.executor.delete;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import io.opensharding.transaction.base.hook.revert.GenericSQLBuilder;
+import io.opensharding.transaction.base.hook.revert.RevertParameters;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.constant.DefaultKeyword;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevert;
 import io.opensharding.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoRecord;
 
 import java.sql.SQLException;
-import java.util.Map;
+import java.util.Collection;
 
 /**
  * Delete SQL revert executor.
@@ -38,10 +43,11 @@ public final class DeleteSQLRevertExecutor implements SQLRevertExecutor {
     
     private DeleteSQLRevertContext sqlRevertContext;
     
-    private final GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
+    private final RevertSQLPlan revertSQLPlan;
     
     public DeleteSQLRevertExecutor(final SQLRevertExecutorContext context, final DeleteSnapshotAccessor snapshotAccessor) throws SQLException {
         sqlRevertContext = new DeleteSQLRevertContext(context.getActualTableName(), snapshotAccessor.queryUndoData());
+        revertSQLPlan = context.getRevertSQLPlan();
     }
     
     @Override
@@ -49,17 +55,30 @@ public final class DeleteSQLRevertExecutor implements SQLRevertExecutor {
         if (sqlRevertContext.getUndoData().isEmpty()) {
             return Optional.absent();
         }
+        if (null == revertSQLPlan.getRevertSQL()) {
+            revertSQLPlan.prepareRevertSQL(buildRevertSQL());
+        }
+        return Optional.of(revertSQLPlan.getRevertSQL());
+    }
+    
+    private String buildRevertSQL() {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
         sqlBuilder.appendLiterals(DefaultKeyword.INSERT);
         sqlBuilder.appendLiterals(DefaultKeyword.INTO);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
-        sqlBuilder.appendInsertValues(sqlRevertContext.getUndoData().iterator().next().size());
-        return Optional.of(sqlBuilder.toSQL());
+        sqlBuilder.appendInsertValues(sqlRevertContext.getUndoData().getColumnNames().size());
+        return sqlBuilder.toSQL();
     }
     
     @Override
     public void fillParameters(final RevertSQLResult revertSQLResult) {
-        for (Map<String, Object> each : sqlRevertContext.getUndoData()) {
-            revertSQLResult.getParameters().add(each.values());
-        }
+        revertSQLResult.setSetBasedRevert(SetBasedRevert.insertRows(sqlRevertContext.getActualTable(), sqlRevertContext.getUndoData().getColumnNames().size()));
+        revertSQLResult.setParameters(new RevertParameters(sqlRevertContext.getUndoData(), new Function<UndoRecord, Collection<Object>>() {
+            
+            @Override
+            public Collection<Object> apply(final UndoRecord input) {
+                return input.getValues();
+            }
+        }));
     }
 }
@@ -19,6 +19,8 @@ package io.opensharding.transaction.base.hook.revert.executor.insert;
 
 import com.google.common.base.Preconditions;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
 import lombok.Getter;
 import org.apache.shardingsphere.core.optimize.api.segment.InsertValue;
 import org.apache.shardingsphere.core.optimize.sharding.statement.dml.ShardingInsertOptimizedStatement;
@@ -28,13 +30,12 @@ import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.simple.LiteralE
 import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.simple.ParameterMarkerExpressionSegment;
 import org.apache.shardingsphere.core.rule.DataNode;
 
+import java.sql.RowId;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Insert SQL revert context.
@@ -48,27 +49,35 @@ public final class InsertSQLRevertContext implements SQLRevertContext {
     
     private String dataSourceName;
     
-    private final Collection<Map<String, Object>> primaryKeyInsertValues = new LinkedList<>();
+    private final List<String> primaryKeys;
+    
+    private UndoData primaryKeyInsertValues;
 
     public InsertSQLRevertContext(final String dataSourceName, final String actualTableName, final List<String> primaryKeys, final ShardingInsertOptimizedStatement insertOptimizedStatement) {
         this.dataSourceName = dataSourceName;
         this.actualTable = actualTableName;
+        this.primaryKeys = primaryKeys;
         loadPrimaryKeyInsertValues(dataSourceName, actualTableName, primaryKeys, insertOptimizedStatement);
     }
     
     private void loadPrimaryKeyInsertValues(final String dataSourceName, final String actualTableName, final List<String> primaryKeys, final ShardingInsertOptimizedStatement insertOptimizedStatement) {
         Preconditions.checkNotNull(insertOptimizedStatement, "Could not found insert optimized statement. datasourceName:%s, actualTable:%s", dataSourceName, actualTableName);
-        for (Map<String, Object> each : getRoutedInsertValues(insertOptimizedStatement, new DataNode(dataSourceName, actualTableName))) {
-            addPrimaryKeyColumnValues(each, primaryKeys);
+        List<String> primaryKeyColumnNames = getInsertedPrimaryKeyColumnNames(primaryKeys, insertOptimizedStatement.getColumnNames());
+        primaryKeyInsertValues = new UndoData(new UndoDataBudget(Long.MAX_VALUE), primaryKeyColumnNames);
+        DataNode dataNode = new DataNode(dataSourceName, actualTableName);
+        for (InsertValue each : insertOptimizedStatement.getInsertValues()) {
+            // TODO could not handle sharding-master-slave datasource.
+            if (!primaryKeyColumnNames.isEmpty() && isRoutedDataNode(each.getDataNodes(), dataNode)) {
+                primaryKeyInsertValues.add(getPrimaryKeyValues(each, insertOptimizedStatement.getColumnNames(), primaryKeyColumnNames));
+            }
         }
     }
     
-    private List<Map<String, Object>> getRoutedInsertValues(final ShardingInsertOptimizedStatement insertOptimizedStatement, final DataNode dataNode) {
-        List<Map<String, Object>> result = new LinkedList<>();
-        for (InsertValue each : insertOptimizedStatement.getInsertValues()) {
-            // TODO could not handle sharding-master-slave datasource.
-            if (isRoutedDataNode(each.getDataNodes(), dataNode)) {
-                result.add(getInsertValueMap(each, insertOptimizedStatement.getColumnNames()));
+    private List<String> getInsertedPrimaryKeyColumnNames(final List<String> primaryKeys, final List<String> columnNames) {
+        List<String> result = new ArrayList<>(primaryKeys.size());
+        for (String each : primaryKeys) {
+            if (columnNames.contains(each)) {
+                result.add(each);
             }
         }
         return result;
@@ -83,31 +92,61 @@ public final class InsertSQLRevertContext implements SQLRevertContext {
         return false;
     }
     
-    private Map<String, Object> getInsertValueMap(final InsertValue insertValue, final List<String> columnNames) {
-        Map<String, Object> result = new HashMap<>(columnNames.size(), 1);
+    private Object[] getPrimaryKeyValues(final InsertValue insertValue, final List<String> columnNames, final List<String> primaryKeyColumnNames) {
+        Object[] result = new Object[primaryKeyColumnNames.size()];
         Iterator<String> columnNamesIterator = columnNames.iterator();
         Iterator<Object> parametersIterator = insertValue.getParameters().iterator();
         for (ExpressionSegment each : insertValue.getValueExpressions()) {
+            Object value;
             if (each instanceof ParameterMarkerExpressionSegment) {
-                result.put(columnNamesIterator.next(), parametersIterator.next());
+                value = parametersIterator.next();
             } else if (each instanceof LiteralExpressionSegment) {
-                result.put(columnNamesIterator.next(), ((LiteralExpressionSegment) each).getLiterals());
+                value = ((LiteralExpressionSegment) each).getLiterals();
             } else if (each instanceof CommonExpressionSegment) {
-                result.put(columnNamesIterator.next(), ((CommonExpressionSegment) each).getText());
+                value = ((CommonExpressionSegment) each).getText();
+            } else {
+                continue;
+            }
+            int index = primaryKeyColumnNames.indexOf(columnNamesIterator.next());
+            if (-1 != index) {
+                result[index] = value;
             }
         }
         return result;
     }
     
-    private void addPrimaryKeyColumnValues(final Map<String, Object> routedInsertValue, final List<String> primaryKeys) {
-        Map<String, Object> primaryKeyInsertValue = new LinkedHashMap<>(primaryKeys.size(), 1);
-        for (String each : primaryKeys) {
-            if (routedInsertValue.containsKey(each)) {
-                primaryKeyInsertValue.put(each, routedInsertValue.get(each));
+    /**
+     * Judge whether primary key values could be filled by keys generated by database.
+     *
+     * @return acceptable or not
+     */
+    public boolean isGeneratedKeysAcceptable() {
+        return primaryKeyInsertValues.getColumnNames().isEmpty() && 1 == primaryKeys.size();
+    }
+    
+    /**
+     * Fill primary key values generated by database.
+     *
+     * <p>
+     * Only works for single primary key table whose insert values do not contain primary key.
+     * </p>
+     *
+     * @param generatedKeys generated keys
+     * @return filled or not
+     */
+    public boolean fillGeneratedKeys(final Collection<Object> generatedKeys) {
+        if (generatedKeys.isEmpty() || !isGeneratedKeysAcceptable()) {
+            return false;
+        }
+        for (Object each : generatedKeys) {
+            if (null == each || each instanceof RowId) {
+                return false;
             }
         }
-        if (!primaryKeyInsertValue.isEmpty()) {
-            primaryKeyInsertValues.add(primaryKeyInsertValue);
+        primaryKeyInsertValues = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Collections.singletonList(primaryKeys.get(0)));
+        for (Object each : generatedKeys) {
+            primaryKeyInsertValues.add(each);
         }
+        return true;
     }
 }
@@ -17,17 +17,22 @@
 
 package io.opensharding.transaction.base.hook.revert.executor.insert;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import io.opensharding.transaction.base.hook.revert.GenericSQLBuilder;
+import io.opensharding.transaction.base.hook.revert.RevertParameters;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.constant.DefaultKeyword;
+import io.opensharding.transaction.base.hook.revert.executor.RowImageAware;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
-import lombok.RequiredArgsConstructor;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevert;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoRecord;
 import org.apache.shardingsphere.core.optimize.sharding.statement.dml.ShardingInsertOptimizedStatement;
 
-import java.util.Map;
+import java.util.Collection;
 
 /**
  * Insert SQL revert executor.
@@ -35,37 +40,85 @@ import java.util.Map;
  * @author duhongjun
  * @author zhaojun
  */
-@RequiredArgsConstructor
-public final class InsertSQLRevertExecutor implements SQLRevertExecutor {
+public final class InsertSQLRevertExecutor implements SQLRevertExecutor, RowImageAware {
     
     private InsertSQLRevertContext sqlRevertContext;
     
-    private GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
+    private final RevertSQLPlan revertSQLPlan;
+    
+    private SQLRevertExecutorContext executorContext;
     
     public InsertSQLRevertExecutor(final InsertSQLRevertContext revertContext) {
         sqlRevertContext = revertContext;
+        revertSQLPlan = new RevertSQLPlan();
     }
     
     public InsertSQLRevertExecutor(final SQLRevertExecutorContext executorContext) {
         sqlRevertContext = new InsertSQLRevertContext(executorContext.getDataSourceName(), executorContext.getActualTableName(),
             executorContext.getPrimaryKeyColumns(), (ShardingInsertOptimizedStatement) executorContext.getShardingStatement());
+        Preconditions.checkState(!sqlRevertContext.getPrimaryKeyInsertValues().isEmpty() || sqlRevertContext.isGeneratedKeysAcceptable(),
+            "Could not found primary key values. datasource:[%s], table:[%s]", sqlRevertContext.getDataSourceName(), sqlRevertContext.getActualTable());
+        revertSQLPlan = executorContext.getRevertSQLPlan();
+        this.executorContext = executorContext;
+    }
+    
+    /**
+     * Find primary key column whose values are expected to be generated by database.
+     *
+     * @return generated key column
+     */
+    public Optional<String> findGeneratedKeyColumn() {
+        return sqlRevertContext.isGeneratedKeysAcceptable() ? Optional.of(sqlRevertContext.getPrimaryKeys().get(0)) : Optional.<String>absent();
+    }
+    
+    /**
+     * Accept keys generated by database when executing insert.
+     *
+     * @param generatedKeys generated keys
+     * @return false if primary key values of inserted rows are still unknown
+     */
+    public boolean acceptGeneratedKeys(final Collection<Object> generatedKeys) {
+        return !sqlRevertContext.getPrimaryKeyInsertValues().isEmpty() || sqlRevertContext.fillGeneratedKeys(generatedKeys);
+    }
+    
+    @Override
+    public void registerRowImages() {
+        if (null == executorContext || sqlRevertContext.getPrimaryKeyInsertValues().getColumnNames().size() != executorContext.getPrimaryKeyColumns().size()) {
+            return;
+        }
+        for (UndoRecord each : sqlRevertContext.getPrimaryKeyInsertValues()) {
+            executorContext.getRowImageRegistry().registerInsertedRow(executorContext.getDataSourceName(), executorContext.getActualTableName(), each.getValues());
+        }
     }
     
     @Override
     public Optional<String> revertSQL() {
         Preconditions.checkState(!sqlRevertContext.getPrimaryKeyInsertValues().isEmpty(),
             "Could not found primary key values. datasource:[%s], table:[%s]", sqlRevertContext.getDataSourceName(), sqlRevertContext.getActualTable());
+        if (null == revertSQLPlan.getRevertSQL()) {
+            revertSQLPlan.prepareRevertSQL(buildRevertSQL());
+        }
+        return Optional.of(revertSQLPlan.getRevertSQL());
+    }
+    
+    private String buildRevertSQL() {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
         sqlBuilder.appendLiterals(DefaultKeyword.DELETE);
         sqlBuilder.appendLiterals(DefaultKeyword.FROM);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
-        sqlBuilder.appendWhereCondition(sqlRevertContext.getPrimaryKeyInsertValues().iterator().next().keySet());
-        return Optional.of(sqlBuilder.toSQL());
+        sqlBuilder.appendWhereCondition(sqlRevertContext.getPrimaryKeyInsertValues().getColumnNames());
+        return sqlBuilder.toSQL();
     }
     
     @Override
     public void fillParameters(final RevertSQLResult revertSQLResult) {
-        for (Map<String, Object> each : sqlRevertContext.getPrimaryKeyInsertValues()) {
-            revertSQLResult.getParameters().add(each.values());
-        }
+        revertSQLResult.setSetBasedRevert(SetBasedRevert.deleteByKeys(sqlRevertContext.getActualTable(), sqlRevertContext.getPrimaryKeyInsertValues().getColumnNames()));
+        revertSQLResult.setParameters(new RevertParameters(sqlRevertContext.getPrimaryKeyInsertValues(), new Function<UndoRecord, Collection<Object>>() {
+            
+            @Override
+            public Collection<Object> apply(final UndoRecord input) {
+                return input.getValues();
+            }
+        }));
     }
 }
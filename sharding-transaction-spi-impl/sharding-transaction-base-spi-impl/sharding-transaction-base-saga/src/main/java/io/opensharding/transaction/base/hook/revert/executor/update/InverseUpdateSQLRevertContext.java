@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.executor.update;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Optional;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.AssignmentSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.complex.CommonExpressionSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.predicate.WhereSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.generic.TableSegment;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inverse update SQL revert context.
+ *
+ * <p>
+ * Update statements which only add to or subtract from columns, such as {@code SET balance = balance + ?},
+ * could be reverted by the inverse arithmetic under the same where clause, no snapshot is needed.
+ * Where clause must only consist of equality conditions on primary key columns, so compensation always hits the same rows.
+ * Batched update gets one inverse parameter set per batch entry.
+ * Arithmetic on inexact columns or with null operand can not be inverted, such update falls back to snapshot.
+ * </p>
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public final class InverseUpdateSQLRevertContext implements SQLRevertContext {
+    
+    private static final Pattern ARITHMETIC_EXPRESSION = Pattern.compile("^\\s*((?:[\\w$`\"\\[\\]]+\\.)?([\\w$`\"\\[\\]]+))\\s*([+-])\\s*(\\?|\\d+(?:\\.\\d+)?)\\s*$");
+    
+    private static final CharMatcher IDENTIFIER_QUOTES = CharMatcher.anyOf("`\"[]");
+    
+    private final String actualTable;
+    
+    private final String tableAlias;
+    
+    private final List<String> inverseAssignments;
+    
+    private final String whereClause;
+    
+    private final List<Collection<Object>> parameters;
+    
+    /**
+     * Create inverse update SQL revert context.
+     *
+     * @param context SQL revert executor context
+     * @param snapshotAccessor update snapshot accessor
+     * @return inverse update SQL revert context, absent if update statement is not invertible
+     */
+    public static Optional<InverseUpdateSQLRevertContext> newInstance(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor) {
+        UpdateStatement updateStatement = (UpdateStatement) context.getShardingStatement().getSQLStatement();
+        Collection<AssignmentSegment> assignments = updateStatement.getSetAssignment().getAssignments();
+        if (assignments.isEmpty() || !snapshotAccessor.findPrimaryKeyValues().isPresent()) {
+            return Optional.absent();
+        }
+        String logicSQL = context.getLogicSQL();
+        int parameterSetSize = context.getParameters().size() / context.getBatchSize();
+        List<String> inverseAssignments = new ArrayList<>(assignments.size());
+        List<Integer> parameterIndexes = new ArrayList<>();
+        for (AssignmentSegment each : assignments) {
+            String columnName = IDENTIFIER_QUOTES.removeFrom(each.getColumn().getName());
+            if (!(each.getValue() instanceof CommonExpressionSegment) || containsIgnoreCase(context.getPrimaryKeyColumns(), columnName) || containsIgnoreCase(context.getInexactColumns(), columnName)) {
+                return Optional.absent();
+            }
+            CommonExpressionSegment expression = (CommonExpressionSegment) each.getValue();
+            Matcher matcher = ARITHMETIC_EXPRESSION.matcher(expression.getText());
+            if (!matcher.matches() || !columnName.equalsIgnoreCase(IDENTIFIER_QUOTES.removeFrom(matcher.group(2)))) {
+                return Optional.absent();
+            }
+            String operand = matcher.group(4);
+            if ("?".equals(operand)) {
+                int parameterIndex = countPlaceholders(logicSQL, expression.getStartIndex());
+                if (parameterIndex >= parameterSetSize || containsNull(context.getParameters(), parameterSetSize, parameterIndex)) {
+                    return Optional.absent();
+                }
+                parameterIndexes.add(parameterIndex);
+            }
+            inverseAssignments.add(String.format("%s = %s %s %s", each.getColumn().getName(), matcher.group(1), "+".equals(matcher.group(3)) ? "-" : "+", operand));
+        }
+        WhereSegment whereSegment = updateStatement.getWhere().get();
+        if (!logicSQL.substring(whereSegment.getStopIndex() + 1).trim().isEmpty()) {
+            return Optional.absent();
+        }
+        int whereParametersEnd = countPlaceholders(logicSQL, whereSegment.getStopIndex() + 1);
+        if (whereParametersEnd > parameterSetSize) {
+            return Optional.absent();
+        }
+        for (int i = countPlaceholders(logicSQL, whereSegment.getStartIndex()); i < whereParametersEnd; i++) {
+            parameterIndexes.add(i);
+        }
+        String whereClause = logicSQL.substring(whereSegment.getStartIndex(), whereSegment.getStopIndex() + 1);
+        return Optional.of(new InverseUpdateSQLRevertContext(context.getActualTableName(), getTableAlias(updateStatement, context.getLogicTableName()), inverseAssignments, whereClause,
+            getParameters(context.getParameters(), parameterSetSize, parameterIndexes)));
+    }
+    
+    private static List<Collection<Object>> getParameters(final List<Object> parameters, final int parameterSetSize, final List<Integer> parameterIndexes) {
+        List<Collection<Object>> result = new ArrayList<>(parameters.size() / parameterSetSize);
+        for (int offset = 0; offset < parameters.size(); offset += parameterSetSize) {
+            Collection<Object> parameterSet = new ArrayList<>(parameterIndexes.size());
+            for (int each : parameterIndexes) {
+                parameterSet.add(parameters.get(offset + each));
+            }
+            result.add(parameterSet);
+        }
+        return result;
+    }
+    
+    private static boolean containsNull(final List<Object> parameters, final int parameterSetSize, final int parameterIndex) {
+        for (int offset = 0; offset < parameters.size(); offset += parameterSetSize) {
+            if (null == parameters.get(offset + parameterIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String getTableAlias(final UpdateStatement updateStatement, final String logicTableName) {
+        for (TableSegment each : updateStatement.getTables()) {
+            if (logicTableName.equals(each.getTableName()) && each.getAlias().isPresent() && !each.getAlias().get().equals(each.getTableName())) {
+                return each.getAlias().get();
+            }
+        }
+        return "";
+    }
+    
+    private static boolean containsIgnoreCase(final Collection<String> columnNames, final String columnName) {
+        for (String each : columnNames) {
+            if (each.equalsIgnoreCase(columnName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static int countPlaceholders(final String sql, final int endIndex) {
+        int result = 0;
+        char quote = 0;
+        for (int i = 0; i < endIndex; i++) {
+            char each = sql.charAt(i);
+            if (0 != quote) {
+                if (each == quote) {
+                    quote = 0;
+                }
+            } else if ('\'' == each || '"' == each || '`' == each) {
+                quote = each;
+            } else if ('?' == each) {
+                result++;
+            }
+        }
+        return result;
+    }
+}
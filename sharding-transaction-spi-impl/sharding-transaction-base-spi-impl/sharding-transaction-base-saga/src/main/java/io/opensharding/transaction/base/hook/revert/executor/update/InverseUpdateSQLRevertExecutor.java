@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.executor.update;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import io.opensharding.transaction.base.hook.revert.GenericSQLBuilder;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.constant.DefaultKeyword;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+
+/**
+ * Inverse update SQL revert executor, reverts arithmetic update without snapshot.
+ */
+public final class InverseUpdateSQLRevertExecutor implements SQLRevertExecutor {
+    
+    private final InverseUpdateSQLRevertContext sqlRevertContext;
+    
+    private final RevertSQLPlan revertSQLPlan;
+    
+    public InverseUpdateSQLRevertExecutor(final SQLRevertExecutorContext context, final InverseUpdateSQLRevertContext sqlRevertContext) {
+        this.sqlRevertContext = sqlRevertContext;
+        revertSQLPlan = context.getRevertSQLPlan();
+    }
+    
+    @Override
+    public Optional<String> revertSQL() {
+        if (null == revertSQLPlan.getRevertSQL()) {
+            revertSQLPlan.prepareRevertSQL(buildRevertSQL());
+        }
+        return Optional.of(revertSQLPlan.getRevertSQL());
+    }
+    
+    private String buildRevertSQL() {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
+        sqlBuilder.appendLiterals(DefaultKeyword.UPDATE);
+        sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
+        sqlBuilder.appendLiterals(sqlRevertContext.getTableAlias());
+        sqlBuilder.appendLiterals(DefaultKeyword.SET);
+        sqlBuilder.appendLiterals(Joiner.on(", ").join(sqlRevertContext.getInverseAssignments()));
+        sqlBuilder.appendLiterals(sqlRevertContext.getWhereClause());
+        return sqlBuilder.toSQL();
+    }
+    
+    @Override
+    public void fillParameters(final RevertSQLResult revertSQLResult) {
+        revertSQLResult.getParameters().addAll(sqlRevertContext.getParameters());
+    }
+}
@@ -18,12 +18,15 @@
 package io.opensharding.transaction.base.hook.revert.executor.update;
 
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
 import lombok.Getter;
 
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Update SQL revert context.
@@ -36,7 +39,7 @@ public final class UpdateSQLRevertContext implements SQLRevertContext {
     
     private final String actualTable;
     
-    private final List<Map<String, Object>> undoData = new LinkedList<>();
+    private final UndoData undoData;
     
     private final Map<String, Object> updateSetAssignments = new LinkedHashMap<>();
     
@@ -44,12 +47,26 @@ public final class UpdateSQLRevertContext implements SQLRevertContext {
     
     private final List<Object> parameters = new LinkedList<>();
     
-    public UpdateSQLRevertContext(final String tableName, final List<Map<String, Object>> undoData, final Map<String, Object> updateSetAssignments, final List<String> primaryKeyColumns,
+    private final List<String> revertColumns = new LinkedList<>();
+    
+    private final Set<List<Object>> skippedPrimaryKeys = new HashSet<>();
+    
+    public UpdateSQLRevertContext(final String tableName, final UndoData undoData, final Map<String, Object> updateSetAssignments, final List<String> primaryKeyColumns,
                                   final List<Object> parameters) {
         this.actualTable = tableName;
-        this.undoData.addAll(undoData);
+        this.undoData = undoData;
         this.updateSetAssignments.putAll(updateSetAssignments);
+        this.revertColumns.addAll(updateSetAssignments.keySet());
         this.primaryKeyColumns.addAll(primaryKeyColumns);
         this.parameters.addAll(parameters);
     }
+    
+    /**
+     * Whether all undo rows are skipped or not, rows are skipped if unchanged or imaged by earlier SQL of current transaction.
+     *
+     * @return true or false
+     */
+    public boolean isAllSkipped() {
+        return undoData.size() == skippedPrimaryKeys.size();
+    }
 }
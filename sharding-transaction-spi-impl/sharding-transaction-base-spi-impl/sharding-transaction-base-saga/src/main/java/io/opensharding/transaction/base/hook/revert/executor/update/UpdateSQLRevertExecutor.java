@@ -17,12 +17,22 @@
 
 package io.opensharding.transaction.base.hook.revert.executor.update;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import io.opensharding.transaction.base.context.RowImageRegistry;
 import io.opensharding.transaction.base.hook.revert.GenericSQLBuilder;
+import io.opensharding.transaction.base.hook.revert.RevertParameters;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.constant.DefaultKeyword;
+import io.opensharding.transaction.base.hook.revert.executor.RowImageAware;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevert;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoRecord;
 import io.opensharding.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.AssignmentSegment;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.complex.CommonExpressionSegment;
@@ -30,11 +40,20 @@ import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.simple.LiteralE
 import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.simple.ParameterMarkerExpressionSegment;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
 
+import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * Update SQL revert executor.
@@ -42,19 +61,120 @@ import java.util.Map;
  * @author duhongjun
  * @author zhaojun
  */
-public final class UpdateSQLRevertExecutor implements SQLRevertExecutor {
+public final class UpdateSQLRevertExecutor implements SQLRevertExecutor, RowImageAware {
+    
+    private final String dataSourceName;
+    
+    private final RowImageRegistry rowImageRegistry;
+    
+    private final Map<List<Object>, Collection<String>> pendingRowImages = new LinkedHashMap<>();
     
     private UpdateSQLRevertContext sqlRevertContext;
     
-    private final GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
+    private final RevertSQLPlan revertSQLPlan;
     
     public UpdateSQLRevertExecutor(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor) throws SQLException {
+        dataSourceName = context.getDataSourceName();
+        rowImageRegistry = context.getRowImageRegistry();
         sqlRevertContext = createRevertSQLContext(context, snapshotAccessor);
+        revertSQLPlan = context.getRevertSQLPlan();
     }
     
     private UpdateSQLRevertContext createRevertSQLContext(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor) throws SQLException {
-        Map<String, Object> updateSetAssignments = getUpdateSetAssignments((UpdateStatement) context.getShardingStatement().getSQLStatement(), context.getParameters());
-        return new UpdateSQLRevertContext(context.getActualTableName(), snapshotAccessor.queryUndoData(), updateSetAssignments, context.getPrimaryKeyColumns(), context.getParameters());
+        UpdateStatement updateStatement = (UpdateStatement) context.getShardingStatement().getSQLStatement();
+        Map<String, Object> updateSetAssignments = getUpdateSetAssignments(updateStatement, context.getParameters());
+        boolean coalesce = 1 >= context.getBatchSize() && !isPrimaryKeyUpdated(updateSetAssignments.keySet(), context.getPrimaryKeyColumns());
+        UndoData undoData = coalesce && isImaged(context, snapshotAccessor, updateSetAssignments.keySet())
+            ? new UndoData(context.getUndoDataBudget(), Collections.<String>emptyList()) : snapshotAccessor.queryUndoData();
+        UpdateSQLRevertContext result = new UpdateSQLRevertContext(context.getActualTableName(), undoData, updateSetAssignments, context.getPrimaryKeyColumns(), context.getParameters());
+        skipUndoRecords(result, getComparableColumns(context, updateStatement), coalesce);
+        return result;
+    }
+    
+    private boolean isPrimaryKeyUpdated(final Collection<String> updateColumns, final List<String> primaryKeyColumns) {
+        for (String each : updateColumns) {
+            for (String primaryKey : primaryKeyColumns) {
+                if (primaryKey.equalsIgnoreCase(each)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private boolean isImaged(final SQLRevertExecutorContext context, final UpdateSnapshotAccessor snapshotAccessor, final Collection<String> updateColumns) {
+        Optional<List<Object>> primaryKeyValues = snapshotAccessor.findPrimaryKeyValues();
+        return primaryKeyValues.isPresent() && rowImageRegistry.isImaged(dataSourceName, context.getActualTableName(), primaryKeyValues.get(), updateColumns);
+    }
+    
+    private Set<String> getComparableColumns(final SQLRevertExecutorContext context, final UpdateStatement updateStatement) {
+        Set<String> result = new HashSet<>();
+        if (1 < context.getBatchSize()) {
+            return result;
+        }
+        for (AssignmentSegment each : updateStatement.getSetAssignment().getAssignments()) {
+            if (each.getValue() instanceof ParameterMarkerExpressionSegment || each.getValue() instanceof LiteralExpressionSegment) {
+                result.add(each.getColumn().getName());
+            }
+        }
+        return result;
+    }
+    
+    private void skipUndoRecords(final UpdateSQLRevertContext revertContext, final Set<String> comparableColumns, final boolean coalesce) {
+        Set<String> changedColumns = new HashSet<>();
+        for (UndoRecord each : revertContext.getUndoData()) {
+            List<String> rowChangedColumns = getChangedColumns(revertContext.getUpdateSetAssignments(), comparableColumns, each);
+            List<Object> primaryKeyValues = getPrimaryKeyValues(revertContext.getPrimaryKeyColumns(), each);
+            if (rowChangedColumns.isEmpty() || coalesce && rowImageRegistry.isImaged(dataSourceName, revertContext.getActualTable(), primaryKeyValues, rowChangedColumns)) {
+                revertContext.getSkippedPrimaryKeys().add(primaryKeyValues);
+            } else {
+                changedColumns.addAll(rowChangedColumns);
+                if (coalesce) {
+                    pendingRowImages.put(primaryKeyValues, rowChangedColumns);
+                }
+            }
+        }
+        Iterator<String> revertColumns = revertContext.getRevertColumns().iterator();
+        while (revertColumns.hasNext()) {
+            if (!changedColumns.contains(revertColumns.next())) {
+                revertColumns.remove();
+            }
+        }
+    }
+    
+    private List<String> getChangedColumns(final Map<String, Object> updateSetAssignments, final Set<String> comparableColumns, final UndoRecord undoRecord) {
+        List<String> result = new LinkedList<>();
+        for (Entry<String, Object> entry : updateSetAssignments.entrySet()) {
+            if (!comparableColumns.contains(entry.getKey()) || !isSameValue(undoRecord.get(entry.getKey()), entry.getValue())) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+    
+    private boolean isSameValue(final Object snapshotValue, final Object assignedValue) {
+        if (null == snapshotValue || null == assignedValue) {
+            return snapshotValue == assignedValue;
+        }
+        if (snapshotValue instanceof Number && assignedValue instanceof Number) {
+            try {
+                return 0 == new BigDecimal(snapshotValue.toString()).compareTo(new BigDecimal(assignedValue.toString()));
+            } catch (final NumberFormatException ignored) {
+                return false;
+            }
+        }
+        if (snapshotValue instanceof byte[] && assignedValue instanceof byte[]) {
+            return Arrays.equals((byte[]) snapshotValue, (byte[]) assignedValue);
+        }
+        return snapshotValue.equals(assignedValue);
+    }
+    
+    private List<Object> getPrimaryKeyValues(final List<String> primaryKeyColumns, final UndoRecord undoRecord) {
+        List<Object> result = new ArrayList<>(primaryKeyColumns.size());
+        for (String each : primaryKeyColumns) {
+            result.add(undoRecord.get(each));
+        }
+        return result;
     }
     
     private Map<String, Object> getUpdateSetAssignments(final UpdateStatement updateStatement, final List<Object> parameters) {
@@ -71,28 +191,65 @@ public final class UpdateSQLRevertExecutor implements SQLRevertExecutor {
         return result;
     }
     
+    @Override
+    public void registerRowImages() {
+        for (Entry<List<Object>, Collection<String>> entry : pendingRowImages.entrySet()) {
+            rowImageRegistry.registerImage(dataSourceName, sqlRevertContext.getActualTable(), entry.getKey(), entry.getValue());
+        }
+        pendingRowImages.clear();
+    }
+    
     @Override
     public Optional<String> revertSQL() {
-        if (sqlRevertContext.getUndoData().isEmpty()) {
+        if (sqlRevertContext.getUndoData().isEmpty() || sqlRevertContext.isAllSkipped()) {
             return Optional.absent();
         }
+        if (sqlRevertContext.getRevertColumns().size() < sqlRevertContext.getUpdateSetAssignments().size()) {
+            return Optional.of(buildRevertSQL());
+        }
+        if (null == revertSQLPlan.getRevertSQL()) {
+            revertSQLPlan.prepareRevertSQL(buildRevertSQL());
+        }
+        return Optional.of(revertSQLPlan.getRevertSQL());
+    }
+    
+    private String buildRevertSQL() {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
         sqlBuilder.appendLiterals(DefaultKeyword.UPDATE);
         sqlBuilder.appendLiterals(sqlRevertContext.getActualTable());
-        sqlBuilder.appendUpdateSetAssignments(sqlRevertContext.getUpdateSetAssignments().keySet());
+        sqlBuilder.appendUpdateSetAssignments(sqlRevertContext.getRevertColumns());
         sqlBuilder.appendWhereCondition(sqlRevertContext.getPrimaryKeyColumns());
-        return Optional.of(sqlBuilder.toSQL());
+        return sqlBuilder.toSQL();
     }
     
     @Override
     public void fillParameters(final RevertSQLResult revertSQLResult) {
-        for (Map<String, Object> each : sqlRevertContext.getUndoData()) {
-            revertSQLResult.getParameters().add(getParameters(each));
+        revertSQLResult.setSetBasedRevert(SetBasedRevert.updateByKeys(sqlRevertContext.getActualTable(),
+            new ArrayList<>(sqlRevertContext.getRevertColumns()), sqlRevertContext.getPrimaryKeyColumns()));
+        Function<UndoRecord, Collection<Object>> parametersFunction = new Function<UndoRecord, Collection<Object>>() {
+            
+            @Override
+            public Collection<Object> apply(final UndoRecord input) {
+                return getParameters(input);
+            }
+        };
+        if (sqlRevertContext.getSkippedPrimaryKeys().isEmpty()) {
+            revertSQLResult.setParameters(new RevertParameters(sqlRevertContext.getUndoData(), parametersFunction));
+            return;
         }
+        Iterable<UndoRecord> undoRecords = Iterables.filter(sqlRevertContext.getUndoData(), new Predicate<UndoRecord>() {
+            
+            @Override
+            public boolean apply(final UndoRecord input) {
+                return !sqlRevertContext.getSkippedPrimaryKeys().contains(getPrimaryKeyValues(sqlRevertContext.getPrimaryKeyColumns(), input));
+            }
+        });
+        revertSQLResult.setParameters(new RevertParameters(undoRecords, sqlRevertContext.getUndoData().size() - sqlRevertContext.getSkippedPrimaryKeys().size(), parametersFunction));
     }
     
-    private List<Object> getParameters(final Map<String, Object> undoRecord) {
-        List<Object> result = new LinkedList<>();
-        for (String each : sqlRevertContext.getUpdateSetAssignments().keySet()) {
+    private List<Object> getParameters(final UndoRecord undoRecord) {
+        List<Object> result = new ArrayList<>(sqlRevertContext.getRevertColumns().size() + sqlRevertContext.getPrimaryKeyColumns().size());
+        for (String each : sqlRevertContext.getRevertColumns()) {
             result.add(undoRecord.get(each.toLowerCase()));
         }
         for (String each : sqlRevertContext.getPrimaryKeyColumns()) {
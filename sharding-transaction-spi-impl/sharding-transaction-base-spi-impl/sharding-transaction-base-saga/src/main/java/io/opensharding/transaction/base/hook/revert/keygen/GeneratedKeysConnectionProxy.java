@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.keygen;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Connection proxy which captures keys generated by INSERT statements.
+ *
+ * <p>
+ * INSERT statements are prepared with {@link Statement#RETURN_GENERATED_KEYS} unless caller asked for generated keys by itself,
+ * keys are read from the executed statement into {@link GeneratedKeysHolder}, so no extra query is issued.
+ * If caller asked for generated keys, they are cached after capturing and later returned to caller.
+ * Proxies implement every public interface of the target, so vendor interfaces stay reachable.
+ * Statements created while capturing is disabled, e.g. on the anchor data source which needs no revert, are not touched.
+ * </p>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class GeneratedKeysConnectionProxy {
+    
+    private static final String INSERT = "INSERT";
+    
+    /**
+     * Create connection proxy.
+     *
+     * @param connection target connection
+     * @return connection proxy
+     */
+    public static Connection newInstance(final Connection connection) {
+        return newInstance(connection, Suppliers.ofInstance(true));
+    }
+    
+    /**
+     * Create connection proxy.
+     *
+     * @param connection target connection
+     * @param capturing whether generated keys should be captured when statement is created
+     * @return connection proxy
+     */
+    public static Connection newInstance(final Connection connection, final Supplier<Boolean> capturing) {
+        if (Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler) {
+            return connection;
+        }
+        return (Connection) newProxy(connection, Connection.class, new ConnectionHandler(connection, capturing));
+    }
+    
+    private static Object newProxy(final Object target, final Class<?> requiredInterface, final InvocationHandler handler) {
+        ClassLoader classLoader = null == target.getClass().getClassLoader() ? GeneratedKeysConnectionProxy.class.getClassLoader() : target.getClass().getClassLoader();
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        interfaces.add(requiredInterface);
+        for (Class<?> each = target.getClass(); null != each; each = each.getSuperclass()) {
+            collectVisibleInterfaces(each.getInterfaces(), classLoader, interfaces);
+        }
+        return Proxy.newProxyInstance(classLoader, interfaces.toArray(new Class<?>[interfaces.size()]), handler);
+    }
+    
+    private static void collectVisibleInterfaces(final Class<?>[] interfaces, final ClassLoader classLoader, final Collection<Class<?>> result) {
+        for (Class<?> each : interfaces) {
+            if (Modifier.isPublic(each.getModifiers()) && isVisible(each, classLoader)) {
+                result.add(each);
+            }
+            collectVisibleInterfaces(each.getInterfaces(), classLoader, result);
+        }
+    }
+    
+    private static boolean isVisible(final Class<?> clazz, final ClassLoader classLoader) {
+        try {
+            return clazz == Class.forName(clazz.getName(), false, classLoader);
+        } catch (final ClassNotFoundException ignored) {
+            return false;
+        }
+    }
+    
+    private static boolean isInsert(final Object sql) {
+        if (!(sql instanceof String)) {
+            return false;
+        }
+        String trimmed = ((String) sql).trim();
+        return trimmed.length() > INSERT.length() && INSERT.equalsIgnoreCase(trimmed.substring(0, INSERT.length()));
+    }
+    
+    private static boolean isGeneratedKeysRequested(final Object[] args) {
+        return 2 == args.length && (Integer.valueOf(Statement.RETURN_GENERATED_KEYS).equals(args[1]) || args[1] instanceof int[] || args[1] instanceof String[]);
+    }
+    
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+    
+    private static Object unwrap(final Object target, final Method method, final Object[] args) throws Throwable {
+        if (args[0] instanceof Class && ((Class<?>) args[0]).isInstance(target)) {
+            return target;
+        }
+        return invoke(target, method, args);
+    }
+    
+    private static void addGeneratedKeys(final ResultSet resultSet) throws SQLException {
+        int columnIndex = getKeyColumnIndex(resultSet.getMetaData(), GeneratedKeysHolder.getKeyColumnName());
+        if (-1 == columnIndex) {
+            return;
+        }
+        while (resultSet.next()) {
+            GeneratedKeysHolder.add(resultSet.getObject(columnIndex));
+        }
+    }
+    
+    private static int getKeyColumnIndex(final ResultSetMetaData metaData, final String keyColumnName) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        if (1 == columnCount) {
+            return 1;
+        }
+        for (int i = 1; i <= columnCount; i++) {
+            if (metaData.getColumnLabel(i).equalsIgnoreCase(keyColumnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    @RequiredArgsConstructor
+    private static final class ConnectionHandler implements InvocationHandler {
+        
+        private final Connection connection;
+        
+        private final Supplier<Boolean> capturing;
+        
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("unwrap".equals(method.getName())) {
+                return unwrap(connection, method, args);
+            }
+            if (!capturing.get()) {
+                return GeneratedKeysConnectionProxy.invoke(connection, method, args);
+            }
+            if ("prepareStatement".equals(method.getName()) && null != args && isInsert(args[0])) {
+                if (isGeneratedKeysRequested(args)) {
+                    PreparedStatement preparedStatement = (PreparedStatement) GeneratedKeysConnectionProxy.invoke(connection, method, args);
+                    return newProxy(preparedStatement, PreparedStatement.class, new StatementHandler(preparedStatement, true, true));
+                }
+                if (isForwardOnlyInsert(args)) {
+                    PreparedStatement preparedStatement = connection.prepareStatement((String) args[0], Statement.RETURN_GENERATED_KEYS);
+                    return newProxy(preparedStatement, PreparedStatement.class, new StatementHandler(preparedStatement, true, false));
+                }
+            }
+            if ("createStatement".equals(method.getName())) {
+                Statement statement = (Statement) GeneratedKeysConnectionProxy.invoke(connection, method, args);
+                return newProxy(statement, Statement.class, new StatementHandler(statement, false, false));
+            }
+            return GeneratedKeysConnectionProxy.invoke(connection, method, args);
+        }
+        
+        private boolean isForwardOnlyInsert(final Object[] args) throws SQLException {
+            if (1 == args.length) {
+                return true;
+            }
+            if (3 != args.length && 4 != args.length) {
+                return false;
+            }
+            return Integer.valueOf(ResultSet.TYPE_FORWARD_ONLY).equals(args[1]) && Integer.valueOf(ResultSet.CONCUR_READ_ONLY).equals(args[2])
+                && (3 == args.length || Integer.valueOf(connection.getHoldability()).equals(args[3]));
+        }
+    }
+    
+    @RequiredArgsConstructor
+    private static final class StatementHandler implements InvocationHandler {
+        
+        private final Statement statement;
+        
+        private final boolean returnGeneratedKeys;
+        
+        private final boolean generatedKeysRequested;
+        
+        private CachedRowSet cachedGeneratedKeys;
+        
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("getGeneratedKeys".equals(method.getName()) && null != cachedGeneratedKeys) {
+                return cachedGeneratedKeys.createShared();
+            }
+            if ("unwrap".equals(method.getName())) {
+                return unwrap(statement, method, args);
+            }
+            if (!method.getName().startsWith("execute")) {
+                return GeneratedKeysConnectionProxy.invoke(statement, method, args);
+            }
+            cachedGeneratedKeys = null;
+            if (returnGeneratedKeys && (null == args || 0 == args.length)) {
+                Object result = GeneratedKeysConnectionProxy.invoke(statement, method, args);
+                captureGeneratedKeys(generatedKeysRequested);
+                return result;
+            }
+            if (null != args && isInsert(args[0]) && !"executeQuery".equals(method.getName())) {
+                if (1 == args.length) {
+                    Method returnGeneratedKeysMethod = Statement.class.getMethod(method.getName(), String.class, int.class);
+                    Object result = GeneratedKeysConnectionProxy.invoke(statement, returnGeneratedKeysMethod, new Object[]{args[0], Statement.RETURN_GENERATED_KEYS});
+                    captureGeneratedKeys(false);
+                    return result;
+                }
+                if (isGeneratedKeysRequested(args)) {
+                    Object result = GeneratedKeysConnectionProxy.invoke(statement, method, args);
+                    captureGeneratedKeys(true);
+                    return result;
+                }
+            }
+            return GeneratedKeysConnectionProxy.invoke(statement, method, args);
+        }
+        
+        private void captureGeneratedKeys(final boolean cached) throws SQLException {
+            if (!GeneratedKeysHolder.isArmed()) {
+                return;
+            }
+            try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                if (null == resultSet) {
+                    return;
+                }
+                if (!cached) {
+                    addGeneratedKeys(resultSet);
+                    return;
+                }
+                CachedRowSet generatedKeys = RowSetProvider.newFactory().createCachedRowSet();
+                generatedKeys.populate(resultSet);
+                addGeneratedKeys(generatedKeys);
+                generatedKeys.beforeFirst();
+                cachedGeneratedKeys = generatedKeys;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.keygen;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Holder of keys generated by the statement executing in current thread.
+ *
+ * <p>
+ * Only statements executing between {@link #arm()} and {@link #poll()} are captured,
+ * the execution hook arms the holder before each route unit and polls it after success.
+ * </p>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class GeneratedKeysHolder {
+    
+    private static final ThreadLocal<List<Object>> GENERATED_KEYS = new ThreadLocal<>();
+    
+    private static final ThreadLocal<String> KEY_COLUMN_NAME = new ThreadLocal<>();
+    
+    /**
+     * Start capturing generated keys in current thread.
+     *
+     * @param keyColumnName name of generated key column
+     */
+    public static void arm(final String keyColumnName) {
+        KEY_COLUMN_NAME.set(keyColumnName);
+        GENERATED_KEYS.set(new LinkedList<>());
+    }
+    
+    /**
+     * Whether generated keys are capturing in current thread.
+     *
+     * @return capturing or not
+     */
+    public static boolean isArmed() {
+        return null != GENERATED_KEYS.get();
+    }
+    
+    /**
+     * Get name of generated key column in current thread.
+     *
+     * @return name of generated key column
+     */
+    public static String getKeyColumnName() {
+        return KEY_COLUMN_NAME.get();
+    }
+    
+    /**
+     * Add generated key.
+     *
+     * @param generatedKey generated key
+     */
+    public static void add(final Object generatedKey) {
+        List<Object> generatedKeys = GENERATED_KEYS.get();
+        if (null != generatedKeys) {
+            generatedKeys.add(generatedKey);
+        }
+    }
+    
+    /**
+     * Get captured generated keys and stop capturing.
+     *
+     * @return generated keys
+     */
+    public static List<Object> poll() {
+        List<Object> result = GENERATED_KEYS.get();
+        GENERATED_KEYS.remove();
+        KEY_COLUMN_NAME.remove();
+        return null == result ? Collections.emptyList() : result;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.metadata;
+
+import com.google.common.base.Optional;
+import org.apache.shardingsphere.core.route.type.RoutingUnit;
+import org.apache.shardingsphere.core.route.type.TableUnit;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Actual table names of routing result, keyed by data source name and logic table name.
+ */
+public final class ActualTableNames {
+    
+    private final Map<String, String> actualTableNames = new HashMap<>();
+    
+    public ActualTableNames(final Collection<RoutingUnit> routingUnits) {
+        for (RoutingUnit each : routingUnits) {
+            for (TableUnit tableUnit : each.getTableUnits()) {
+                String key = getKey(each.getDataSourceName(), tableUnit.getLogicTableName());
+                if (!actualTableNames.containsKey(key)) {
+                    actualTableNames.put(key, tableUnit.getActualTableName());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Find actual table name.
+     *
+     * @param dataSourceName data source name
+     * @param logicTableName logic table name
+     * @return actual table name
+     */
+    public Optional<String> find(final String dataSourceName, final String logicTableName) {
+        return Optional.fromNullable(actualTableNames.get(getKey(dataSourceName, logicTableName)));
+    }
+    
+    private String getKey(final String dataSourceName, final String logicTableName) {
+        return dataSourceName.toLowerCase() + "." + logicTableName.toLowerCase();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.metadata;
+
+import lombok.Getter;
+import org.apache.shardingsphere.core.metadata.column.ColumnMetaData;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Revert meta data of logic table.
+ *
+ * <p>
+ * Columns of approximate numeric types, such as {@code FLOAT} and {@code DOUBLE}, are inexact, arithmetic on them can not be inverted exactly.
+ * </p>
+ */
+@Getter
+public final class RevertTableMetaData {
+    
+    private static final Collection<String> INEXACT_DATA_TYPES = Arrays.asList("FLOAT", "DOUBLE", "REAL", "BINARY_FLOAT", "BINARY_DOUBLE");
+    
+    private final List<String> primaryKeyColumns;
+    
+    private final Collection<String> inexactColumns;
+    
+    public RevertTableMetaData(final TableMetaData tableMetaData) {
+        List<String> primaryKeyColumns = new ArrayList<>();
+        Collection<String> inexactColumns = new ArrayList<>();
+        for (ColumnMetaData each : tableMetaData.getColumns().values()) {
+            if (each.isPrimaryKey()) {
+                primaryKeyColumns.add(each.getName());
+            }
+            if (isInexact(each.getDataType())) {
+                inexactColumns.add(each.getName());
+            }
+        }
+        this.primaryKeyColumns = Collections.unmodifiableList(primaryKeyColumns);
+        this.inexactColumns = Collections.unmodifiableCollection(inexactColumns);
+    }
+    
+    private boolean isInexact(final String dataType) {
+        if (null == dataType) {
+            return false;
+        }
+        String upperCaseDataType = dataType.toUpperCase();
+        for (String each : INEXACT_DATA_TYPES) {
+            if (upperCaseDataType.startsWith(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.metadata;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+
+/**
+ * Revert table meta data cache.
+ *
+ * <p>
+ * Entries are keyed by identity of {@code TableMetaData}, refreshed table meta data gets a new entry
+ * and the stale one is collected with it.
+ * </p>
+ */
+public final class RevertTableMetaDataCache {
+    
+    private final LoadingCache<TableMetaData, RevertTableMetaData> cache = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<TableMetaData, RevertTableMetaData>() {
+        
+        @Override
+        public RevertTableMetaData load(final TableMetaData key) {
+            return new RevertTableMetaData(key);
+        }
+    });
+    
+    /**
+     * Get revert table meta data, build it if absent.
+     *
+     * @param tableMetaData table meta data
+     * @return revert table meta data
+     */
+    public RevertTableMetaData get(final TableMetaData tableMetaData) {
+        return cache.getUnchecked(tableMetaData);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.plan;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Revert SQL plan.
+ *
+ * <p>
+ * Holds everything derived from the statement shape only, so that it is built once per
+ * (logic SQL, actual table, statement type, table meta data) and later executions just bind parameters.
+ * </p>
+ */
+public final class RevertSQLPlan {
+    
+    private volatile String snapshotSQL;
+    
+    private volatile int[] snapshotParameterIndexes;
+    
+    private final ConcurrentMap<Integer, String> batchSnapshotSQLs = new ConcurrentHashMap<>();
+    
+    @Getter
+    private volatile String revertSQL;
+    
+    private volatile PlaceholderCount placeholderCount;
+    
+    /**
+     * Whether snapshot SQL was prepared or not.
+     *
+     * @return true or false
+     */
+    public boolean isSnapshotPrepared() {
+        return null != snapshotSQL;
+    }
+    
+    /**
+     * Prepare snapshot SQL.
+     *
+     * @param snapshotSQL snapshot query SQL
+     * @param snapshotParameterIndexes indexes of logic parameters used by snapshot query, null means all parameters
+     */
+    public void prepareSnapshot(final String snapshotSQL, final int[] snapshotParameterIndexes) {
+        this.snapshotParameterIndexes = snapshotParameterIndexes;
+        this.snapshotSQL = snapshotSQL;
+    }
+    
+    /**
+     * Get snapshot SQL.
+     *
+     * @return snapshot query SQL
+     */
+    public String getSnapshotSQL() {
+        return snapshotSQL;
+    }
+    
+    /**
+     * Bind snapshot parameters.
+     *
+     * @param parameters parameters of actual SQL
+     * @return snapshot query parameters
+     */
+    public Collection<Object> bindSnapshotParameters(final List<Object> parameters) {
+        int[] indexes = snapshotParameterIndexes;
+        if (null == indexes) {
+            return parameters;
+        }
+        Collection<Object> result = new ArrayList<>(indexes.length);
+        for (int each : indexes) {
+            result.add(parameters.get(each));
+        }
+        return result;
+    }
+    
+    /**
+     * Get batch snapshot SQL.
+     *
+     * @param conditionCount count of OR-ed where conditions
+     * @return batch snapshot query SQL, empty if where clause could not be batched, null if not prepared
+     */
+    public String getBatchSnapshotSQL(final int conditionCount) {
+        return batchSnapshotSQLs.get(conditionCount);
+    }
+    
+    /**
+     * Prepare batch snapshot SQL.
+     *
+     * @param conditionCount count of OR-ed where conditions
+     * @param batchSnapshotSQL batch snapshot query SQL, empty if where clause could not be batched
+     */
+    public void prepareBatchSnapshotSQL(final int conditionCount, final String batchSnapshotSQL) {
+        batchSnapshotSQLs.putIfAbsent(conditionCount, batchSnapshotSQL);
+    }
+    
+    /**
+     * Prepare revert SQL.
+     *
+     * @param revertSQL revert SQL
+     */
+    public void prepareRevertSQL(final String revertSQL) {
+        this.revertSQL = revertSQL;
+    }
+    
+    /**
+     * Get placeholder count of actual SQL.
+     *
+     * @param actualSQL actual SQL
+     * @return placeholder count
+     */
+    public int getPlaceholderCount(final String actualSQL) {
+        PlaceholderCount cached = placeholderCount;
+        if (null != cached && cached.actualSQL.equals(actualSQL)) {
+            return cached.count;
+        }
+        int result = countPlaceholder(actualSQL);
+        if (null == cached) {
+            placeholderCount = new PlaceholderCount(actualSQL, result);
+        }
+        return result;
+    }
+    
+    private int countPlaceholder(final String sql) {
+        int result = 0;
+        int currentIndex = 0;
+        while (-1 != (currentIndex = sql.indexOf("?", currentIndex))) {
+            result++;
+            currentIndex += 1;
+        }
+        return result;
+    }
+    
+    @RequiredArgsConstructor
+    private static final class PlaceholderCount {
+        
+        private final String actualSQL;
+        
+        private final int count;
+    }
+}
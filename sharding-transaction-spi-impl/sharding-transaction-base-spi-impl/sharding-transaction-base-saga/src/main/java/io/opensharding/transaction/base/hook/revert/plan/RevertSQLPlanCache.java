@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.plan;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.opensharding.transaction.base.hook.revert.metadata.RevertTableMetaData;
+import org.apache.shardingsphere.core.parse.sql.statement.SQLStatement;
+
+/**
+ * Bounded cache of revert SQL plans.
+ */
+public final class RevertSQLPlanCache {
+    
+    private final LoadingCache<RevertSQLPlanKey, RevertSQLPlan> cache;
+    
+    public RevertSQLPlanCache(final int maximumSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build(new CacheLoader<RevertSQLPlanKey, RevertSQLPlan>() {
+            
+            @Override
+            public RevertSQLPlan load(final RevertSQLPlanKey key) {
+                return new RevertSQLPlan();
+            }
+        });
+    }
+    
+    /**
+     * Get revert SQL plan, create an empty one if absent.
+     *
+     * @param logicSQL logic SQL
+     * @param actualTableName actual table name
+     * @param sqlStatement SQL statement
+     * @param tableMetaData revert table meta data
+     * @return revert SQL plan
+     */
+    public RevertSQLPlan getRevertSQLPlan(final String logicSQL, final String actualTableName, final SQLStatement sqlStatement, final RevertTableMetaData tableMetaData) {
+        return cache.getUnchecked(new RevertSQLPlanKey(logicSQL, actualTableName, sqlStatement.getClass(), tableMetaData));
+    }
+    
+    /**
+     * Get size of cached plans.
+     *
+     * @return size
+     */
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.plan;
+
+import io.opensharding.transaction.base.hook.revert.metadata.RevertTableMetaData;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.shardingsphere.core.parse.sql.statement.SQLStatement;
+
+/**
+ * Revert SQL plan key.
+ *
+ * <p>
+ * Revert table meta data is compared by identity, it is rebuilt when table meta data is refreshed,
+ * so plans built on the old schema are never matched again.
+ * </p>
+ */
+@RequiredArgsConstructor
+@Getter
+@EqualsAndHashCode
+public final class RevertSQLPlanKey {
+    
+    private final String logicSQL;
+    
+    private final String actualTableName;
+    
+    private final Class<? extends SQLStatement> statementType;
+    
+    private final RevertTableMetaData tableMetaData;
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.setbased;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Dialect limits of set based revert statements.
+ */
+@RequiredArgsConstructor
+@Getter
+public enum RevertDialect {
+    
+    MYSQL(65535, Integer.MAX_VALUE, true),
+    
+    POSTGRESQL(32767, Integer.MAX_VALUE, true),
+    
+    ORACLE(65535, 1000, false),
+    
+    SQLSERVER(2000, 1000, true),
+    
+    H2(32767, Integer.MAX_VALUE, true),
+    
+    OTHER(2000, 1000, true);
+    
+    private final int maxParameters;
+    
+    private final int maxRows;
+    
+    private final boolean multiRowValuesSupported;
+    
+    /**
+     * Get revert dialect of database product.
+     *
+     * @param databaseProductName database product name from JDBC meta data
+     * @return revert dialect
+     */
+    public static RevertDialect of(final String databaseProductName) {
+        String productName = null == databaseProductName ? "" : databaseProductName.toLowerCase();
+        if (productName.contains("mysql") || productName.contains("mariadb")) {
+            return MYSQL;
+        }
+        if (productName.contains("postgresql")) {
+            return POSTGRESQL;
+        }
+        if (productName.contains("oracle")) {
+            return ORACLE;
+        }
+        if (productName.contains("sql server")) {
+            return SQLSERVER;
+        }
+        if (productName.startsWith("h2")) {
+            return H2;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.setbased;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shape of revert SQL, which lets compensation collapse per-row parameters into set based statements.
+ *
+ * <p>
+ * Layout of each revert parameter row:
+ * delete by keys: key values; insert rows: all column values; update by keys: assigned values followed by key values.
+ * </p>
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public final class SetBasedRevert {
+    
+    private final SetBasedRevertType type;
+    
+    private final String tableName;
+    
+    private final List<String> assignedColumns;
+    
+    private final List<String> keyColumns;
+    
+    private final int columnCount;
+    
+    /**
+     * Create revert which deletes rows by keys.
+     *
+     * @param tableName actual table name
+     * @param keyColumns key columns
+     * @return set based revert
+     */
+    public static SetBasedRevert deleteByKeys(final String tableName, final List<String> keyColumns) {
+        return new SetBasedRevert(SetBasedRevertType.DELETE_BY_KEYS, tableName, Collections.<String>emptyList(), keyColumns, keyColumns.size());
+    }
+    
+    /**
+     * Create revert which inserts rows.
+     *
+     * @param tableName actual table name
+     * @param columnCount column count of each row
+     * @return set based revert
+     */
+    public static SetBasedRevert insertRows(final String tableName, final int columnCount) {
+        return new SetBasedRevert(SetBasedRevertType.INSERT_ROWS, tableName, Collections.<String>emptyList(), Collections.<String>emptyList(), columnCount);
+    }
+    
+    /**
+     * Create revert which updates rows by keys.
+     *
+     * @param tableName actual table name
+     * @param assignedColumns assigned columns
+     * @param keyColumns key columns
+     * @return set based revert
+     */
+    public static SetBasedRevert updateByKeys(final String tableName, final List<String> assignedColumns, final List<String> keyColumns) {
+        return new SetBasedRevert(SetBasedRevertType.UPDATE_BY_KEYS, tableName, assignedColumns, keyColumns, assignedColumns.size() + keyColumns.size());
+    }
+}
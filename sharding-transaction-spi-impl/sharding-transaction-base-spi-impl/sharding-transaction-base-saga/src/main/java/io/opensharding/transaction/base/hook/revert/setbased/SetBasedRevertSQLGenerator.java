@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.setbased;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set based revert SQL generator.
+ *
+ * <p>
+ * Collapses per-row revert parameters into chunked statements:
+ * {@code DELETE ... WHERE pk IN (...)}, multi-row {@code INSERT ... VALUES (...), (...)} and {@code CASE} based {@code UPDATE}.
+ * Rows of one chunk never exceed configured chunk size or parameter and row limits of dialect.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class SetBasedRevertSQLGenerator {
+    
+    private final RevertDialect dialect;
+    
+    private final int chunkSize;
+    
+    /**
+     * Generate set based revert SQL lazily, parameters are consumed chunk by chunk.
+     *
+     * @param revert set based revert
+     * @param parameters revert parameters, one collection per row
+     * @return set based revert SQL chunks
+     */
+    public Iterable<SetBasedRevertSQL> generate(final SetBasedRevert revert, final Iterable<Collection<Object>> parameters) {
+        return Iterables.transform(Iterables.partition(parameters, getChunkRows(revert)), new Function<List<Collection<Object>>, SetBasedRevertSQL>() {
+            
+            @Override
+            public SetBasedRevertSQL apply(final List<Collection<Object>> input) {
+                return generateChunk(revert, input);
+            }
+        });
+    }
+    
+    /**
+     * Get max rows of one chunk.
+     *
+     * @param revert set based revert
+     * @return max rows of one chunk
+     */
+    public int getChunkRows(final SetBasedRevert revert) {
+        int parametersPerRow = getParametersPerRow(revert);
+        int result = Math.min(chunkSize, dialect.getMaxRows());
+        if (0 < parametersPerRow) {
+            result = Math.min(result, dialect.getMaxParameters() / parametersPerRow);
+        }
+        return Math.max(1, result);
+    }
+    
+    private int getParametersPerRow(final SetBasedRevert revert) {
+        switch (revert.getType()) {
+            case UPDATE_BY_KEYS:
+                return revert.getAssignedColumns().size() * (revert.getKeyColumns().size() + 1) + revert.getKeyColumns().size();
+            default:
+                return revert.getColumnCount();
+        }
+    }
+    
+    private SetBasedRevertSQL generateChunk(final SetBasedRevert revert, final List<Collection<Object>> rows) {
+        List<List<Object>> rowValues = new ArrayList<>(rows.size());
+        for (Collection<Object> each : rows) {
+            rowValues.add(new ArrayList<>(each));
+        }
+        switch (revert.getType()) {
+            case DELETE_BY_KEYS:
+                return generateDelete(revert, rowValues);
+            case INSERT_ROWS:
+                return generateInsert(revert, rowValues);
+            default:
+                return generateUpdate(revert, rowValues);
+        }
+    }
+    
+    private SetBasedRevertSQL generateDelete(final SetBasedRevert revert, final List<List<Object>> rows) {
+        StringBuilder sql = new StringBuilder("DELETE FROM ").append(revert.getTableName()).append(" WHERE ");
+        appendKeySet(sql, revert.getKeyColumns(), rows.size());
+        List<Object> parameters = new ArrayList<>(rows.size() * revert.getColumnCount());
+        for (List<Object> each : rows) {
+            parameters.addAll(each);
+        }
+        return new SetBasedRevertSQL(sql.toString(), parameters);
+    }
+    
+    private SetBasedRevertSQL generateInsert(final SetBasedRevert revert, final List<List<Object>> rows) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> parameters = new ArrayList<>(rows.size() * revert.getColumnCount());
+        if (dialect.isMultiRowValuesSupported()) {
+            sql.append("INSERT INTO ").append(revert.getTableName()).append(" VALUES ");
+            for (int i = 0; i < rows.size(); i++) {
+                sql.append(0 == i ? "" : ", ");
+                appendValues(sql, revert.getColumnCount());
+            }
+        } else {
+            sql.append("INSERT ALL");
+            for (int i = 0; i < rows.size(); i++) {
+                sql.append(" INTO ").append(revert.getTableName()).append(" VALUES ");
+                appendValues(sql, revert.getColumnCount());
+            }
+            sql.append(" SELECT 1 FROM DUAL");
+        }
+        for (List<Object> each : rows) {
+            parameters.addAll(each);
+        }
+        return new SetBasedRevertSQL(sql.toString(), parameters);
+    }
+    
+    private SetBasedRevertSQL generateUpdate(final SetBasedRevert revert, final List<List<Object>> rows) {
+        int assignedCount = revert.getAssignedColumns().size();
+        int keyCount = revert.getKeyColumns().size();
+        StringBuilder sql = new StringBuilder("UPDATE ").append(revert.getTableName()).append(" SET ");
+        List<Object> parameters = new ArrayList<>(rows.size() * getParametersPerRow(revert));
+        boolean firstAssignment = true;
+        for (int each : getAssignmentOrder(revert)) {
+            String column = revert.getAssignedColumns().get(each);
+            sql.append(firstAssignment ? "" : ", ").append(column).append(" = CASE");
+            firstAssignment = false;
+            for (List<Object> row : rows) {
+                sql.append(" WHEN ");
+                appendKeyCondition(sql, revert.getKeyColumns());
+                sql.append(" THEN ?");
+                parameters.addAll(row.subList(assignedCount, assignedCount + keyCount));
+                parameters.add(row.get(each));
+            }
+            sql.append(" ELSE ").append(column).append(" END");
+        }
+        sql.append(" WHERE ");
+        appendKeySet(sql, revert.getKeyColumns(), rows.size());
+        for (List<Object> each : rows) {
+            parameters.addAll(each.subList(assignedCount, assignedCount + keyCount));
+        }
+        return new SetBasedRevertSQL(sql.toString(), parameters);
+    }
+    
+    /*
+     * MySQL evaluates single table assignments from left to right, so key columns are assigned last
+     * to keep CASE conditions of other columns matching original keys.
+     */
+    private List<Integer> getAssignmentOrder(final SetBasedRevert revert) {
+        List<Integer> result = new ArrayList<>(revert.getAssignedColumns().size());
+        List<Integer> keyAssignments = new ArrayList<>(revert.getKeyColumns().size());
+        for (int i = 0; i < revert.getAssignedColumns().size(); i++) {
+            if (containsIgnoreCase(revert.getKeyColumns(), revert.getAssignedColumns().get(i))) {
+                keyAssignments.add(i);
+            } else {
+                result.add(i);
+            }
+        }
+        result.addAll(keyAssignments);
+        return result;
+    }
+    
+    private boolean containsIgnoreCase(final List<String> columns, final String column) {
+        for (String each : columns) {
+            if (each.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void appendKeySet(final StringBuilder sql, final List<String> keyColumns, final int rowCount) {
+        if (1 == keyColumns.size()) {
+            sql.append(keyColumns.get(0)).append(" IN (");
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(0 == i ? "?" : ", ?");
+            }
+            sql.append(")");
+            return;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(0 == i ? "(" : " OR (");
+            appendKeyCondition(sql, keyColumns);
+            sql.append(")");
+        }
+    }
+    
+    private void appendKeyCondition(final StringBuilder sql, final List<String> keyColumns) {
+        for (int i = 0; i < keyColumns.size(); i++) {
+            sql.append(0 == i ? "" : " AND ").append(keyColumns.get(i)).append(" = ?");
+        }
+    }
+    
+    private void appendValues(final StringBuilder sql, final int columnCount) {
+        sql.append("(");
+        for (int i = 0; i < columnCount; i++) {
+            sql.append(0 == i ? "?" : ",?");
+        }
+        sql.append(")");
+    }
+}
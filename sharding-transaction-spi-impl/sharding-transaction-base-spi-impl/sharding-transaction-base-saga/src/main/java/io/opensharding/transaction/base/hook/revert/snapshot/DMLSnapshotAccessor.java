@@ -17,16 +17,29 @@
 
 package io.opensharding.transaction.base.hook.revert.snapshot;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import io.opensharding.transaction.base.hook.revert.GenericSQLBuilder;
 import io.opensharding.transaction.base.hook.revert.constant.DefaultKeyword;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
 import io.opensharding.transaction.base.utils.JDBCUtil;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * DML snapshot data accessor.
@@ -36,18 +49,170 @@ import java.util.Map;
 @RequiredArgsConstructor
 public abstract class DMLSnapshotAccessor implements SnapshotAccessor {
     
-    private GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
+    private static final int MAX_BATCH_CONDITIONS = 500;
     
     @Getter
     private final SQLRevertExecutorContext executorContext;
     
     @Override
-    public final List<Map<String, Object>> queryUndoData() throws SQLException {
-        SnapshotSQLContext context = getSnapshotSQLContext(executorContext);
-        return JDBCUtil.executeQuery(context.getConnection(), buildSnapshotQuerySQL(context), context.getParameters());
+    public final UndoData queryUndoData() throws SQLException {
+        if (1 < executorContext.getBatchSize()) {
+            Optional<UndoData> result = queryBatchUndoData(executorContext.getBatchSize());
+            if (result.isPresent()) {
+                return result.get();
+            }
+        }
+        RevertSQLPlan revertSQLPlan = executorContext.getRevertSQLPlan();
+        if (!revertSQLPlan.isSnapshotPrepared()) {
+            revertSQLPlan.prepareSnapshot(buildSnapshotQuerySQL(getSnapshotSQLContext(executorContext)), getSnapshotParameterIndexes(executorContext));
+        }
+        return executeSnapshotQuery(revertSQLPlan.getSnapshotSQL(), revertSQLPlan.bindSnapshotParameters(executorContext.getParameters()), null, null);
+    }
+    
+    private Optional<UndoData> queryBatchUndoData(final int batchSize) throws SQLException {
+        int[] parameterIndexes = getSnapshotParameterIndexes(executorContext);
+        List<List<Object>> batchParameters = Lists.partition(executorContext.getParameters(), executorContext.getParameters().size() / batchSize);
+        UndoData result = null;
+        Set<List<Object>> loadedRows = new HashSet<>();
+        for (List<List<Object>> each : Lists.partition(batchParameters, MAX_BATCH_CONDITIONS)) {
+            String batchSnapshotSQL = getBatchSnapshotSQL(each.size());
+            if (batchSnapshotSQL.isEmpty()) {
+                return Optional.absent();
+            }
+            result = executeSnapshotQuery(batchSnapshotSQL, getBatchSnapshotParameters(each, parameterIndexes), result, loadedRows);
+        }
+        return Optional.fromNullable(result);
+    }
+    
+    private String getBatchSnapshotSQL(final int conditionCount) {
+        RevertSQLPlan revertSQLPlan = executorContext.getRevertSQLPlan();
+        String result = revertSQLPlan.getBatchSnapshotSQL(conditionCount);
+        if (null == result) {
+            result = buildBatchSnapshotQuerySQL(getSnapshotSQLContext(executorContext), conditionCount);
+            revertSQLPlan.prepareBatchSnapshotSQL(conditionCount, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Get condition of where clause.
+     *
+     * @param whereClause where clause
+     * @return condition without leading where keyword, empty if where clause is absent
+     */
+    protected final String getCondition(final String whereClause) {
+        String result = whereClause.trim();
+        if (result.length() <= 5 || !DefaultKeyword.WHERE.equalsIgnoreCase(result.substring(0, 5)) || !Character.isWhitespace(result.charAt(5))) {
+            return "";
+        }
+        return result.substring(5).trim();
+    }
+    
+    private Collection<Object> getBatchSnapshotParameters(final List<List<Object>> batchParameters, final int[] parameterIndexes) {
+        Collection<Object> result = new LinkedList<>();
+        for (List<Object> each : batchParameters) {
+            if (null == parameterIndexes) {
+                result.addAll(each);
+                continue;
+            }
+            for (int index : parameterIndexes) {
+                result.add(each.get(index));
+            }
+        }
+        return result;
+    }
+    
+    private UndoData executeSnapshotQuery(final String sql, final Collection<Object> parameters, final UndoData undoData, final Set<List<Object>> loadedRows) throws SQLException {
+        UndoData result = undoData;
+        try (PreparedStatement preparedStatement = executorContext.getConnection().prepareStatement(sql)) {
+            if (0 < executorContext.getSnapshotFetchSize()) {
+                preparedStatement.setFetchSize(executorContext.getSnapshotFetchSize());
+            }
+            JDBCUtil.fillParameters(preparedStatement, parameters);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<String> columnNames = getColumnNames(resultSet.getMetaData());
+                if (null == result) {
+                    result = new UndoData(executorContext.getUndoDataBudget(), columnNames);
+                }
+                int[] primaryKeyIndexes = null == loadedRows ? null : getPrimaryKeyIndexes(columnNames);
+                while (resultSet.next()) {
+                    Object[] values = new Object[columnNames.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = getColumnValue(resultSet, i + 1);
+                    }
+                    if (null == loadedRows || loadedRows.add(getRowKey(values, primaryKeyIndexes))) {
+                        result.add(values);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    private int[] getPrimaryKeyIndexes(final List<String> columnNames) {
+        List<String> primaryKeyColumns = executorContext.getPrimaryKeyColumns();
+        int[] result = new int[primaryKeyColumns.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = -1;
+            for (int j = 0; j < columnNames.size(); j++) {
+                if (columnNames.get(j).equalsIgnoreCase(primaryKeyColumns.get(i))) {
+                    result[i] = j;
+                    break;
+                }
+            }
+            if (-1 == result[i]) {
+                return null;
+            }
+        }
+        return 0 == result.length ? null : result;
+    }
+    
+    private List<Object> getRowKey(final Object[] values, final int[] primaryKeyIndexes) {
+        if (null == primaryKeyIndexes) {
+            return Arrays.asList(values);
+        }
+        List<Object> result = new ArrayList<>(primaryKeyIndexes.length);
+        for (int each : primaryKeyIndexes) {
+            result.add(values[each]);
+        }
+        return result;
+    }
+    
+    private List<String> getColumnNames(final ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> result = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            result.add(metaData.getColumnName(i));
+        }
+        return result;
+    }
+    
+    private Object getColumnValue(final ResultSet resultSet, final int columnIndex) throws SQLException {
+        Object result = resultSet.getObject(columnIndex);
+        if (result instanceof Clob) {
+            return ((Clob) result).getSubString(1, (int) ((Clob) result).length());
+        }
+        if (result instanceof Blob) {
+            return ((Blob) result).getBytes(1, (int) ((Blob) result).length());
+        }
+        return result;
+    }
+    
+    private String buildBatchSnapshotQuerySQL(final SnapshotSQLContext context, final int conditionCount) {
+        String condition = getCondition(context.getWhereClause());
+        if (condition.isEmpty()) {
+            return "";
+        }
+        StringBuilder whereClause = new StringBuilder(DefaultKeyword.WHERE);
+        for (int i = 0; i < conditionCount; i++) {
+            whereClause.append(0 == i ? " (" : " OR (").append(condition).append(")");
+        }
+        return buildSnapshotQuerySQL(new SnapshotSQLContext(context.getConnection(), context.getTableName(), context.getParameters(),
+            context.getQueryColumnNames(), context.getTableAlias(), whereClause.toString()));
     }
     
     private String buildSnapshotQuerySQL(final SnapshotSQLContext context) {
+        GenericSQLBuilder sqlBuilder = new GenericSQLBuilder();
         sqlBuilder.appendLiterals(DefaultKeyword.SELECT);
         sqlBuilder.appendColumns(context.getQueryColumnNames());
         sqlBuilder.appendLiterals(DefaultKeyword.FROM);
@@ -58,4 +223,12 @@ public abstract class DMLSnapshotAccessor implements SnapshotAccessor {
     }
     
     protected abstract SnapshotSQLContext getSnapshotSQLContext(SQLRevertExecutorContext context);
+    
+    /**
+     * Get indexes of actual SQL parameters which snapshot query binds.
+     *
+     * @param context SQL revert executor context
+     * @return parameter indexes, null means binding all parameters
+     */
+    protected abstract int[] getSnapshotParameterIndexes(SQLRevertExecutorContext context);
 }
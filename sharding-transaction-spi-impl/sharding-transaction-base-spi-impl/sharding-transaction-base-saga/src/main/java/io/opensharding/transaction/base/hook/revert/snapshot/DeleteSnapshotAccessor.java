@@ -44,6 +44,11 @@ public final class DeleteSnapshotAccessor extends DMLSnapshotAccessor {
         return new SnapshotSQLContext(context.getConnection(), context.getActualTableName(), context.getParameters(), getQueryColumnNames(), "", getWhereClause());
     }
     
+    @Override
+    protected int[] getSnapshotParameterIndexes(final SQLRevertExecutorContext context) {
+        return null;
+    }
+    
     private Collection<String> getQueryColumnNames() {
         return Collections.singleton("*");
     }
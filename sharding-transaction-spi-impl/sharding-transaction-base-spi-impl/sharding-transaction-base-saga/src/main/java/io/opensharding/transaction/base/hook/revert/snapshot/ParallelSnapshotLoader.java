@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.apache.shardingsphere.core.execute.ShardingThreadFactoryBuilder;
+import org.apache.shardingsphere.core.route.RouteUnit;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel snapshot loader.
+ *
+ * <p>
+ * Snapshots of route units in different data sources are queried concurrently.
+ * Route units of the same data source share one cached connection, so they are queried serially in one task.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class ParallelSnapshotLoader {
+    
+    private final ExecutorService executorService;
+    
+    public ParallelSnapshotLoader(final int executorSize) {
+        this(createExecutorService(executorSize));
+    }
+    
+    private static ExecutorService createExecutorService(final int executorSize) {
+        ExecutorService result = Executors.newFixedThreadPool(executorSize, ShardingThreadFactoryBuilder.build("Saga-Snapshot-%d"));
+        MoreExecutors.addDelayedShutdownHook(result, 60, TimeUnit.SECONDS);
+        return result;
+    }
+    
+    /**
+     * Load SQL revert executors of route units, return after all snapshots were queried.
+     *
+     * @param contexts SQL revert executor contexts
+     * @return SQL revert executors of route units
+     */
+    @SneakyThrows
+    public Map<RouteUnit, SQLRevertExecutor> load(final Collection<SQLRevertExecutorContext> contexts) {
+        if (contexts.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<RouteUnit, SQLRevertExecutor> result = new ConcurrentHashMap<>(contexts.size(), 1);
+        Iterator<List<SQLRevertExecutorContext>> groups = groupByDataSource(contexts).values().iterator();
+        List<SQLRevertExecutorContext> firstGroup = groups.next();
+        List<Future<Void>> futures = new LinkedList<>();
+        while (groups.hasNext()) {
+            futures.add(executorService.submit(createLoadTask(groups.next(), result)));
+        }
+        Throwable cause = null;
+        try {
+            loadSerially(firstGroup, result);
+            // CHECKSTYLE:OFF
+        } catch (final Exception ex) {
+            // CHECKSTYLE:ON
+            cause = ex;
+        }
+        for (Future<Void> each : futures) {
+            try {
+                each.get();
+            } catch (final ExecutionException ex) {
+                cause = null == cause ? ex.getCause() : cause;
+            }
+        }
+        if (null != cause) {
+            throw cause;
+        }
+        return result;
+    }
+    
+    private Map<String, List<SQLRevertExecutorContext>> groupByDataSource(final Collection<SQLRevertExecutorContext> contexts) {
+        Map<String, List<SQLRevertExecutorContext>> result = new LinkedHashMap<>();
+        for (SQLRevertExecutorContext each : contexts) {
+            if (!result.containsKey(each.getDataSourceName())) {
+                result.put(each.getDataSourceName(), new LinkedList<SQLRevertExecutorContext>());
+            }
+            result.get(each.getDataSourceName()).add(each);
+        }
+        return result;
+    }
+    
+    private Callable<Void> createLoadTask(final List<SQLRevertExecutorContext> contexts, final Map<RouteUnit, SQLRevertExecutor> result) {
+        return new Callable<Void>() {
+            
+            @Override
+            public Void call() {
+                loadSerially(contexts, result);
+                return null;
+            }
+        };
+    }
+    
+    private void loadSerially(final List<SQLRevertExecutorContext> contexts, final Map<RouteUnit, SQLRevertExecutor> result) {
+        for (SQLRevertExecutorContext each : contexts) {
+            result.put(each.getRouteUnit(), SQLRevertExecutorFactory.newInstance(each));
+        }
+    }
+}
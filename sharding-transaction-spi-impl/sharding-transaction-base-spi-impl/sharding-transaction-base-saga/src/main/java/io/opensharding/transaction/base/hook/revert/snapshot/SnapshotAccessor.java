@@ -18,8 +18,6 @@
 package io.opensharding.transaction.base.hook.revert.snapshot;
 
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Map;
 
 /**
  * Snapshot data accessor.
@@ -31,8 +29,8 @@ public interface SnapshotAccessor {
     /**
      * Query undo snapshot data from database.
      *
-     * @return Collection
+     * @return undo data
      *  @throws SQLException SQL exception
      */
-    List<Map<String, Object>> queryUndoData() throws SQLException;
+    UndoData queryUndoData() throws SQLException;
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Column storage of undo data.
+ *
+ * <p>
+ * Integer, long and double columns are kept in primitive arrays, the column falls back to boxed values
+ * once a value of another type shows up.
+ * </p>
+ */
+final class UndoColumn {
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final BitSet nullFlags = new BitSet();
+    
+    private ColumnType columnType = ColumnType.UNKNOWN;
+    
+    private int capacity;
+    
+    private int size;
+    
+    private int[] intValues;
+    
+    private long[] longValues;
+    
+    private double[] doubleValues;
+    
+    private Object[] objectValues;
+    
+    /**
+     * Estimate retained bytes of value.
+     *
+     * @param value value
+     * @return estimated bytes
+     */
+    static long estimateSize(final Object value) {
+        if (null == value) {
+            return 0;
+        }
+        switch (ColumnType.of(value)) {
+            case INT:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                return 8 + estimateObjectSize(value);
+        }
+    }
+    
+    private static long estimateObjectSize(final Object value) {
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof BigDecimal) {
+            return 64;
+        }
+        return 24;
+    }
+    
+    void add(final Object value) {
+        ensureCapacity();
+        if (null == value) {
+            nullFlags.set(size++);
+            return;
+        }
+        ColumnType valueType = ColumnType.of(value);
+        if (ColumnType.UNKNOWN == columnType) {
+            columnType = valueType;
+            allocate();
+        } else if (ColumnType.OBJECT != columnType && valueType != columnType) {
+            convertToObjects();
+        }
+        switch (columnType) {
+            case INT:
+                intValues[size++] = (Integer) value;
+                break;
+            case LONG:
+                longValues[size++] = (Long) value;
+                break;
+            case DOUBLE:
+                doubleValues[size++] = (Double) value;
+                break;
+            default:
+                objectValues[size++] = value;
+        }
+    }
+    
+    Object get(final int index) {
+        if (nullFlags.get(index)) {
+            return null;
+        }
+        switch (columnType) {
+            case INT:
+                return intValues[index];
+            case LONG:
+                return longValues[index];
+            case DOUBLE:
+                return doubleValues[index];
+            case OBJECT:
+                return objectValues[index];
+            default:
+                return null;
+        }
+    }
+    
+    private void ensureCapacity() {
+        if (size < capacity) {
+            return;
+        }
+        capacity = Math.max(INITIAL_CAPACITY, capacity * 2);
+        switch (columnType) {
+            case INT:
+                intValues = Arrays.copyOf(intValues, capacity);
+                break;
+            case LONG:
+                longValues = Arrays.copyOf(longValues, capacity);
+                break;
+            case DOUBLE:
+                doubleValues = Arrays.copyOf(doubleValues, capacity);
+                break;
+            case OBJECT:
+                objectValues = Arrays.copyOf(objectValues, capacity);
+                break;
+            default:
+        }
+    }
+    
+    private void allocate() {
+        switch (columnType) {
+            case INT:
+                intValues = new int[capacity];
+                break;
+            case LONG:
+                longValues = new long[capacity];
+                break;
+            case DOUBLE:
+                doubleValues = new double[capacity];
+                break;
+            default:
+                objectValues = new Object[capacity];
+        }
+    }
+    
+    private void convertToObjects() {
+        Object[] values = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            values[i] = get(i);
+        }
+        intValues = null;
+        longValues = null;
+        doubleValues = null;
+        objectValues = values;
+        columnType = ColumnType.OBJECT;
+    }
+    
+    private enum ColumnType {
+        
+        UNKNOWN, INT, LONG, DOUBLE, OBJECT;
+        
+        private static ColumnType of(final Object value) {
+            if (value instanceof Integer) {
+                return INT;
+            }
+            if (value instanceof Long) {
+                return LONG;
+            }
+            if (value instanceof Double) {
+                return DOUBLE;
+            }
+            return OBJECT;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Undo data of snapshot.
+ *
+ * <p>
+ * Rows share one schema and are kept column by column while the transaction budget allows, later rows are spilled to a temp file.
+ * Iteration replays buffered rows first and spilled rows afterwards, keeping the query order.
+ * </p>
+ */
+public final class UndoData implements Iterable<UndoRecord> {
+    
+    private static final int ROW_OVERHEAD_BYTES = 8;
+    
+    private final UndoDataBudget undoDataBudget;
+    
+    @Getter
+    private final UndoSchema schema;
+    
+    private final UndoColumn[] columns;
+    
+    private int bufferedSize;
+    
+    private UndoDataSpillFile spillFile;
+    
+    private int size;
+    
+    public UndoData(final UndoDataBudget undoDataBudget, final List<String> columnNames) {
+        this.undoDataBudget = undoDataBudget;
+        schema = new UndoSchema(columnNames);
+        columns = new UndoColumn[columnNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new UndoColumn();
+        }
+    }
+    
+    /**
+     * Add undo row.
+     *
+     * @param values values of undo row in schema order
+     */
+    public void add(final Object... values) {
+        Preconditions.checkArgument(values.length == columns.length, "Undo row has %s values, but schema has %s columns", values.length, columns.length);
+        size++;
+        if (null == spillFile && undoDataBudget.tryAcquire(estimateSize(values))) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(values[i]);
+            }
+            bufferedSize++;
+            return;
+        }
+        if (null == spillFile) {
+            spillFile = undoDataBudget.createSpillFile();
+        }
+        spillFile.write(values);
+    }
+    
+    private long estimateSize(final Object[] values) {
+        long result = ROW_OVERHEAD_BYTES;
+        for (Object each : values) {
+            result += UndoColumn.estimateSize(each);
+        }
+        return result;
+    }
+    
+    /**
+     * Get column names.
+     *
+     * @return column names
+     */
+    public List<String> getColumnNames() {
+        return schema.getColumnNames();
+    }
+    
+    /**
+     * Get size of undo rows.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Whether undo data is empty or not.
+     *
+     * @return true or false
+     */
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+    
+    /**
+     * Whether undo rows were spilled to file or not.
+     *
+     * @return true or false
+     */
+    public boolean isSpilled() {
+        return null != spillFile;
+    }
+    
+    @Override
+    public Iterator<UndoRecord> iterator() {
+        Iterator<UndoRecord> bufferedRecords = new BufferedRecordIterator();
+        if (null == spillFile) {
+            return bufferedRecords;
+        }
+        return Iterators.concat(bufferedRecords, Iterators.transform(spillFile.iterator(), new Function<Object[], UndoRecord>() {
+            
+            @Override
+            public UndoRecord apply(final Object[] input) {
+                return new UndoRecord(schema, input);
+            }
+        }));
+    }
+    
+    private final class BufferedRecordIterator implements Iterator<UndoRecord> {
+        
+        private int rowIndex;
+        
+        @Override
+        public boolean hasNext() {
+            return rowIndex < bufferedSize;
+        }
+        
+        @Override
+        public UndoRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i].get(rowIndex);
+            }
+            rowIndex++;
+            return new UndoRecord(schema, values);
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory budget of undo data in one sharding SQL transaction.
+ *
+ * <p>
+ * Undo rows are buffered in memory until the budget is exhausted, then spilled to temp files.
+ * Spilled files live until the transaction is released.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class UndoDataBudget {
+    
+    private final long maxBytes;
+    
+    private final AtomicLong usedBytes = new AtomicLong();
+    
+    private final Collection<UndoDataSpillFile> spillFiles = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * Try to acquire memory of undo data.
+     *
+     * @param bytes estimated bytes
+     * @return acquired or not
+     */
+    public boolean tryAcquire(final long bytes) {
+        while (true) {
+            long current = usedBytes.get();
+            if (current + bytes > maxBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Get used bytes.
+     *
+     * @return used bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    /**
+     * Create spill file.
+     *
+     * @return spill file
+     */
+    public UndoDataSpillFile createSpillFile() {
+        UndoDataSpillFile result = new UndoDataSpillFile();
+        spillFiles.add(result);
+        return result;
+    }
+    
+    /**
+     * Release memory and delete spilled files.
+     */
+    public void release() {
+        for (UndoDataSpillFile each : spillFiles) {
+            each.delete();
+        }
+        spillFiles.clear();
+        usedBytes.set(0);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import com.google.common.base.Preconditions;
+import io.opensharding.transaction.base.utils.SagaParameterCodec;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Temp file of spilled undo rows.
+ *
+ * <p>
+ * Rows are appended sequentially while the snapshot is streamed, and replayed through memory mapped windows.
+ * Values are written by {@link SagaParameterCodec} rather than java serialization, so values of driver types which are not serializable could be spilled too.
+ * </p>
+ */
+public final class UndoDataSpillFile {
+    
+    private static final int NULL_LENGTH = -1;
+    
+    private static final long MAPPED_WINDOW_BYTES = 64L * 1024 * 1024;
+    
+    @Getter
+    private final File file;
+    
+    private DataOutputStream outputStream;
+    
+    @Getter
+    private int rowCount;
+    
+    @SneakyThrows
+    public UndoDataSpillFile() {
+        file = File.createTempFile("saga-undo-", ".data");
+        outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+    
+    /**
+     * Append undo row.
+     *
+     * @param values values of undo row
+     */
+    @SneakyThrows
+    public synchronized void write(final Object[] values) {
+        Preconditions.checkState(null != outputStream, "Spill file `%s` was closed for writing", file);
+        outputStream.writeInt(values.length);
+        for (Object each : values) {
+            String encoded = SagaParameterCodec.encode(each);
+            if (null == encoded) {
+                outputStream.writeInt(NULL_LENGTH);
+            } else {
+                byte[] bytes = encoded.getBytes(StandardCharsets.UTF_8);
+                outputStream.writeInt(bytes.length);
+                outputStream.write(bytes);
+            }
+        }
+        rowCount++;
+    }
+    
+    /**
+     * Replay undo rows.
+     *
+     * @return iterator of undo rows
+     */
+    public Iterator<Object[]> iterator() {
+        closeWriting();
+        return new SpilledRowIterator(rowCount);
+    }
+    
+    /**
+     * Delete spill file.
+     */
+    public void delete() {
+        closeWriting();
+        file.delete();
+    }
+    
+    @SneakyThrows
+    private synchronized void closeWriting() {
+        if (null != outputStream) {
+            outputStream.close();
+            outputStream = null;
+        }
+    }
+    
+    private final class SpilledRowIterator implements Iterator<Object[]> {
+        
+        private final int rowCount;
+        
+        private final DataInputStream inputStream;
+        
+        private int readCount;
+        
+        @SneakyThrows
+        SpilledRowIterator(final int rowCount) {
+            this.rowCount = rowCount;
+            inputStream = new DataInputStream(new MappedFileInputStream(file, file.length()));
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return readCount < rowCount;
+        }
+        
+        @Override
+        @SneakyThrows
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] result = new Object[inputStream.readInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = readValue();
+            }
+            if (++readCount == rowCount) {
+                inputStream.close();
+            }
+            return result;
+        }
+        
+        private Object readValue() throws IOException {
+            int length = inputStream.readInt();
+            if (NULL_LENGTH == length) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            inputStream.readFully(bytes);
+            return SagaParameterCodec.decode(new String(bytes, StandardCharsets.UTF_8));
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    @RequiredArgsConstructor
+    private static final class MappedFileInputStream extends InputStream {
+        
+        private final File file;
+        
+        private final long length;
+        
+        private long position;
+        
+        private MappedByteBuffer buffer;
+        
+        @Override
+        public int read() throws IOException {
+            if (!prepareBuffer()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+        
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (0 == length) {
+                return 0;
+            }
+            if (!prepareBuffer()) {
+                return -1;
+            }
+            int result = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, result);
+            return result;
+        }
+        
+        private boolean prepareBuffer() throws IOException {
+            if (null != buffer && buffer.hasRemaining()) {
+                return true;
+            }
+            if (position >= length) {
+                return false;
+            }
+            long windowSize = Math.min(MAPPED_WINDOW_BYTES, length - position);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            }
+            position += windowSize;
+            return true;
+        }
+    }
+}
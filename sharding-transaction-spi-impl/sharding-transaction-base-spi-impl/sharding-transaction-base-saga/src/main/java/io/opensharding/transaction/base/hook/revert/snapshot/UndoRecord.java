@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Undo record, values are ordered by the shared undo schema.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class UndoRecord {
+    
+    @Getter
+    private final UndoSchema schema;
+    
+    private final Object[] values;
+    
+    /**
+     * Get value of column.
+     *
+     * @param columnName column name, case insensitive
+     * @return value, null if column is absent
+     */
+    public Object get(final String columnName) {
+        int index = schema.indexOf(columnName);
+        return -1 == index ? null : values[index];
+    }
+    
+    /**
+     * Get value of column.
+     *
+     * @param columnIndex column index
+     * @return value
+     */
+    public Object get(final int columnIndex) {
+        return values[columnIndex];
+    }
+    
+    /**
+     * Get all values in schema order.
+     *
+     * @return values
+     */
+    public List<Object> getValues() {
+        return Arrays.asList(values);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Column schema shared by all undo records of one snapshot.
+ */
+public final class UndoSchema {
+    
+    @Getter
+    private final List<String> columnNames;
+    
+    private final Map<String, Integer> columnIndexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    
+    public UndoSchema(final List<String> columnNames) {
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        int index = 0;
+        for (String each : columnNames) {
+            columnIndexes.put(each, index++);
+        }
+    }
+    
+    /**
+     * Get index of column, case insensitive.
+     *
+     * @param columnName column name
+     * @return column index, -1 if column is absent
+     */
+    public int indexOf(final String columnName) {
+        Integer result = columnIndexes.get(columnName);
+        return null == result ? -1 : result;
+    }
+    
+    /**
+     * Get column count.
+     *
+     * @return column count
+     */
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+}
@@ -25,9 +25,12 @@ import org.apache.shardingsphere.core.parse.sql.segment.dml.predicate.WhereSegme
 import org.apache.shardingsphere.core.parse.sql.segment.generic.TableSegment;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Update snapshot accessor.
@@ -36,6 +39,10 @@ import java.util.List;
  */
 public final class UpdateSnapshotAccessor extends DMLSnapshotAccessor {
     
+    private static final Pattern AND_PATTERN = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+    
+    private static final Pattern EQUALITY_CONDITION_PATTERN = Pattern.compile("^(?:[`\"\\[]?\\w+[`\"\\]]?\\.)?[`\"\\[]?(\\w+)[`\"\\]]?\\s*=\\s*\\?$");
+    
     private UpdateStatement updateStatement;
     
     public UpdateSnapshotAccessor(final SQLRevertExecutorContext executorContext) {
@@ -79,18 +86,72 @@ public final class UpdateSnapshotAccessor extends DMLSnapshotAccessor {
         return Optional.absent();
     }
     
+    /**
+     * Find primary key values if where clause only consists of equality conditions on all primary key columns.
+     *
+     * @return primary key values in order of primary key columns
+     */
+    public Optional<List<Object>> findPrimaryKeyValues() {
+        String condition = getCondition(getWhereClause());
+        if (condition.isEmpty()) {
+            return Optional.absent();
+        }
+        String[] conditions = AND_PATTERN.split(condition);
+        int[] parameterIndexes = getSnapshotParameterIndexes(getExecutorContext());
+        List<String> primaryKeyColumns = getExecutorContext().getPrimaryKeyColumns();
+        if (conditions.length != primaryKeyColumns.size() || conditions.length != parameterIndexes.length) {
+            return Optional.absent();
+        }
+        Object[] result = new Object[conditions.length];
+        for (int i = 0; i < conditions.length; i++) {
+            Matcher matcher = EQUALITY_CONDITION_PATTERN.matcher(conditions[i].trim());
+            if (!matcher.matches()) {
+                return Optional.absent();
+            }
+            int index = indexOfIgnoreCase(primaryKeyColumns, matcher.group(1));
+            if (-1 == index || null != result[index]) {
+                return Optional.absent();
+            }
+            result[index] = getExecutorContext().getParameters().get(parameterIndexes[i]);
+            if (null == result[index]) {
+                return Optional.absent();
+            }
+        }
+        return Optional.<List<Object>>of(Arrays.asList(result));
+    }
+    
+    private int indexOfIgnoreCase(final List<String> columnNames, final String columnName) {
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
     private String getWhereClause() {
         Optional<WhereSegment> whereSegment = updateStatement.getWhere();
         return whereSegment.isPresent() ? getExecutorContext().getLogicSQL().substring(whereSegment.get().getStartIndex(), whereSegment.get().getStopIndex() + 1) : "";
     }
     
+    @Override
+    protected int[] getSnapshotParameterIndexes(final SQLRevertExecutorContext context) {
+        Optional<WhereSegment> whereSegment = updateStatement.getWhere();
+        if (!whereSegment.isPresent()) {
+            return new int[0];
+        }
+        int startIndex = whereSegment.get().getParameterStartIndex();
+        int[] result = new int[Math.max(0, whereSegment.get().getParametersCount() - startIndex + 1)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = startIndex + i;
+        }
+        return result;
+    }
+    
     private Collection<Object> getWhereParameters(final SQLRevertExecutorContext context) {
         Collection<Object> result = new LinkedList<>();
-        Optional<WhereSegment> whereSegment = updateStatement.getWhere();
-        if (whereSegment.isPresent()) {
-            for (int i = whereSegment.get().getParameterStartIndex(); i <= whereSegment.get().getParametersCount(); i++) {
-                result.add(context.getParameters().get(i));
-            }
+        for (int each : getSnapshotParameterIndexes(context)) {
+            result.add(context.getParameters().get(each));
         }
         return result;
     }
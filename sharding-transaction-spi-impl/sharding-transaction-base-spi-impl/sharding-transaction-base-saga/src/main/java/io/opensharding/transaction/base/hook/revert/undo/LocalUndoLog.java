@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.undo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.utils.JDBCUtil;
+import io.opensharding.transaction.base.utils.SagaParameterCodec;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Local undo log.
+ *
+ * <p>
+ * Revert SQL and parameters of each SQL transaction are written into undo log table of the business data source,
+ * using the same connection and local transaction as the DML, so no extra database is needed to make compensation durable.
+ * Commit decision of transaction is written into the same table as a record with {@code COMMITTED} branch id,
+ * undo log of transactions with commit decision is only cleaned by recovery, never compensated.
+ * Undo log table is expected as:
+ * {@code CREATE TABLE undo_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, transaction_id VARCHAR(64), branch_id VARCHAR(64), owner VARCHAR(64),
+ * revert_sql TEXT, revert_parameters TEXT, create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)}.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class LocalUndoLog {
+    
+    private static final String COMMITTED_BRANCH_ID = "COMMITTED";
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private static final TypeReference<List<List<String>>> PARAMETERS_TYPE = new TypeReference<List<List<String>>>() { };
+    
+    @Getter
+    private final String tableName;
+    
+    @Getter
+    private final String owner;
+    
+    /**
+     * Write undo log of SQL transaction.
+     *
+     * @param connection connection executing the DML
+     * @param transactionId sharding SQL transaction id
+     * @param branchId SQL transaction id
+     * @param revertSQLResult revert SQL result
+     * @throws SQLException SQL exception
+     */
+    public void write(final Connection connection, final String transactionId, final String branchId, final RevertSQLResult revertSQLResult) throws SQLException {
+        try {
+            write(connection, transactionId, branchId, revertSQLResult.getSql(), OBJECT_MAPPER.writeValueAsString(SagaParameterCodec.encode(revertSQLResult.getParameters())));
+        } catch (final IOException ex) {
+            throw new SQLException("Serialize revert parameters failed", ex);
+        }
+    }
+    
+    /**
+     * Write commit decision of transaction.
+     *
+     * <p>
+     * Commit decision should be written in the local transaction which makes the decision,
+     * so undo log of committed transaction is never compensated by recovery.
+     * </p>
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @throws SQLException SQL exception
+     */
+    public void writeCommitDecision(final Connection connection, final String transactionId) throws SQLException {
+        write(connection, transactionId, COMMITTED_BRANCH_ID, "", "[]");
+    }
+    
+    private void write(final Connection connection, final String transactionId, final String branchId, final String revertSQL, final String revertParameters) throws SQLException {
+        String sql = String.format("INSERT INTO %s (transaction_id, branch_id, owner, revert_sql, revert_parameters) VALUES (?, ?, ?, ?, ?)", tableName);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, transactionId);
+            preparedStatement.setString(2, branchId);
+            preparedStatement.setString(3, owner);
+            preparedStatement.setString(4, revertSQL);
+            preparedStatement.setString(5, revertParameters);
+            preparedStatement.executeUpdate();
+        }
+    }
+    
+    /**
+     * Load undo log records of transaction, latest written first.
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @return undo log records
+     * @throws SQLException SQL exception
+     */
+    public List<UndoLogRecord> load(final Connection connection, final String transactionId) throws SQLException {
+        return load(connection, transactionId,
+            String.format("SELECT branch_id, revert_sql, revert_parameters FROM %s WHERE transaction_id = ? AND branch_id <> ? ORDER BY id DESC", tableName), COMMITTED_BRANCH_ID);
+    }
+    
+    private List<UndoLogRecord> load(final Connection connection, final String transactionId, final String sql, final String branchId) throws SQLException {
+        List<UndoLogRecord> result = new LinkedList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, transactionId);
+            preparedStatement.setString(2, branchId);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(new UndoLogRecord(transactionId, resultSet.getString(1), resultSet.getString(2), readParameters(resultSet.getString(3))));
+                }
+            }
+        }
+        return result;
+    }
+    
+    private List<Collection<Object>> readParameters(final String parameters) throws SQLException {
+        try {
+            return SagaParameterCodec.decode(OBJECT_MAPPER.<List<List<String>>>readValue(parameters, PARAMETERS_TYPE));
+        } catch (final IOException ex) {
+            throw new SQLException("Deserialize revert parameters failed", ex);
+        }
+    }
+    
+    /**
+     * Find transaction ids of this owner which still have undo log written before given time.
+     *
+     * <p>
+     * Undo log is cleaned when transaction finished, remaining records of this owner belong to transactions interrupted before finishing.
+     * </p>
+     *
+     * @param connection connection
+     * @param createdBefore undo log written before this time is included
+     * @return transaction ids
+     * @throws SQLException SQL exception
+     */
+    public Collection<String> findTransactionIds(final Connection connection, final Timestamp createdBefore) throws SQLException {
+        Collection<String> result = new LinkedHashSet<>();
+        String sql = String.format("SELECT transaction_id FROM %s WHERE owner = ? AND branch_id <> ? AND create_time < ? ORDER BY id", tableName);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, owner);
+            preparedStatement.setString(2, COMMITTED_BRANCH_ID);
+            preparedStatement.setTimestamp(3, createdBefore);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getString(1));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Find ids of transactions with commit decision.
+     *
+     * @param connection connection
+     * @return transaction ids
+     * @throws SQLException SQL exception
+     */
+    public Collection<String> findCommittedTransactionIds(final Connection connection) throws SQLException {
+        Collection<String> result = new LinkedHashSet<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(String.format("SELECT transaction_id FROM %s WHERE branch_id = ?", tableName))) {
+            preparedStatement.setString(1, COMMITTED_BRANCH_ID);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getString(1));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Compensate SQL transaction with its undo log in one local transaction.
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @param branchId SQL transaction id
+     * @return false if undo log of SQL transaction is not found
+     * @throws SQLException SQL exception
+     */
+    public boolean compensate(final Connection connection, final String transactionId, final String branchId) throws SQLException {
+        List<UndoLogRecord> undoLogRecords = load(connection, transactionId,
+            String.format("SELECT branch_id, revert_sql, revert_parameters FROM %s WHERE transaction_id = ? AND branch_id = ? ORDER BY id DESC", tableName), branchId);
+        if (undoLogRecords.isEmpty()) {
+            return false;
+        }
+        compensate(connection, undoLogRecords);
+        return true;
+    }
+    
+    /**
+     * Recover transaction with its undo log in one local transaction.
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @return count of compensated SQL transactions
+     * @throws SQLException SQL exception
+     */
+    public int recover(final Connection connection, final String transactionId) throws SQLException {
+        List<UndoLogRecord> undoLogRecords = load(connection, transactionId);
+        if (!undoLogRecords.isEmpty()) {
+            compensate(connection, undoLogRecords);
+        }
+        return undoLogRecords.size();
+    }
+    
+    /**
+     * Recover transactions of this owner interrupted before finishing.
+     *
+     * <p>
+     * Undo log of committed transactions is cleaned, other transactions are compensated.
+     * </p>
+     *
+     * @param connection connection
+     * @param createdBefore undo log written before this time is recovered
+     * @param committedTransactionIds ids of transactions with commit decision
+     * @return count of compensated transactions
+     * @throws SQLException SQL exception
+     */
+    public int recoverExpired(final Connection connection, final Timestamp createdBefore, final Collection<String> committedTransactionIds) throws SQLException {
+        int result = 0;
+        for (String each : findTransactionIds(connection, createdBefore)) {
+            if (committedTransactionIds.contains(each)) {
+                clean(connection, each);
+            } else if (0 < recover(connection, each)) {
+                result++;
+            }
+        }
+        return result;
+    }
+    
+    private void compensate(final Connection connection, final List<UndoLogRecord> undoLogRecords) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            for (UndoLogRecord each : undoLogRecords) {
+                executeRevert(connection, each);
+                clean(connection, each.getTransactionId(), each.getBranchId());
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+        } catch (final SQLException ex) {
+            if (autoCommit) {
+                connection.rollback();
+            }
+            throw ex;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    private void executeRevert(final Connection connection, final UndoLogRecord undoLogRecord) throws SQLException {
+        if (undoLogRecord.getRevertParameters().isEmpty()) {
+            JDBCUtil.executeUpdate(connection, undoLogRecord.getRevertSQL(), new LinkedList<>());
+        } else {
+            JDBCUtil.executeBatch(connection, undoLogRecord.getRevertSQL(), undoLogRecord.getRevertParameters());
+        }
+    }
+    
+    /**
+     * Clean undo log of finished transaction, commit decision is kept.
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @throws SQLException SQL exception
+     */
+    public void clean(final Connection connection, final String transactionId) throws SQLException {
+        delete(connection, String.format("DELETE FROM %s WHERE transaction_id = ? AND branch_id <> ?", tableName), transactionId, COMMITTED_BRANCH_ID);
+    }
+    
+    /**
+     * Clean undo log of compensated SQL transaction.
+     *
+     * <p>
+     * Undo log should be cleaned in the local transaction which executes the revert SQL, so it is never compensated again.
+     * </p>
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @param branchId SQL transaction id
+     * @throws SQLException SQL exception
+     */
+    public void clean(final Connection connection, final String transactionId, final String branchId) throws SQLException {
+        delete(connection, String.format("DELETE FROM %s WHERE transaction_id = ? AND branch_id = ?", tableName), transactionId, branchId);
+    }
+    
+    /**
+     * Clean commit decision of transaction, should be called after undo log of transaction is cleaned from all data sources.
+     *
+     * @param connection connection
+     * @param transactionId sharding SQL transaction id
+     * @throws SQLException SQL exception
+     */
+    public void cleanCommitDecision(final Connection connection, final String transactionId) throws SQLException {
+        clean(connection, transactionId, COMMITTED_BRANCH_ID);
+    }
+    
+    /**
+     * Clean commit decisions of this owner written before given time.
+     *
+     * @param connection connection
+     * @param createdBefore commit decision written before this time is cleaned
+     * @throws SQLException SQL exception
+     */
+    public void cleanCommitDecisions(final Connection connection, final Timestamp createdBefore) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(String.format("DELETE FROM %s WHERE owner = ? AND branch_id = ? AND create_time < ?", tableName))) {
+            preparedStatement.setString(1, owner);
+            preparedStatement.setString(2, COMMITTED_BRANCH_ID);
+            preparedStatement.setTimestamp(3, createdBefore);
+            preparedStatement.executeUpdate();
+        }
+    }
+    
+    private void delete(final Connection connection, final String sql, final String transactionId, final String branchId) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, transactionId);
+            preparedStatement.setString(2, branchId);
+            preparedStatement.executeUpdate();
+        }
+    }
+}
@@ -17,40 +17,108 @@
 
 package io.opensharding.transaction.base.saga;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import io.opensharding.transaction.base.context.ExecuteStatus;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.metadata.RevertTableMetaDataCache;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlanCache;
+import io.opensharding.transaction.base.hook.revert.snapshot.ParallelSnapshotLoader;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
+import io.opensharding.transaction.base.hook.revert.undo.LocalUndoLog;
 import io.opensharding.transaction.base.saga.actuator.SagaActuatorFactory;
 import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import io.opensharding.transaction.base.saga.actuator.engine.SagaEngine;
+import io.opensharding.transaction.base.saga.actuator.transport.DataSourceBulkhead;
+import io.opensharding.transaction.base.saga.actuator.transport.DataSourceCircuitBreaker;
+import io.opensharding.transaction.base.saga.actuator.transport.LocalTransactionCompensator;
 import io.opensharding.transaction.base.saga.config.SagaConfiguration;
 import io.opensharding.transaction.base.saga.config.SagaConfigurationLoader;
 import io.opensharding.transaction.base.saga.persistence.SagaPersistenceLoader;
 import io.opensharding.transaction.base.utils.Constant;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.servicecomb.saga.core.PersistentStore;
 import org.apache.servicecomb.saga.core.RecoveryPolicy;
-import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.execute.ShardingExecuteDataMap;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+
 /**
  * Sharding SQL transaction manager.
  *
  * @author zhaojun
  */
+@Slf4j
 public final class ShardingSQLTransactionManager {
     
     private static final ShardingSQLTransactionManager INSTANCE = new ShardingSQLTransactionManager();
     
     private static final ThreadLocal<ShardingSQLTransaction> CURRENT_TRANSACTION = new ThreadLocal<>();
     
+    @Getter
     private SagaConfiguration sagaConfiguration;
     
-    private SagaExecutionComponent sagaActuator;
+    private SagaEngine sagaEngine;
+    
+    @Getter
+    private RevertSQLPlanCache revertSQLPlanCache;
+    
+    @Getter
+    private final RevertTableMetaDataCache revertTableMetaDataCache = new RevertTableMetaDataCache();
+    
+    private ParallelSnapshotLoader parallelSnapshotLoader;
+    
+    private LocalUndoLog localUndoLog;
+    
+    private DataSourceBulkhead dataSourceBulkhead;
+    
+    private DataSourceCircuitBreaker dataSourceCircuitBreaker;
     
     private ShardingSQLTransactionManager() {
         sagaConfiguration = SagaConfigurationLoader.load();
         PersistentStore sagaPersistence = SagaPersistenceLoader.load(sagaConfiguration.getSagaPersistenceConfiguration());
-        sagaActuator = SagaActuatorFactory.newInstance(sagaConfiguration, sagaPersistence);
+        sagaEngine = SagaActuatorFactory.newEngine(sagaConfiguration, sagaPersistence);
+        revertSQLPlanCache = new RevertSQLPlanCache(sagaConfiguration.getRevertSQLPlanCacheSize());
+        if (sagaConfiguration.isParallelSnapshotEnabled()) {
+            parallelSnapshotLoader = new ParallelSnapshotLoader(sagaConfiguration.getSnapshotExecutorSize());
+        }
+        if (sagaConfiguration.isLocalUndoLogEnabled()) {
+            localUndoLog = new LocalUndoLog(sagaConfiguration.getUndoLogTableName(), getUndoLogOwner());
+        }
+        if (sagaConfiguration.isBulkheadEnabled()) {
+            dataSourceBulkhead = new DataSourceBulkhead(sagaConfiguration.getBulkheadMinConcurrency(), sagaConfiguration.getBulkheadMaxConcurrency(),
+                sagaConfiguration.getBulkheadLatencyThresholdMilliseconds());
+        }
+        if (sagaConfiguration.isCircuitBreakerEnabled()) {
+            dataSourceCircuitBreaker = new DataSourceCircuitBreaker(sagaConfiguration.getCircuitBreakerWindowSize(), sagaConfiguration.getCircuitBreakerMinimumCalls(),
+                sagaConfiguration.getCircuitBreakerBadCallRateThreshold(), sagaConfiguration.getCircuitBreakerSlowCallThresholdMilliseconds(),
+                sagaConfiguration.getCircuitBreakerOpenDurationMilliseconds());
+        }
     }
     
+    private String getUndoLogOwner() {
+        if (!Strings.isNullOrEmpty(sagaConfiguration.getUndoLogOwner())) {
+            return sagaConfiguration.getUndoLogOwner();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException ex) {
+            log.warn("Resolve host name as owner of local undo log failed, configure it with saga.revert.undo.log.owner", ex);
+            return "";
+        }
+    }
     
     /**
      * Get instance of Sharding SQL transaction manager.
@@ -61,6 +129,93 @@ public final class ShardingSQLTransactionManager {
         return INSTANCE;
     }
     
+    /**
+     * Get parallel snapshot loader.
+     *
+     * @return parallel snapshot loader, absent if parallel snapshot is disabled
+     */
+    public Optional<ParallelSnapshotLoader> getParallelSnapshotLoader() {
+        return Optional.fromNullable(parallelSnapshotLoader);
+    }
+    
+    /**
+     * Get local undo log.
+     *
+     * @return local undo log, absent if local undo log is disabled
+     */
+    public Optional<LocalUndoLog> getLocalUndoLog() {
+        return Optional.fromNullable(localUndoLog);
+    }
+    
+    /**
+     * Get data source bulkhead.
+     *
+     * @return data source bulkhead, absent if bulkhead is disabled
+     */
+    public Optional<DataSourceBulkhead> getDataSourceBulkhead() {
+        return Optional.fromNullable(dataSourceBulkhead);
+    }
+    
+    /**
+     * Get data source circuit breaker.
+     *
+     * @return data source circuit breaker, absent if circuit breaker is disabled
+     */
+    public Optional<DataSourceCircuitBreaker> getDataSourceCircuitBreaker() {
+        return Optional.fromNullable(dataSourceCircuitBreaker);
+    }
+    
+    /**
+     * Recover transactions of this owner interrupted before finishing with local undo log of each data source.
+     *
+     * <p>
+     * Transactions with commit decision in any data source are only cleaned, others are compensated.
+     * Recovery is skipped if commit decisions can not be loaded from all data sources.
+     * </p>
+     *
+     * @param dataSourceMap data source map
+     */
+    public void recoverLocalUndoLog(final Map<String, DataSource> dataSourceMap) {
+        if (null == localUndoLog) {
+            return;
+        }
+        Collection<String> committedTransactionIds = new HashSet<>();
+        for (Entry<String, DataSource> entry : dataSourceMap.entrySet()) {
+            try (Connection connection = entry.getValue().getConnection()) {
+                committedTransactionIds.addAll(localUndoLog.findCommittedTransactionIds(connection));
+            } catch (final SQLException ex) {
+                log.warn("Load commit decisions failed, skip recovering local undo log, data source: {}", entry.getKey(), ex);
+                return;
+            }
+        }
+        Timestamp createdBefore = new Timestamp(System.currentTimeMillis() - sagaConfiguration.getUndoLogRecoveryAgeMilliseconds());
+        boolean recovered = true;
+        for (Entry<String, DataSource> entry : dataSourceMap.entrySet()) {
+            try (Connection connection = entry.getValue().getConnection()) {
+                int recoveredCount = localUndoLog.recoverExpired(connection, createdBefore, committedTransactionIds);
+                if (0 < recoveredCount) {
+                    log.info("Recovered {} transactions with local undo log, data source: {}", recoveredCount, entry.getKey());
+                }
+            } catch (final SQLException ex) {
+                recovered = false;
+                log.warn("Recover local undo log failed, data source: {}", entry.getKey(), ex);
+            }
+        }
+        if (recovered) {
+            cleanCommitDecisions(dataSourceMap, createdBefore);
+        }
+    }
+    
+    private void cleanCommitDecisions(final Map<String, DataSource> dataSourceMap, final Timestamp createdBefore) {
+        for (Entry<String, DataSource> entry : dataSourceMap.entrySet()) {
+            try (Connection connection = entry.getValue().getConnection()) {
+                localUndoLog.cleanCommitDecisions(connection, createdBefore);
+            } catch (final SQLException ex) {
+                log.warn("Clean commit decisions failed, data source: {}", entry.getKey(), ex);
+            }
+        }
+    }
+    
     /**
      * Get current sharding SQL transaction.
      *
@@ -75,7 +230,10 @@ public final class ShardingSQLTransactionManager {
      */
     public void begin() {
         if (!isInTransaction()) {
-            CURRENT_TRANSACTION.set(new ShardingSQLTransaction());
+            ShardingSQLTransaction shardingSQLTransaction = new ShardingSQLTransaction();
+            shardingSQLTransaction.setLocalAnchorEnabled(sagaConfiguration.isLocalAnchorEnabled());
+            shardingSQLTransaction.setUndoDataBudget(new UndoDataBudget(sagaConfiguration.getUndoDataMemoryBudgetBytes()));
+            CURRENT_TRANSACTION.set(shardingSQLTransaction);
             ShardingExecuteDataMap.getDataMap().put(Constant.SAGA_TRANSACTION_KEY, getCurrentTransaction());
         }
     }
@@ -85,30 +243,156 @@ public final class ShardingSQLTransactionManager {
      */
     public void commit() {
         try {
-            if (isInTransaction() && getCurrentTransaction().isContainsException()) {
-                getCurrentTransaction().setOperationType(TransactionOperationType.COMMIT);
-                sagaActuator.run(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, getCurrentTransaction()).toJson());
+            if (!isInTransaction()) {
+                return;
+            }
+            if (getCurrentTransaction().isAnchorFailed()) {
+                abortAnchorLocalTransaction();
+                throw new ShardingException("Execute SQL on anchor data source failed, transaction is rolled back");
             }
+            runForwardRecovery();
+            Optional<Connection> commitDecisionConnection = writeCommitDecision();
+            commitAnchorLocalTransaction();
+            cleanLocalUndoLog(commitDecisionConnection);
         } finally {
             clear();
         }
         
     }
     
+    private void runForwardRecovery() {
+        if (!getCurrentTransaction().isContainsException()) {
+            return;
+        }
+        getCurrentTransaction().setOperationType(TransactionOperationType.COMMIT);
+        boolean anchorPresent = getCurrentTransaction().getAnchorConnection().isPresent();
+        try {
+            sagaEngine.run(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, getCurrentTransaction()));
+        } catch (final RuntimeException ex) {
+            if (!anchorPresent) {
+                throw ex;
+            }
+            abortAnchorLocalTransaction();
+            throw new ShardingException("Forward recovery failed, transaction is rolled back", ex);
+        }
+        if (anchorPresent && getCurrentTransaction().isContainsException()) {
+            abortAnchorLocalTransaction();
+            throw new ShardingException("Forward recovery failed, transaction is rolled back");
+        }
+    }
+    
+    private Optional<Connection> writeCommitDecision() {
+        if (null == localUndoLog || getCurrentTransaction().getWrittenDataSourceNames().isEmpty()) {
+            return Optional.absent();
+        }
+        Optional<Connection> anchorConnection = getCurrentTransaction().getAnchorConnection();
+        Connection result = anchorConnection.isPresent()
+            ? anchorConnection.get() : getCurrentTransaction().getCachedConnections().get(getCurrentTransaction().getWrittenDataSourceNames().iterator().next());
+        try {
+            localUndoLog.writeCommitDecision(result, getCurrentTransaction().getId());
+        } catch (final SQLException ex) {
+            abortAnchorLocalTransaction();
+            throw new ShardingException("Write commit decision failed, transaction is rolled back", ex);
+        }
+        return Optional.of(result);
+    }
+    
+    private void commitAnchorLocalTransaction() {
+        Optional<Connection> anchorConnection = getCurrentTransaction().getAnchorConnection();
+        if (!anchorConnection.isPresent()) {
+            return;
+        }
+        try {
+            anchorConnection.get().commit();
+            anchorConnection.get().setAutoCommit(true);
+        } catch (final SQLException ex) {
+            abortAnchorLocalTransaction();
+            throw new ShardingException("Commit local transaction of anchor data source failed", ex);
+        }
+    }
+    
+    private void abortAnchorLocalTransaction() {
+        rollbackAnchorLocalTransaction();
+        runBackwardRecovery();
+        cleanLocalUndoLog();
+    }
+    
     /**
      * rollback.
      */
     public void rollback() {
         try {
             if (isInTransaction()) {
-                getCurrentTransaction().setOperationType(TransactionOperationType.ROLLBACK);
-                sagaActuator.run(SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, getCurrentTransaction()).toJson());
+                rollbackAnchorLocalTransaction();
+                runBackwardRecovery();
+                cleanLocalUndoLog();
             }
         } finally {
             clear();
         }
     }
     
+    private void rollbackAnchorLocalTransaction() {
+        Optional<Connection> anchorConnection = getCurrentTransaction().getAnchorConnection();
+        if (!anchorConnection.isPresent()) {
+            return;
+        }
+        try {
+            anchorConnection.get().rollback();
+            anchorConnection.get().setAutoCommit(true);
+        } catch (final SQLException ex) {
+            log.warn("Rollback local transaction of anchor data source failed", ex);
+        }
+    }
+    
+    private void runBackwardRecovery() {
+        if (getCurrentTransaction().isContainsSQLTransaction()) {
+            getCurrentTransaction().setOperationType(TransactionOperationType.ROLLBACK);
+            getCurrentTransaction().changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
+            if (sagaConfiguration.isCompensationBatchEnabled()) {
+                new LocalTransactionCompensator(getCurrentTransaction(), localUndoLog).compensate();
+            }
+            try {
+                sagaEngine.run(SagaDefinitionFactory.newCompensationInstance(sagaConfiguration, getCurrentTransaction()));
+            } catch (final RuntimeException ex) {
+                throw new ShardingException(String.format("Compensation of transaction `%s` is aborted", getCurrentTransaction().getId()), ex);
+            }
+            if (getCurrentTransaction().isContainsUncompensatedSQLTransaction()) {
+                throw new ShardingException(String.format("Compensation of transaction `%s` is not finished", getCurrentTransaction().getId()));
+            }
+        }
+    }
+    
+    private void cleanLocalUndoLog(final Optional<Connection> commitDecisionConnection) {
+        if (!cleanLocalUndoLog() || !commitDecisionConnection.isPresent()) {
+            return;
+        }
+        try {
+            localUndoLog.cleanCommitDecision(commitDecisionConnection.get(), getCurrentTransaction().getId());
+        } catch (final SQLException ex) {
+            log.warn("Clean commit decision of transaction {} failed", getCurrentTransaction().getId(), ex);
+        }
+    }
+    
+    private boolean cleanLocalUndoLog() {
+        if (null == localUndoLog || !isInTransaction()) {
+            return false;
+        }
+        boolean result = true;
+        for (String each : getCurrentTransaction().getWrittenDataSourceNames()) {
+            Connection connection = getCurrentTransaction().getCachedConnections().get(each);
+            try {
+                if (null != connection) {
+                    localUndoLog.clean(connection, getCurrentTransaction().getId());
+                }
+            } catch (final SQLException ex) {
+                result = false;
+                log.warn("Clean local undo log of transaction {} failed, data source: {}", getCurrentTransaction().getId(), each, ex);
+            }
+        }
+        return result;
+    }
+    
     /**
      * Whether current thread is in transaction or not.
      *
@@ -122,6 +406,9 @@ public final class ShardingSQLTransactionManager {
      * clear.
      */
     public void clear() {
+        if (isInTransaction()) {
+            getCurrentTransaction().getUndoDataBudget().release();
+        }
         CURRENT_TRANSACTION.remove();
         ShardingExecuteDataMap.getDataMap().remove(Constant.SAGA_TRANSACTION_KEY);
     }
@@ -18,8 +18,15 @@
 package io.opensharding.transaction.base.saga.actuator;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionHandoff;
+import io.opensharding.transaction.base.saga.actuator.engine.NativeSagaEngine;
+import io.opensharding.transaction.base.saga.actuator.engine.SagaEngine;
+import io.opensharding.transaction.base.saga.actuator.engine.ServiceCombSagaEngine;
+import io.opensharding.transaction.base.saga.actuator.retry.BackoffSagaRetryPolicy;
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
 import io.opensharding.transaction.base.saga.actuator.transport.SagaTransportFactory;
 import io.opensharding.transaction.base.saga.config.SagaConfiguration;
+import io.opensharding.transaction.base.saga.persistence.impl.EmptySagaPersistence;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.servicecomb.saga.core.PersistentStore;
@@ -52,12 +59,56 @@ public final class SagaActuatorFactory {
      * @return saga execution component
      */
     public static SagaExecutionComponent newInstance(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence) {
-        FromJsonFormat<SagaDefinition> fromJsonFormat = new JacksonFromJsonFormat(SagaTransportFactory.getInstance());
-        GraphBasedSagaFactory sagaFactory = new GraphBasedSagaFactory(sagaConfiguration.getCompensationRetryDelayMilliseconds(),
+        return newInstance(sagaConfiguration, sagaPersistence, new JacksonFromJsonFormat(SagaTransportFactory.getInstance()));
+    }
+    
+    /**
+     * Create new saga execution component.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaPersistence saga persistence
+     * @param fromJsonFormat format to get saga definition
+     * @return saga execution component
+     */
+    public static SagaExecutionComponent newInstance(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence, final FromJsonFormat<SagaDefinition> fromJsonFormat) {
+        int compensationRetryDelayMilliseconds = sagaConfiguration.isRetryBackoffEnabled() ? 0 : sagaConfiguration.getCompensationRetryDelayMilliseconds();
+        GraphBasedSagaFactory sagaFactory = new GraphBasedSagaFactory(compensationRetryDelayMilliseconds,
             sagaPersistence, new ChildrenExtractor(), createExecutorService(sagaConfiguration.getExecutorSize()));
         return new SagaExecutionComponent(sagaPersistence, fromJsonFormat, null, sagaFactory);
     }
     
+    /**
+     * Create new saga definition handoff.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaPersistence saga persistence
+     * @return saga definition handoff
+     */
+    public static SagaDefinitionHandoff newDefinitionHandoff(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence) {
+        return new SagaDefinitionHandoff(new JacksonFromJsonFormat(SagaTransportFactory.getInstance()), SagaTransportFactory.getInstance(),
+            !(sagaPersistence instanceof EmptySagaPersistence), createRetryPolicy(sagaConfiguration));
+    }
+    
+    /**
+     * Create new saga engine.
+     *
+     * @param sagaConfiguration saga configuration
+     * @param sagaPersistence saga persistence
+     * @return native saga engine if enabled, otherwise saga engine backed by ServiceComb
+     */
+    public static SagaEngine newEngine(final SagaConfiguration sagaConfiguration, final PersistentStore sagaPersistence) {
+        if (sagaConfiguration.isNativeEngineEnabled()) {
+            return new NativeSagaEngine(createExecutorService(sagaConfiguration.getExecutorSize()), SagaTransportFactory.getInstance(), createRetryPolicy(sagaConfiguration), null);
+        }
+        SagaDefinitionHandoff sagaDefinitionHandoff = newDefinitionHandoff(sagaConfiguration, sagaPersistence);
+        return new ServiceCombSagaEngine(newInstance(sagaConfiguration, sagaPersistence, sagaDefinitionHandoff), sagaDefinitionHandoff);
+    }
+    
+    private static SagaRetryPolicy createRetryPolicy(final SagaConfiguration sagaConfiguration) {
+        return sagaConfiguration.isRetryBackoffEnabled() ? new BackoffSagaRetryPolicy(sagaConfiguration.getRetryBaseDelayMilliseconds(),
+            sagaConfiguration.getRetryMaxDelayMilliseconds(), sagaConfiguration.getRetryBudgetPermitsPerSecond()) : null;
+    }
+    
     private static ExecutorService createExecutorService(final int executorSize) {
         ThreadFactory threadFactory = ShardingThreadFactoryBuilder.build("Saga-%d");
         ExecutorService result = executorSize > 0 ? Executors.newFixedThreadPool(executorSize, threadFactory) : Executors.newCachedThreadPool(threadFactory);
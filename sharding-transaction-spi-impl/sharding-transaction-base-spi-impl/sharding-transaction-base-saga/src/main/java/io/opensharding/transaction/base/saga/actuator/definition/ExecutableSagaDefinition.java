@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
+import org.apache.servicecomb.saga.core.BackwardRecovery;
+import org.apache.servicecomb.saga.core.ForwardRecovery;
+import org.apache.servicecomb.saga.core.SagaRequestImpl;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+
+/**
+ * Executable saga definition built from saga definition in memory, without JSON round trip.
+ *
+ * <p>
+ * Fixed retry delay of saga request is dropped if retry policy is present, retry delay is decided by retry policy instead.
+ * </p>
+ */
+public final class ExecutableSagaDefinition implements org.apache.servicecomb.saga.core.SagaDefinition {
+    
+    private final org.apache.servicecomb.saga.core.RecoveryPolicy policy;
+    
+    private final org.apache.servicecomb.saga.core.SagaRequest[] requests;
+    
+    public ExecutableSagaDefinition(final SagaDefinition sagaDefinition, final SQLTransport transport, final SagaRetryPolicy retryPolicy) {
+        policy = org.apache.servicecomb.saga.core.RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY.equals(sagaDefinition.getPolicy()) ? new ForwardRecovery() : new BackwardRecovery();
+        requests = new org.apache.servicecomb.saga.core.SagaRequest[sagaDefinition.getRequests().size()];
+        int index = 0;
+        for (SagaRequest each : sagaDefinition.getRequests()) {
+            requests[index++] = newSagaRequest(each, transport, retryPolicy);
+        }
+    }
+    
+    private org.apache.servicecomb.saga.core.SagaRequest newSagaRequest(final SagaRequest sagaRequest, final SQLTransport transport, final SagaRetryPolicy retryPolicy) {
+        return new SagaRequestImpl(sagaRequest.getId(), sagaRequest.getDatasource(), sagaRequest.getType(),
+            new SagaSQLOperation(transport, sagaRequest.getTransaction(), retryPolicy), new SagaSQLOperation(transport, sagaRequest.getCompensation(), retryPolicy), SagaSQLOperation.nop(transport),
+            sagaRequest.getParents().toArray(new String[0]), null == retryPolicy ? sagaRequest.getFailRetryDelayMilliseconds() : 0);
+    }
+    
+    @Override
+    public org.apache.servicecomb.saga.core.RecoveryPolicy policy() {
+        return policy;
+    }
+    
+    @Override
+    public org.apache.servicecomb.saga.core.SagaRequest[] requests() {
+        return requests;
+    }
+}
@@ -22,23 +22,30 @@ import io.opensharding.transaction.base.context.SQLTransaction;
 import io.opensharding.transaction.base.context.LogicSQLTransaction;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
 import io.opensharding.transaction.base.saga.config.SagaConfiguration;
+import io.opensharding.transaction.base.utils.SagaParameterCodec;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import org.apache.servicecomb.saga.core.RecoveryPolicy;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Saga definition factory.
  *
+ * <p>
+ * Parents of saga request are the conflicting requests of previous logic SQL only,
+ * so that independent branches could be executed and compensated concurrently.
+ * </p>
+ *
  * @author zhaojun
  */
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public final class SagaDefinitionFactory {
     
-    public static final String ROLLBACK_TAG = "rollbackTag";
-    
     private static final String TYPE = "sql";
     
     /**
@@ -51,35 +58,72 @@ public final class SagaDefinitionFactory {
      */
     public static SagaDefinition newInstance(final String recoveryPolicy, final SagaConfiguration configuration, final ShardingSQLTransaction shardingSQLTransaction) {
         Collection<SagaRequest> sagaRequests = new LinkedList<>();
-        Collection<String> requestIds = new LinkedList<>();
+        SagaRequestDependencies dependencies = new SagaRequestDependencies();
         for (LogicSQLTransaction each : shardingSQLTransaction.getLogicSQLTransactions()) {
-            requestIds = addLogicSQLTransactionRequest(new LinkedList<>(requestIds), sagaRequests, each, configuration);
-        }
-        if (RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY.equals(recoveryPolicy)) {
-            sagaRequests.add(newRollbackRequest(new LinkedList<>(requestIds), configuration));
+            addLogicSQLTransactionRequest(dependencies, sagaRequests, each, configuration);
         }
         return new SagaDefinition(recoveryPolicy, sagaRequests);
     }
     
-    private static Collection<String> addLogicSQLTransactionRequest(final Collection<String> parentsIds, final Collection<SagaRequest> sagaRequests,
-                                                                    final LogicSQLTransaction logicSQLTransaction, final SagaConfiguration configuration) {
-        Collection<String> result = new LinkedList<>();
+    /**
+     * New instance of saga definition compensating all SQL transactions directly.
+     *
+     * <p>
+     * Transaction of each saga request is the revert SQL, and parents are the requests of SQL transactions depending on it,
+     * so compensation runs in reverse order of conflicting SQL transactions and finishes by forward recovery, without any forced failure.
+     * </p>
+     *
+     * @param configuration configuration
+     * @param shardingSQLTransaction sharding SQL transaction
+     * @return saga definition
+     */
+    public static SagaDefinition newCompensationInstance(final SagaConfiguration configuration, final ShardingSQLTransaction shardingSQLTransaction) {
+        LinkedList<SQLTransaction> sqlTransactions = new LinkedList<>();
+        Map<String, Collection<String>> childrenIds = new HashMap<>();
+        SagaRequestDependencies dependencies = new SagaRequestDependencies();
+        for (LogicSQLTransaction each : shardingSQLTransaction.getLogicSQLTransactions()) {
+            for (SQLTransaction sqlTransaction : each.getSqlTransactions()) {
+                Collection<String> parentIds = dependencies.getParentIds(sqlTransaction);
+                for (String parentId : parentIds) {
+                    childrenIds.get(parentId).add(sqlTransaction.getSqlTransactionId());
+                }
+                childrenIds.put(sqlTransaction.getSqlTransactionId(), new LinkedList<String>());
+                dependencies.add(sqlTransaction);
+                sqlTransactions.addFirst(sqlTransaction);
+            }
+            dependencies.finishLogicSQL();
+        }
+        Collection<SagaRequest> sagaRequests = new LinkedList<>();
+        for (SQLTransaction each : sqlTransactions) {
+            sagaRequests.add(newCompensationRequest(childrenIds.get(each.getSqlTransactionId()), each, configuration));
+        }
+        return new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaRequests);
+    }
+    
+    private static void addLogicSQLTransactionRequest(final SagaRequestDependencies dependencies, final Collection<SagaRequest> sagaRequests,
+                                                      final LogicSQLTransaction logicSQLTransaction, final SagaConfiguration configuration) {
         for (SQLTransaction each : logicSQLTransaction.getSqlTransactions()) {
+            Collection<String> parentsIds = dependencies.getParentIds(each);
             sagaRequests.add(newSagaRequest(parentsIds, each, configuration));
-            result.add(each.getSqlTransactionId());
+            dependencies.add(each);
         }
-        return result;
+        dependencies.finishLogicSQL();
     }
     
     private static SagaRequest newSagaRequest(final Collection<String> parentsIds, final SQLTransaction sqlTransaction, final SagaConfiguration configuration) {
-        SagaSQLUnit transaction = new SagaSQLUnit(sqlTransaction.getSql(), sqlTransaction.getParameters(), configuration.getTransactionMaxRetries());
-        SagaSQLUnit compensation = new SagaSQLUnit(sqlTransaction.getRevertSQLResult().getSql(), sqlTransaction.getRevertSQLResult().getParameters(), configuration.getCompensationMaxRetries());
-        return new SagaRequest(sqlTransaction.getSqlTransactionId(), sqlTransaction.getDataSourceName(), TYPE, transaction, compensation, parentsIds, configuration.getTransactionRetryDelayMilliseconds());
+        SagaSQLUnit transaction = new SagaSQLUnit(sqlTransaction.getSql(), SagaParameterCodec.encode(sqlTransaction.getParameters()), configuration.getTransactionMaxRetries());
+        return new SagaRequest(sqlTransaction.getSqlTransactionId(), sqlTransaction.getDataSourceName(), TYPE, transaction,
+            newCompensationUnit(sqlTransaction, configuration), parentsIds, configuration.getTransactionRetryDelayMilliseconds());
+    }
+    
+    private static SagaRequest newCompensationRequest(final Collection<String> parentsIds, final SQLTransaction sqlTransaction, final SagaConfiguration configuration) {
+        SagaSQLUnit compensation = new SagaSQLUnit("", Lists.<List<String>>newLinkedList(), configuration.getCompensationMaxRetries());
+        return new SagaRequest(sqlTransaction.getSqlTransactionId(), sqlTransaction.getDataSourceName(), TYPE,
+            newCompensationUnit(sqlTransaction, configuration), compensation, parentsIds, configuration.getCompensationRetryDelayMilliseconds());
     }
     
-    private static SagaRequest newRollbackRequest(final Collection<String> parentsIds, final SagaConfiguration configuration) {
-        SagaSQLUnit transaction = new SagaSQLUnit(ROLLBACK_TAG, Lists.<Collection<Object>>newLinkedList(), configuration.getTransactionMaxRetries());
-        SagaSQLUnit compensation = new SagaSQLUnit(ROLLBACK_TAG, Lists.<Collection<Object>>newLinkedList(), configuration.getCompensationMaxRetries());
-        return new SagaRequest(ROLLBACK_TAG, ROLLBACK_TAG, TYPE, transaction, compensation, parentsIds, configuration.getTransactionRetryDelayMilliseconds());
+    private static SagaSQLUnit newCompensationUnit(final SQLTransaction sqlTransaction, final SagaConfiguration configuration) {
+        return null == sqlTransaction.getRevertSQLResult() ? new SagaSQLUnit("", Lists.<List<String>>newLinkedList(), configuration.getCompensationMaxRetries())
+            : new SagaSQLUnit(sqlTransaction.getRevertSQLResult().getSql(), SagaParameterCodec.encode(sqlTransaction.getRevertSQLResult().getParameters()), configuration.getCompensationMaxRetries());
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+
+/**
+ * Saga definition handoff.
+ *
+ * <p>
+ * Saga definition is handed to saga execution component in memory, so it will not be serialized and parsed back.
+ * JSON is only written when saga persistence needs it, and parsed only for definitions not handed off, such as recovered ones.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class SagaDefinitionHandoff implements FromJsonFormat<org.apache.servicecomb.saga.core.SagaDefinition> {
+    
+    private static final String IN_MEMORY_DEFINITION = "{}";
+    
+    private final ThreadLocal<SagaDefinition> pendingDefinition = new ThreadLocal<>();
+    
+    private final FromJsonFormat<org.apache.servicecomb.saga.core.SagaDefinition> fromJsonFormat;
+    
+    private final TransportFactory<SQLTransport> transportFactory;
+    
+    private final boolean jsonRequired;
+    
+    private final SagaRetryPolicy retryPolicy;
+    
+    /**
+     * Run saga definition.
+     *
+     * @param sagaExecutionComponent saga execution component
+     * @param sagaDefinition saga definition
+     */
+    public void run(final SagaExecutionComponent sagaExecutionComponent, final SagaDefinition sagaDefinition) {
+        pendingDefinition.set(sagaDefinition);
+        try {
+            sagaExecutionComponent.run(jsonRequired ? sagaDefinition.toJson() : IN_MEMORY_DEFINITION);
+        } finally {
+            pendingDefinition.remove();
+        }
+    }
+    
+    @Override
+    public org.apache.servicecomb.saga.core.SagaDefinition fromJson(final String requestJson) {
+        SagaDefinition sagaDefinition = pendingDefinition.get();
+        if (null == sagaDefinition) {
+            return fromJsonFormat.fromJson(requestJson);
+        }
+        pendingDefinition.remove();
+        return new ExecutableSagaDefinition(sagaDefinition, transportFactory.getTransport(), retryPolicy);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import io.opensharding.transaction.base.context.SQLTransaction;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Dependencies of saga requests.
+ *
+ * <p>
+ * SQL transaction depends on the latest previous logic SQL touching the same actual table of the same data source,
+ * SQL transaction without actual table name is considered touching all tables of its data source.
+ * SQL transactions of the same logic SQL are independent.
+ * </p>
+ */
+final class SagaRequestDependencies {
+    
+    private static final String ALL_TABLES = "*";
+    
+    private final Map<String, Map<String, Collection<String>>> latestRequestIds = new HashMap<>();
+    
+    private final Map<String, Map<String, Collection<String>>> currentRequestIds = new HashMap<>();
+    
+    /**
+     * Get parent request ids of SQL transaction.
+     *
+     * @param sqlTransaction SQL transaction
+     * @return parent request ids
+     */
+    Collection<String> getParentIds(final SQLTransaction sqlTransaction) {
+        Collection<String> result = new LinkedHashSet<>();
+        Map<String, Collection<String>> tableRequestIds = latestRequestIds.get(sqlTransaction.getDataSourceName());
+        if (null == tableRequestIds) {
+            return result;
+        }
+        String tableName = getTableName(sqlTransaction);
+        if (ALL_TABLES.equals(tableName)) {
+            for (Collection<String> each : tableRequestIds.values()) {
+                result.addAll(each);
+            }
+            return result;
+        }
+        addAll(result, tableRequestIds.get(tableName));
+        addAll(result, tableRequestIds.get(ALL_TABLES));
+        return result;
+    }
+    
+    private void addAll(final Collection<String> target, final Collection<String> requestIds) {
+        if (null != requestIds) {
+            target.addAll(requestIds);
+        }
+    }
+    
+    /**
+     * Add request of SQL transaction in current logic SQL.
+     *
+     * @param sqlTransaction SQL transaction
+     */
+    void add(final SQLTransaction sqlTransaction) {
+        Map<String, Collection<String>> tableRequestIds = currentRequestIds.get(sqlTransaction.getDataSourceName());
+        if (null == tableRequestIds) {
+            tableRequestIds = new HashMap<>();
+            currentRequestIds.put(sqlTransaction.getDataSourceName(), tableRequestIds);
+        }
+        String tableName = getTableName(sqlTransaction);
+        Collection<String> requestIds = tableRequestIds.get(tableName);
+        if (null == requestIds) {
+            requestIds = new LinkedList<>();
+            tableRequestIds.put(tableName, requestIds);
+        }
+        requestIds.add(sqlTransaction.getSqlTransactionId());
+    }
+    
+    /**
+     * Finish current logic SQL, its requests become the latest ones of touched tables.
+     */
+    void finishLogicSQL() {
+        for (Entry<String, Map<String, Collection<String>>> entry : currentRequestIds.entrySet()) {
+            Map<String, Collection<String>> tableRequestIds = latestRequestIds.get(entry.getKey());
+            if (null == tableRequestIds || entry.getValue().containsKey(ALL_TABLES)) {
+                tableRequestIds = new HashMap<>();
+                latestRequestIds.put(entry.getKey(), tableRequestIds);
+            }
+            tableRequestIds.putAll(entry.getValue());
+        }
+        currentRequestIds.clear();
+    }
+    
+    private String getTableName(final SQLTransaction sqlTransaction) {
+        return null == sqlTransaction.getActualTableName() ? ALL_TABLES : sqlTransaction.getActualTableName().toLowerCase();
+    }
+}
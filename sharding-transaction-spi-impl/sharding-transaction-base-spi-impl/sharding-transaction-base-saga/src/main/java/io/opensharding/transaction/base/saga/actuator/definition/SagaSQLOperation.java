@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.Compensation;
+import org.apache.servicecomb.saga.core.Fallback;
+import org.apache.servicecomb.saga.core.SagaResponse;
+import org.apache.servicecomb.saga.core.Transaction;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Saga SQL operation executed through SQL transport directly.
+ *
+ * <p>
+ * If retry policy is present, sending after a failure waits for backoff delay and consumes retry budget of data source first.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class SagaSQLOperation implements Transaction, Compensation, Fallback {
+    
+    private final SQLTransport transport;
+    
+    private final String sql;
+    
+    private final List<List<String>> params;
+    
+    private final int retries;
+    
+    private final SagaRetryPolicy retryPolicy;
+    
+    private boolean failed;
+    
+    private long retryDelayMilliseconds;
+    
+    SagaSQLOperation(final SQLTransport transport, final SagaSQLUnit sagaSQLUnit, final SagaRetryPolicy retryPolicy) {
+        this(transport, sagaSQLUnit.getSql(), sagaSQLUnit.getParams(), sagaSQLUnit.getRetries(), retryPolicy);
+    }
+    
+    /**
+     * Create operation doing nothing.
+     *
+     * @param transport SQL transport
+     * @return saga SQL operation
+     */
+    static SagaSQLOperation nop(final SQLTransport transport) {
+        return new SagaSQLOperation(transport, "", Collections.<List<String>>emptyList(), 0, null);
+    }
+    
+    @Override
+    public synchronized SagaResponse send(final String address) {
+        try {
+            awaitRetry(address);
+            SagaResponse result = transport.with(address, sql, params);
+            failed = false;
+            retryDelayMilliseconds = 0L;
+            return result;
+        } catch (final TransportFailedException ex) {
+            failed = true;
+            throw ex;
+        }
+    }
+    
+    private void awaitRetry(final String address) {
+        if (null == retryPolicy || !failed) {
+            return;
+        }
+        try {
+            if (!retryPolicy.tryAcquire(address)) {
+                throw new TransportFailedException(String.format("Retry budget of data source `%s` is exhausted", address));
+            }
+            retryDelayMilliseconds = retryPolicy.getDelayMilliseconds(retryDelayMilliseconds);
+            Thread.sleep(retryDelayMilliseconds);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransportFailedException(String.format("Interrupted while waiting to retry on data source `%s`", address), ex);
+        }
+    }
+    
+    @Override
+    public SagaResponse send(final String address, final SagaResponse response) {
+        return send(address);
+    }
+    
+    @Override
+    public int retries() {
+        return retries;
+    }
+}
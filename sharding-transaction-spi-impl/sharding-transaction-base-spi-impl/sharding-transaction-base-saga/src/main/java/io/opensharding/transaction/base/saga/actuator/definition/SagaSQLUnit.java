@@ -20,12 +20,15 @@ package io.opensharding.transaction.base.saga.actuator.definition;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-import java.util.Collection;
 import java.util.List;
 
 /**
  * Saga SQL unit.
  *
+ * <p>
+ * Parameters are encoded by {@code SagaParameterCodec} to keep their JDBC types through saga definition.
+ * </p>
+ *
  * @author zhaojun
  */
 @Getter
@@ -34,7 +37,7 @@ public class SagaSQLUnit {
     
     private final String sql;
     
-    private final List<Collection<Object>> params;
+    private final List<List<String>> params;
     
     private final int retries;
 }
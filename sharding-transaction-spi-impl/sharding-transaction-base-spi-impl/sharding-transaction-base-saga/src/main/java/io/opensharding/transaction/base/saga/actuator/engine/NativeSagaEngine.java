@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.engine;
+
+import com.google.common.base.Strings;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinition;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaRequest;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaSQLOperation;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaSQLUnit;
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.apache.shardingsphere.core.exception.ShardingException;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Native saga engine.
+ *
+ * <p>
+ * Saga requests are executed directly on saga definition without JSON, graph building or event sourcing.
+ * A request is executed once all of its parents finished, and the last ready child runs on current thread instead of being submitted.
+ * Like ServiceComb, a failed request is retried up to its retries, or forever if retries is not positive.
+ * If saga is aborted under backward recovery, finished requests are compensated one by one in reverse order of finishing,
+ * and an aborted saga is always reported by exception after that.
+ * </p>
+ */
+@RequiredArgsConstructor
+@Slf4j
+public final class NativeSagaEngine implements SagaEngine {
+    
+    private final ExecutorService executorService;
+    
+    private final TransportFactory<SQLTransport> transportFactory;
+    
+    private final SagaRetryPolicy retryPolicy;
+    
+    private final SagaEventListener eventListener;
+    
+    @Override
+    public void run(final SagaDefinition sagaDefinition) {
+        if (sagaDefinition.getRequests().isEmpty()) {
+            return;
+        }
+        SagaExecution sagaExecution = new SagaExecution(sagaDefinition.getRequests().toArray(new SagaRequest[0]), transportFactory.getTransport());
+        sagaExecution.runTransactions();
+        if (!sagaExecution.aborted) {
+            return;
+        }
+        if (RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY.equals(sagaDefinition.getPolicy())) {
+            sagaExecution.runCompensations();
+        }
+        throw new ShardingException(String.format("Saga is aborted, %d of %d requests finished", sagaExecution.finishedRequests.size(), sagaDefinition.getRequests().size()));
+    }
+    
+    private final class SagaExecution {
+        
+        private final SagaRequest[] requests;
+        
+        private final SQLTransport transport;
+        
+        private final int[][] children;
+        
+        private final AtomicIntegerArray pendingParents;
+        
+        private final CountDownLatch pendingRequests;
+        
+        private final Deque<SagaRequest> finishedRequests = new ConcurrentLinkedDeque<>();
+        
+        private volatile boolean aborted;
+        
+        SagaExecution(final SagaRequest[] requests, final SQLTransport transport) {
+            this.requests = requests;
+            this.transport = transport;
+            children = new int[requests.length][];
+            pendingParents = new AtomicIntegerArray(requests.length);
+            pendingRequests = new CountDownLatch(requests.length);
+            initDependencies();
+        }
+        
+        private void initDependencies() {
+            Map<String, Integer> indexes = new HashMap<>(requests.length * 2);
+            for (int i = 0; i < requests.length; i++) {
+                indexes.put(requests[i].getId(), i);
+            }
+            int[] childrenCounts = new int[requests.length];
+            int[][] parents = new int[requests.length][];
+            for (int i = 0; i < requests.length; i++) {
+                parents[i] = new int[requests[i].getParents().size()];
+                int index = 0;
+                for (String each : requests[i].getParents()) {
+                    Integer parent = indexes.get(each);
+                    if (null == parent) {
+                        throw new ShardingException(String.format("Parent `%s` of saga request `%s` is not found", each, requests[i].getId()));
+                    }
+                    parents[i][index++] = parent;
+                    childrenCounts[parent]++;
+                }
+                pendingParents.set(i, parents[i].length);
+            }
+            for (int i = 0; i < requests.length; i++) {
+                children[i] = new int[childrenCounts[i]];
+            }
+            for (int i = 0; i < requests.length; i++) {
+                for (int each : parents[i]) {
+                    children[each][children[each].length - childrenCounts[each]--] = i;
+                }
+            }
+            checkAcyclic(parents);
+        }
+        
+        private void checkAcyclic(final int[][] parents) {
+            int[] pendingCounts = new int[requests.length];
+            int[] readyIndexes = new int[requests.length];
+            int readyCount = 0;
+            for (int i = 0; i < requests.length; i++) {
+                pendingCounts[i] = parents[i].length;
+                if (0 == pendingCounts[i]) {
+                    readyIndexes[readyCount++] = i;
+                }
+            }
+            for (int cursor = 0; cursor < readyCount; cursor++) {
+                for (int each : children[readyIndexes[cursor]]) {
+                    if (0 == --pendingCounts[each]) {
+                        readyIndexes[readyCount++] = each;
+                    }
+                }
+            }
+            if (readyCount < requests.length) {
+                throw new ShardingException(String.format("Saga requests are circular dependent, %d of %d requests can not be started", requests.length - readyCount, requests.length));
+            }
+        }
+        
+        void runTransactions() {
+            int last = -1;
+            for (int i = 0; i < requests.length; i++) {
+                if (0 == pendingParents.get(i)) {
+                    if (last >= 0) {
+                        submit(last);
+                    }
+                    last = i;
+                }
+            }
+            execute(last);
+            try {
+                pendingRequests.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                aborted = true;
+                log.warn("Interrupted while waiting saga requests to finish");
+            }
+        }
+        
+        void runCompensations() {
+            for (SagaRequest each : finishedRequests) {
+                invoke(each, each.getCompensation(), SagaEventType.COMPENSATION_STARTED, SagaEventType.COMPENSATION_ENDED, SagaEventType.COMPENSATION_ABORTED);
+            }
+        }
+        
+        private void submit(final int index) {
+            executorService.execute(new Runnable() {
+                
+                @Override
+                public void run() {
+                    execute(index);
+                }
+            });
+        }
+        
+        private void execute(final int index) {
+            int current = index;
+            while (current >= 0) {
+                SagaRequest sagaRequest = requests[current];
+                if (!aborted) {
+                    if (invoke(sagaRequest, sagaRequest.getTransaction(), SagaEventType.TRANSACTION_STARTED, SagaEventType.TRANSACTION_ENDED, SagaEventType.TRANSACTION_ABORTED)) {
+                        finishedRequests.push(sagaRequest);
+                    } else {
+                        aborted = true;
+                    }
+                }
+                int next = -1;
+                for (int each : children[current]) {
+                    if (0 == pendingParents.decrementAndGet(each)) {
+                        if (next >= 0) {
+                            submit(next);
+                        }
+                        next = each;
+                    }
+                }
+                pendingRequests.countDown();
+                current = next;
+            }
+        }
+        
+        private boolean invoke(final SagaRequest sagaRequest, final SagaSQLUnit sagaSQLUnit, final SagaEventType startedType, final SagaEventType endedType, final SagaEventType abortedType) {
+            if (Strings.isNullOrEmpty(sagaSQLUnit.getSql())) {
+                return true;
+            }
+            emit(startedType, sagaRequest);
+            SagaSQLOperation operation = new SagaSQLOperation(transport, sagaSQLUnit.getSql(), sagaSQLUnit.getParams(), sagaSQLUnit.getRetries(), retryPolicy);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    operation.send(sagaRequest.getDatasource());
+                    emit(endedType, sagaRequest);
+                    return true;
+                    // CHECKSTYLE:OFF
+                } catch (final RuntimeException ex) {
+                    // CHECKSTYLE:ON
+                    if (!isRetryable(sagaSQLUnit.getRetries(), attempt) || !awaitRetry(sagaRequest)) {
+                        log.warn("Saga request {} of data source {} failed after {} attempts", sagaRequest.getId(), sagaRequest.getDatasource(), attempt, ex);
+                        emit(abortedType, sagaRequest);
+                        return false;
+                    }
+                }
+            }
+        }
+        
+        private boolean isRetryable(final int retries, final int attempt) {
+            return (0 >= retries || attempt <= retries) && !Thread.currentThread().isInterrupted();
+        }
+        
+        private boolean awaitRetry(final SagaRequest sagaRequest) {
+            if (null != retryPolicy || 0 >= sagaRequest.getFailRetryDelayMilliseconds()) {
+                return true;
+            }
+            try {
+                Thread.sleep(sagaRequest.getFailRetryDelayMilliseconds());
+                return true;
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        
+        private void emit(final SagaEventType eventType, final SagaRequest sagaRequest) {
+            if (null != eventListener) {
+                eventListener.onEvent(eventType, sagaRequest);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.engine;
+
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinition;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionHandoff;
+import lombok.RequiredArgsConstructor;
+import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+
+/**
+ * Saga engine backed by ServiceComb saga execution component.
+ */
+@RequiredArgsConstructor
+public final class ServiceCombSagaEngine implements SagaEngine {
+    
+    private final SagaExecutionComponent sagaExecutionComponent;
+    
+    private final SagaDefinitionHandoff sagaDefinitionHandoff;
+    
+    @Override
+    public void run(final SagaDefinition sagaDefinition) {
+        sagaDefinitionHandoff.run(sagaExecutionComponent, sagaDefinition);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.retry;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saga retry policy of exponential backoff with decorrelated jitter and token bucket retry budget per data source.
+ *
+ * <p>
+ * Delay is randomly chosen between base delay and three times of previous delay, and capped by max delay,
+ * so retries of different sagas are spread out instead of hitting data source in lockstep.
+ * Waiting for exhausted retry budget is capped by max delay too, rejected retry still waits max delay.
+ * </p>
+ */
+public final class BackoffSagaRetryPolicy implements SagaRetryPolicy {
+    
+    private final long baseDelayMilliseconds;
+    
+    private final long maxDelayMilliseconds;
+    
+    private final double budgetPermitsPerSecond;
+    
+    private final ConcurrentMap<String, RateLimiter> retryBudgets = new ConcurrentHashMap<>();
+    
+    public BackoffSagaRetryPolicy(final long baseDelayMilliseconds, final long maxDelayMilliseconds, final double budgetPermitsPerSecond) {
+        this.baseDelayMilliseconds = Math.max(1L, baseDelayMilliseconds);
+        this.maxDelayMilliseconds = Math.max(this.baseDelayMilliseconds, maxDelayMilliseconds);
+        this.budgetPermitsPerSecond = budgetPermitsPerSecond;
+    }
+    
+    @Override
+    public boolean tryAcquire(final String dataSourceName) throws InterruptedException {
+        if (getRetryBudget(dataSourceName).tryAcquire(1, maxDelayMilliseconds, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        Thread.sleep(maxDelayMilliseconds);
+        return false;
+    }
+    
+    private RateLimiter getRetryBudget(final String dataSourceName) {
+        RateLimiter result = retryBudgets.get(dataSourceName);
+        if (null == result) {
+            retryBudgets.putIfAbsent(dataSourceName, RateLimiter.create(budgetPermitsPerSecond));
+            result = retryBudgets.get(dataSourceName);
+        }
+        return result;
+    }
+    
+    @Override
+    public long getDelayMilliseconds(final long previousDelayMilliseconds) {
+        long upperBound = Math.max(baseDelayMilliseconds, Math.min(maxDelayMilliseconds, previousDelayMilliseconds * 3));
+        long result = upperBound > baseDelayMilliseconds ? baseDelayMilliseconds + ThreadLocalRandom.current().nextLong(upperBound - baseDelayMilliseconds + 1) : baseDelayMilliseconds;
+        return Math.min(maxDelayMilliseconds, result);
+    }
+}
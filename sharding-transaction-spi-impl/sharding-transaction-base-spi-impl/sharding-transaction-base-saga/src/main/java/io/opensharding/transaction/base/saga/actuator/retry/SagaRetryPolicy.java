@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.retry;
+
+/**
+ * Saga retry policy.
+ */
+public interface SagaRetryPolicy {
+    
+    /**
+     * Try to acquire retry permit of data source.
+     *
+     * <p>
+     * If retry budget is exhausted, current thread waits for a permit instead of failing at once,
+     * so callers retrying without delay are paced by retry budget.
+     * </p>
+     *
+     * @param dataSourceName data source name
+     * @return true if retry is allowed
+     * @throws InterruptedException interrupted while waiting for permit
+     */
+    boolean tryAcquire(String dataSourceName) throws InterruptedException;
+    
+    /**
+     * Get delay before next retry.
+     *
+     * @param previousDelayMilliseconds previous delay milliseconds, 0 for first retry
+     * @return delay milliseconds
+     */
+    long getDelayMilliseconds(long previousDelayMilliseconds);
+}
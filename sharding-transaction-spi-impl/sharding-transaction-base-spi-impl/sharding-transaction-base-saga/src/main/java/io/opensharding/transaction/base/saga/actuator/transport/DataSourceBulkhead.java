@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Data source bulkhead.
+ *
+ * <p>
+ * Each data source owns a compartment with bounded concurrency, request is rejected at once when compartment is full,
+ * so shared saga threads are never blocked by one slow data source, and other data sources could still be compensated.
+ * Rejected request is left to retry of saga.
+ * Concurrency limit of compartment is adaptive: increased by one after a fast success, halved after a failure or a slow execution.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class DataSourceBulkhead {
+    
+    private final int minConcurrency;
+    
+    private final int maxConcurrency;
+    
+    private final long latencyThresholdMilliseconds;
+    
+    private final ConcurrentMap<String, Compartment> compartments = new ConcurrentHashMap<>();
+    
+    /**
+     * Acquire permit of data source.
+     *
+     * @param dataSourceName data source name
+     * @return true if acquired, false if rejected
+     */
+    public boolean acquire(final String dataSourceName) {
+        return getCompartment(dataSourceName).acquire();
+    }
+    
+    /**
+     * Release permit of data source.
+     *
+     * @param dataSourceName data source name
+     * @param elapsedMilliseconds elapsed milliseconds of execution
+     * @param success whether execution succeed or not
+     */
+    public void release(final String dataSourceName, final long elapsedMilliseconds, final boolean success) {
+        getCompartment(dataSourceName).release(success && elapsedMilliseconds <= latencyThresholdMilliseconds);
+    }
+    
+    /**
+     * Get metrics of data source.
+     *
+     * @param dataSourceName data source name
+     * @return bulkhead metrics
+     */
+    public BulkheadMetrics getMetrics(final String dataSourceName) {
+        return getCompartment(dataSourceName).getMetrics();
+    }
+    
+    private Compartment getCompartment(final String dataSourceName) {
+        Compartment result = compartments.get(dataSourceName);
+        if (null == result) {
+            compartments.putIfAbsent(dataSourceName, new Compartment(maxConcurrency));
+            result = compartments.get(dataSourceName);
+        }
+        return result;
+    }
+    
+    private final class Compartment {
+        
+        private int concurrencyLimit;
+        
+        private int activeCount;
+        
+        private long acceptedCount;
+        
+        private long rejectedCount;
+        
+        Compartment(final int concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+        
+        synchronized boolean acquire() {
+            if (activeCount >= concurrencyLimit) {
+                rejectedCount++;
+                return false;
+            }
+            activeCount++;
+            acceptedCount++;
+            return true;
+        }
+        
+        synchronized void release(final boolean healthy) {
+            activeCount--;
+            concurrencyLimit = healthy ? Math.min(maxConcurrency, concurrencyLimit + 1) : Math.max(minConcurrency, concurrencyLimit / 2);
+        }
+        
+        synchronized BulkheadMetrics getMetrics() {
+            return new BulkheadMetrics(concurrencyLimit, activeCount, acceptedCount, rejectedCount);
+        }
+    }
+}
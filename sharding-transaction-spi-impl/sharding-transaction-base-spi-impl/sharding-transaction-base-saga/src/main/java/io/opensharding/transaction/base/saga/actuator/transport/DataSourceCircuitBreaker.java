@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Data source circuit breaker.
+ *
+ * <p>
+ * Each data source owns a circuit, which records outcomes of latest executions in a sliding window.
+ * Execution failed or slower than slow call threshold is a bad call, circuit is opened when rate of bad calls reaches the threshold.
+ * Open circuit rejects executions until open duration elapsed, then becomes half open and allows one probe,
+ * circuit is closed if probe succeed, otherwise opened again.
+ * </p>
+ */
+@RequiredArgsConstructor
+public final class DataSourceCircuitBreaker {
+    
+    private final int windowSize;
+    
+    private final int minimumCalls;
+    
+    private final int badCallRateThreshold;
+    
+    private final long slowCallThresholdMilliseconds;
+    
+    private final long openDurationMilliseconds;
+    
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    
+    /**
+     * Try to acquire permission of executing on data source.
+     *
+     * @param dataSourceName data source name
+     * @return true if permitted, false if circuit is open
+     */
+    public boolean tryAcquire(final String dataSourceName) {
+        return getCircuit(dataSourceName).tryAcquire();
+    }
+    
+    /**
+     * Record outcome of execution on data source.
+     *
+     * @param dataSourceName data source name
+     * @param elapsedMilliseconds elapsed milliseconds of execution
+     * @param success whether execution succeed or not
+     */
+    public void record(final String dataSourceName, final long elapsedMilliseconds, final boolean success) {
+        getCircuit(dataSourceName).record(!success || elapsedMilliseconds > slowCallThresholdMilliseconds);
+    }
+    
+    /**
+     * Release permission acquired on data source without executing, no outcome is recorded.
+     *
+     * @param dataSourceName data source name
+     */
+    public void release(final String dataSourceName) {
+        getCircuit(dataSourceName).release();
+    }
+    
+    /**
+     * Get metrics of data source.
+     *
+     * @param dataSourceName data source name
+     * @return circuit breaker metrics
+     */
+    public CircuitBreakerMetrics getMetrics(final String dataSourceName) {
+        return getCircuit(dataSourceName).getMetrics();
+    }
+    
+    private Circuit getCircuit(final String dataSourceName) {
+        Circuit result = circuits.get(dataSourceName);
+        if (null == result) {
+            circuits.putIfAbsent(dataSourceName, new Circuit());
+            result = circuits.get(dataSourceName);
+        }
+        return result;
+    }
+    
+    /**
+     * Circuit state.
+     */
+    public enum State {
+        
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final class Circuit {
+        
+        private final boolean[] outcomes = new boolean[Math.max(1, windowSize)];
+        
+        private State state = State.CLOSED;
+        
+        private int nextIndex;
+        
+        private int callCount;
+        
+        private int badCallCount;
+        
+        private long openedTime;
+        
+        private boolean probing;
+        
+        private long rejectedCount;
+        
+        synchronized boolean tryAcquire() {
+            if (State.OPEN == state) {
+                if (System.currentTimeMillis() - openedTime < openDurationMilliseconds) {
+                    rejectedCount++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (State.HALF_OPEN == state) {
+                if (probing) {
+                    rejectedCount++;
+                    return false;
+                }
+                probing = true;
+            }
+            return true;
+        }
+        
+        synchronized void release() {
+            if (State.HALF_OPEN == state) {
+                probing = false;
+            }
+        }
+        
+        synchronized void record(final boolean badCall) {
+            if (State.HALF_OPEN == state) {
+                probing = false;
+                transitTo(badCall ? State.OPEN : State.CLOSED);
+                return;
+            }
+            if (State.OPEN == state) {
+                return;
+            }
+            if (callCount == outcomes.length) {
+                badCallCount -= outcomes[nextIndex] ? 1 : 0;
+            } else {
+                callCount++;
+            }
+            outcomes[nextIndex] = badCall;
+            badCallCount += badCall ? 1 : 0;
+            nextIndex = (nextIndex + 1) % outcomes.length;
+            if (callCount >= minimumCalls && badCallCount * 100 >= badCallRateThreshold * callCount) {
+                transitTo(State.OPEN);
+            }
+        }
+        
+        private void transitTo(final State state) {
+            this.state = state;
+            if (State.OPEN == state) {
+                openedTime = System.currentTimeMillis();
+            }
+            nextIndex = 0;
+            callCount = 0;
+            badCallCount = 0;
+        }
+        
+        synchronized CircuitBreakerMetrics getMetrics() {
+            return new CircuitBreakerMetrics(state, callCount, badCallCount, rejectedCount);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import com.google.common.base.Strings;
+import io.opensharding.transaction.base.context.LogicSQLTransaction;
+import io.opensharding.transaction.base.context.SQLTransaction;
+import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.undo.LocalUndoLog;
+import io.opensharding.transaction.base.utils.JDBCUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Local transaction compensator.
+ *
+ * <p>
+ * Revert SQL of all SQL transactions on the same data source are executed in one local transaction before saga runs,
+ * consecutive identical revert SQL are executed as one batch, and local transaction is committed once.
+ * Compensated SQL transactions are skipped by saga transport, SQL transactions of data source failed to compensate are left to saga.
+ * Local undo log of compensated SQL transactions is cleaned in the same local transaction, so recovery never compensates them again.
+ * </p>
+ */
+@RequiredArgsConstructor
+@Slf4j
+public final class LocalTransactionCompensator {
+    
+    private final ShardingSQLTransaction shardingSQLTransaction;
+    
+    private final LocalUndoLog localUndoLog;
+    
+    public LocalTransactionCompensator(final ShardingSQLTransaction shardingSQLTransaction) {
+        this(shardingSQLTransaction, null);
+    }
+    
+    /**
+     * Compensate SQL transactions grouped by data source.
+     */
+    public void compensate() {
+        for (Entry<String, List<SQLTransaction>> entry : groupByDataSource().entrySet()) {
+            Connection connection = shardingSQLTransaction.getCachedConnections().get(entry.getKey());
+            if (null == connection) {
+                continue;
+            }
+            try {
+                compensate(connection, entry.getValue());
+            } catch (final SQLException ex) {
+                log.warn("Compensate SQL transactions of data source `{}` in local transaction failed, they will be compensated by saga", entry.getKey(), ex);
+            }
+        }
+    }
+    
+    private Map<String, List<SQLTransaction>> groupByDataSource() {
+        Map<String, List<SQLTransaction>> result = new LinkedHashMap<>();
+        ListIterator<LogicSQLTransaction> logicSQLTransactions = shardingSQLTransaction.getLogicSQLTransactions().listIterator(shardingSQLTransaction.getLogicSQLTransactions().size());
+        while (logicSQLTransactions.hasPrevious()) {
+            Iterator<SQLTransaction> sqlTransactions = new LinkedList<>(logicSQLTransactions.previous().getSqlTransactions()).descendingIterator();
+            while (sqlTransactions.hasNext()) {
+                SQLTransaction each = sqlTransactions.next();
+                if (isCompensable(each)) {
+                    addSQLTransaction(result, each);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private boolean isCompensable(final SQLTransaction sqlTransaction) {
+        if (sqlTransaction.isCompensated()) {
+            return false;
+        }
+        RevertSQLResult revertSQLResult = sqlTransaction.getRevertSQLResult();
+        return null != revertSQLResult && !Strings.isNullOrEmpty(revertSQLResult.getSql());
+    }
+    
+    private void addSQLTransaction(final Map<String, List<SQLTransaction>> sqlTransactions, final SQLTransaction sqlTransaction) {
+        List<SQLTransaction> dataSourceSQLTransactions = sqlTransactions.get(sqlTransaction.getDataSourceName());
+        if (null == dataSourceSQLTransactions) {
+            dataSourceSQLTransactions = new LinkedList<>();
+            sqlTransactions.put(sqlTransaction.getDataSourceName(), dataSourceSQLTransactions);
+        }
+        dataSourceSQLTransactions.add(sqlTransaction);
+    }
+    
+    private void compensate(final Connection connection, final List<SQLTransaction> sqlTransactions) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            executeRevertSQL(connection, sqlTransactions);
+            cleanLocalUndoLog(connection, sqlTransactions);
+            connection.commit();
+        } catch (final SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        for (SQLTransaction each : sqlTransactions) {
+            each.setCompensated(true);
+        }
+    }
+    
+    private void cleanLocalUndoLog(final Connection connection, final List<SQLTransaction> sqlTransactions) throws SQLException {
+        if (null == localUndoLog) {
+            return;
+        }
+        for (SQLTransaction each : sqlTransactions) {
+            localUndoLog.clean(connection, shardingSQLTransaction.getId(), each.getSqlTransactionId());
+        }
+    }
+    
+    private void executeRevertSQL(final Connection connection, final List<SQLTransaction> sqlTransactions) throws SQLException {
+        String currentSQL = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            for (SQLTransaction each : sqlTransactions) {
+                RevertSQLResult revertSQLResult = each.getRevertSQLResult();
+                if (!revertSQLResult.getSql().equals(currentSQL)) {
+                    executeBatch(preparedStatement);
+                    currentSQL = revertSQLResult.getSql();
+                    preparedStatement = connection.prepareStatement(currentSQL);
+                }
+                addBatch(preparedStatement, revertSQLResult.getParameters());
+            }
+            executeBatch(preparedStatement);
+        } finally {
+            if (null != preparedStatement) {
+                preparedStatement.close();
+            }
+        }
+    }
+    
+    private void addBatch(final PreparedStatement preparedStatement, final Collection<Collection<Object>> parameterSets) throws SQLException {
+        if (parameterSets.isEmpty()) {
+            preparedStatement.addBatch();
+            return;
+        }
+        for (Collection<Object> each : parameterSets) {
+            JDBCUtil.fillParameters(preparedStatement, each);
+            preparedStatement.addBatch();
+        }
+    }
+    
+    private void executeBatch(final PreparedStatement preparedStatement) throws SQLException {
+        if (null != preparedStatement) {
+            preparedStatement.executeBatch();
+            preparedStatement.close();
+        }
+    }
+}
@@ -19,11 +19,16 @@ package io.opensharding.transaction.base.saga.actuator.transport;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
-import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
 import io.opensharding.transaction.base.context.ExecuteStatus;
 import io.opensharding.transaction.base.context.SQLTransaction;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.setbased.RevertDialect;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevertSQL;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevertSQLGenerator;
+import io.opensharding.transaction.base.hook.revert.undo.LocalUndoLog;
+import io.opensharding.transaction.base.utils.JDBCUtil;
+import io.opensharding.transaction.base.utils.SagaParameterCodec;
 import lombok.RequiredArgsConstructor;
 import org.apache.servicecomb.saga.core.SagaResponse;
 import org.apache.servicecomb.saga.core.SuccessfulSagaResponse;
@@ -47,17 +52,109 @@ public final class SagaSQLTransport implements SQLTransport {
     
     private final ShardingSQLTransaction shardingSQLTransaction;
     
+    private final int revertChunkSize;
+    
+    private final LocalUndoLog localUndoLog;
+    
+    private final DataSourceBulkhead dataSourceBulkhead;
+    
+    private final DataSourceCircuitBreaker dataSourceCircuitBreaker;
+    
+    public SagaSQLTransport(final ShardingSQLTransaction shardingSQLTransaction) {
+        this(shardingSQLTransaction, 0);
+    }
+    
+    public SagaSQLTransport(final ShardingSQLTransaction shardingSQLTransaction, final int revertChunkSize) {
+        this(shardingSQLTransaction, revertChunkSize, null);
+    }
+    
+    public SagaSQLTransport(final ShardingSQLTransaction shardingSQLTransaction, final int revertChunkSize, final LocalUndoLog localUndoLog) {
+        this(shardingSQLTransaction, revertChunkSize, localUndoLog, null, null);
+    }
+    
     @Override
     public SagaResponse with(final String datasourceName, final String sql, final List<List<String>> sagaParameters) {
         if (Strings.isNullOrEmpty(sql)) {
             return new SuccessfulSagaResponse("Skip empty transaction/compensation");
         }
-        if (SagaDefinitionFactory.ROLLBACK_TAG.equals(sql)) {
-            shardingSQLTransaction.changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
-            throw new TransportFailedException("Forced Rollback tag has been checked, saga will rollback this transaction");
-        }
         Optional<SQLTransaction> sqlTransaction = shardingSQLTransaction.findSQLTransaction(datasourceName, sql, sagaParameters);
-        return sqlTransaction.isPresent() && isExecuteSQL(sqlTransaction.get().getExecuteStatus()) ? executeSQL(datasourceName, sql, sagaParameters) : new JsonSuccessfulSagaResponse("{}");
+        if (!sqlTransaction.isPresent() || !isExecuteSQL(sqlTransaction.get().getExecuteStatus()) || sqlTransaction.get().isCompensated()) {
+            return new JsonSuccessfulSagaResponse("{}");
+        }
+        acquirePermit(datasourceName);
+        long startTime = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            SagaResponse result = execute(datasourceName, sql, sagaParameters, sqlTransaction.get());
+            if (ExecuteStatus.FAILURE.equals(sqlTransaction.get().getExecuteStatus())) {
+                sqlTransaction.get().setExecuteStatus(ExecuteStatus.SUCCESS);
+            } else if (ExecuteStatus.COMPENSATING.equals(sqlTransaction.get().getExecuteStatus())) {
+                sqlTransaction.get().setCompensated(true);
+            }
+            success = true;
+            return result;
+        } finally {
+            releasePermit(datasourceName, System.currentTimeMillis() - startTime, success);
+        }
+    }
+    
+    private void acquirePermit(final String datasourceName) {
+        if (null != dataSourceCircuitBreaker && !dataSourceCircuitBreaker.tryAcquire(datasourceName)) {
+            throw new TransportFailedException(String.format("Circuit of data source `%s` is open, request rejected: %s", datasourceName, dataSourceCircuitBreaker.getMetrics(datasourceName)));
+        }
+        if (null != dataSourceBulkhead && !dataSourceBulkhead.acquire(datasourceName)) {
+            if (null != dataSourceCircuitBreaker) {
+                dataSourceCircuitBreaker.release(datasourceName);
+            }
+            throw new TransportFailedException(String.format("Data source `%s` is saturated, request rejected by bulkhead: %s", datasourceName, dataSourceBulkhead.getMetrics(datasourceName)));
+        }
+    }
+    
+    private void releasePermit(final String datasourceName, final long elapsedMilliseconds, final boolean success) {
+        if (null != dataSourceBulkhead) {
+            dataSourceBulkhead.release(datasourceName, elapsedMilliseconds, success);
+        }
+        if (null != dataSourceCircuitBreaker) {
+            dataSourceCircuitBreaker.record(datasourceName, elapsedMilliseconds, success);
+        }
+    }
+    
+    private SagaResponse execute(final String datasourceName, final String sql, final List<List<String>> sagaParameters, final SQLTransaction sqlTransaction) {
+        if (null != localUndoLog && ExecuteStatus.COMPENSATING.equals(sqlTransaction.getExecuteStatus()) && executeLocalUndoLog(datasourceName, sqlTransaction)) {
+            return new JsonSuccessfulSagaResponse("{}");
+        }
+        return isSetBasedRevert(sqlTransaction, sql, sagaParameters)
+            ? executeSetBasedRevert(datasourceName, sqlTransaction.getRevertSQLResult()) : executeSQL(datasourceName, sql, sagaParameters);
+    }
+    
+    private boolean isSetBasedRevert(final SQLTransaction sqlTransaction, final String sql, final List<List<String>> sagaParameters) {
+        RevertSQLResult revertSQLResult = sqlTransaction.getRevertSQLResult();
+        return 0 < revertChunkSize && 1 < sagaParameters.size() && ExecuteStatus.COMPENSATING.equals(sqlTransaction.getExecuteStatus())
+            && null != revertSQLResult && null != revertSQLResult.getSetBasedRevert() && sql.equals(revertSQLResult.getSql());
+    }
+    
+    private SagaResponse executeSetBasedRevert(final String datasourceName, final RevertSQLResult revertSQLResult) {
+        Connection connection = getConnection(datasourceName);
+        String currentSQL = revertSQLResult.getSql();
+        try {
+            SetBasedRevertSQLGenerator generator = new SetBasedRevertSQLGenerator(RevertDialect.of(connection.getMetaData().getDatabaseProductName()), revertChunkSize);
+            for (SetBasedRevertSQL each : generator.generate(revertSQLResult.getSetBasedRevert(), revertSQLResult.getParameters())) {
+                currentSQL = each.getSql();
+                JDBCUtil.executeUpdate(connection, each.getSql(), each.getParameters());
+            }
+        } catch (SQLException ex) {
+            throw new TransportFailedException(String.format("Execute set based revert SQL `%s` occur exception. dataSourceName:[%s]", currentSQL, datasourceName), ex);
+        }
+        return new JsonSuccessfulSagaResponse("{}");
+    }
+    
+    private boolean executeLocalUndoLog(final String datasourceName, final SQLTransaction sqlTransaction) {
+        try {
+            return localUndoLog.compensate(getConnection(datasourceName), shardingSQLTransaction.getId(), sqlTransaction.getSqlTransactionId());
+        } catch (SQLException ex) {
+            throw new TransportFailedException(String.format("Compensate with local undo log occur exception. dataSourceName:[%s], branchId:[%s]",
+                datasourceName, sqlTransaction.getSqlTransactionId()), ex);
+        }
     }
     
     private boolean isExecuteSQL(final ExecuteStatus executeStatus) {
@@ -66,12 +163,11 @@ public final class SagaSQLTransport implements SQLTransport {
     }
     
     private SagaResponse executeSQL(final String datasourceName, final String sql, final List<List<String>> sagaParameters) {
-        List<List<Object>> sqlParameters = convertSagaParameters(sagaParameters);
         try (PreparedStatement preparedStatement = getConnection(datasourceName).prepareStatement(sql)) {
-            if (sqlParameters.isEmpty()) {
+            if (sagaParameters.isEmpty()) {
                 preparedStatement.executeUpdate();
             } else {
-                executeBatch(preparedStatement, sqlParameters);
+                executeBatch(preparedStatement, sagaParameters);
             }
         } catch (SQLException ex) {
             throw new TransportFailedException(String.format("Execute SQL `%s` occur exception. dataSourceName:[%s], parameters:[%s]", sql, datasourceName, sagaParameters), ex);
@@ -91,18 +187,10 @@ public final class SagaSQLTransport implements SQLTransport {
         }
     }
     
-    private List<List<Object>> convertSagaParameters(final List<List<String>> sagaParameters) {
-        List<List<Object>> result = Lists.newArrayList();
-        for (List<String> each : sagaParameters) {
-            result.add(Lists.<Object>newArrayList(each));
-        }
-        return result;
-    }
-    
-    private void executeBatch(final PreparedStatement preparedStatement, final List<List<Object>> parameterSets) throws SQLException {
-        for (List<Object> each : parameterSets) {
+    private void executeBatch(final PreparedStatement preparedStatement, final List<List<String>> parameterSets) throws SQLException {
+        for (List<String> each : parameterSets) {
             for (int parameterIndex = 0; parameterIndex < each.size(); parameterIndex++) {
-                preparedStatement.setObject(parameterIndex + 1, each.get(parameterIndex));
+                SagaParameterCodec.bind(preparedStatement, parameterIndex + 1, each.get(parameterIndex));
             }
             preparedStatement.addBatch();
         }
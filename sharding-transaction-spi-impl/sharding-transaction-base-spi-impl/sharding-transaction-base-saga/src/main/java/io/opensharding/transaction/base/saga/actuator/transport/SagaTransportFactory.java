@@ -44,6 +44,8 @@ public final class SagaTransportFactory implements TransportFactory<SQLTransport
     
     @Override
     public SQLTransport getTransport() {
-        return new SagaSQLTransport(ShardingSQLTransactionManager.getInstance().getCurrentTransaction());
+        ShardingSQLTransactionManager transactionManager = ShardingSQLTransactionManager.getInstance();
+        return new SagaSQLTransport(transactionManager.getCurrentTransaction(), transactionManager.getSagaConfiguration().getRevertChunkSize(), transactionManager.getLocalUndoLog().orNull(),
+            transactionManager.getDataSourceBulkhead().orNull(), transactionManager.getDataSourceCircuitBreaker().orNull());
     }
 }
@@ -39,5 +39,59 @@ public final class SagaConfiguration {
     
     private int compensationRetryDelayMilliseconds = 3000;
     
+    private boolean nativeEngineEnabled;
+    
+    private boolean retryBackoffEnabled;
+    
+    private long retryBaseDelayMilliseconds = 100L;
+    
+    private long retryMaxDelayMilliseconds = 10000L;
+    
+    private double retryBudgetPermitsPerSecond = 10D;
+    
+    private boolean bulkheadEnabled;
+    
+    private int bulkheadMinConcurrency = 1;
+    
+    private int bulkheadMaxConcurrency = 4;
+    
+    private long bulkheadLatencyThresholdMilliseconds = 1000L;
+    
+    private boolean circuitBreakerEnabled;
+    
+    private int circuitBreakerWindowSize = 20;
+    
+    private int circuitBreakerMinimumCalls = 10;
+    
+    private int circuitBreakerBadCallRateThreshold = 50;
+    
+    private long circuitBreakerSlowCallThresholdMilliseconds = 3000L;
+    
+    private long circuitBreakerOpenDurationMilliseconds = 30000L;
+    
+    private int revertSQLPlanCacheSize = 1024;
+    
+    private boolean parallelSnapshotEnabled;
+    
+    private int snapshotExecutorSize = 8;
+    
+    private int snapshotFetchSize;
+    
+    private long undoDataMemoryBudgetBytes = 64L * 1024 * 1024;
+    
+    private int revertChunkSize = 500;
+    
+    private boolean localAnchorEnabled;
+    
+    private boolean localUndoLogEnabled;
+    
+    private String undoLogTableName = "undo_log";
+    
+    private String undoLogOwner;
+    
+    private long undoLogRecoveryAgeMilliseconds;
+    
+    private boolean compensationBatchEnabled;
+    
     private SagaPersistenceConfiguration sagaPersistenceConfiguration = new SagaPersistenceConfiguration();
 }
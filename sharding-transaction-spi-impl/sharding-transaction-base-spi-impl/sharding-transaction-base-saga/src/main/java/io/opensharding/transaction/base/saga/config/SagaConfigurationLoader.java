@@ -48,6 +48,68 @@ public final class SagaConfigurationLoader {
     
     private static final String COMPENSATION_RETRY_DELAY_MILLISECONDS = ACTUATOR_PREFIX + "compensation.retry.delay.milliseconds";
     
+    private static final String NATIVE_ENGINE_ENABLED = ACTUATOR_PREFIX + "engine.native.enabled";
+    
+    private static final String RETRY_PREFIX = ACTUATOR_PREFIX + "retry.";
+    
+    private static final String RETRY_BACKOFF_ENABLED = RETRY_PREFIX + "backoff.enabled";
+    
+    private static final String RETRY_BASE_DELAY_MILLISECONDS = RETRY_PREFIX + "base.delay.milliseconds";
+    
+    private static final String RETRY_MAX_DELAY_MILLISECONDS = RETRY_PREFIX + "max.delay.milliseconds";
+    
+    private static final String RETRY_BUDGET_PERMITS_PER_SECOND = RETRY_PREFIX + "budget.permits.per.second";
+    
+    private static final String BULKHEAD_PREFIX = ACTUATOR_PREFIX + "bulkhead.";
+    
+    private static final String BULKHEAD_ENABLED = BULKHEAD_PREFIX + "enabled";
+    
+    private static final String BULKHEAD_MIN_CONCURRENCY = BULKHEAD_PREFIX + "min.concurrency";
+    
+    private static final String BULKHEAD_MAX_CONCURRENCY = BULKHEAD_PREFIX + "max.concurrency";
+    
+    private static final String BULKHEAD_LATENCY_THRESHOLD_MILLISECONDS = BULKHEAD_PREFIX + "latency.threshold.milliseconds";
+    
+    private static final String CIRCUIT_BREAKER_PREFIX = ACTUATOR_PREFIX + "circuit.breaker.";
+    
+    private static final String CIRCUIT_BREAKER_ENABLED = CIRCUIT_BREAKER_PREFIX + "enabled";
+    
+    private static final String CIRCUIT_BREAKER_WINDOW_SIZE = CIRCUIT_BREAKER_PREFIX + "window.size";
+    
+    private static final String CIRCUIT_BREAKER_MINIMUM_CALLS = CIRCUIT_BREAKER_PREFIX + "minimum.calls";
+    
+    private static final String CIRCUIT_BREAKER_BAD_CALL_RATE_THRESHOLD = CIRCUIT_BREAKER_PREFIX + "bad.call.rate.threshold";
+    
+    private static final String CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD_MILLISECONDS = CIRCUIT_BREAKER_PREFIX + "slow.call.threshold.milliseconds";
+    
+    private static final String CIRCUIT_BREAKER_OPEN_DURATION_MILLISECONDS = CIRCUIT_BREAKER_PREFIX + "open.duration.milliseconds";
+    
+    private static final String REVERT_PREFIX = "saga.revert.";
+    
+    private static final String REVERT_SQL_PLAN_CACHE_SIZE = REVERT_PREFIX + "plan.cache.size";
+    
+    private static final String PARALLEL_SNAPSHOT_ENABLED = REVERT_PREFIX + "snapshot.parallel.enabled";
+    
+    private static final String SNAPSHOT_EXECUTOR_SIZE = REVERT_PREFIX + "snapshot.executor.size";
+    
+    private static final String SNAPSHOT_FETCH_SIZE = REVERT_PREFIX + "snapshot.fetch.size";
+    
+    private static final String UNDO_DATA_MEMORY_BUDGET_BYTES = REVERT_PREFIX + "undo.memory.budget.bytes";
+    
+    private static final String REVERT_CHUNK_SIZE = REVERT_PREFIX + "chunk.size";
+    
+    private static final String LOCAL_ANCHOR_ENABLED = REVERT_PREFIX + "local.anchor.enabled";
+    
+    private static final String LOCAL_UNDO_LOG_ENABLED = REVERT_PREFIX + "undo.log.local.enabled";
+    
+    private static final String UNDO_LOG_TABLE_NAME = REVERT_PREFIX + "undo.log.table";
+    
+    private static final String UNDO_LOG_OWNER = REVERT_PREFIX + "undo.log.owner";
+    
+    private static final String UNDO_LOG_RECOVERY_AGE_MILLISECONDS = REVERT_PREFIX + "undo.log.recovery.age.milliseconds";
+    
+    private static final String COMPENSATION_BATCH_ENABLED = REVERT_PREFIX + "compensation.batch.enabled";
+    
     private static final String ENABLED_PERSISTENCE = "saga.persistence.enabled";
     
     private static final String PERSISTENCE_DS_PREFIX = "saga.persistence.ds.";
@@ -113,10 +175,130 @@ public final class SagaConfigurationLoader {
         if (!Strings.isNullOrEmpty(transactionMaxRetries)) {
             result.setCompensationRetryDelayMilliseconds(Integer.parseInt(compensationRetryDelayMilliseconds));
         }
+        String nativeEngineEnabled = sagaProperties.getProperty(NATIVE_ENGINE_ENABLED);
+        if (!Strings.isNullOrEmpty(nativeEngineEnabled)) {
+            result.setNativeEngineEnabled(Boolean.parseBoolean(nativeEngineEnabled));
+        }
+        initRetryProperties(result, sagaProperties);
+        initBulkheadProperties(result, sagaProperties);
+        initCircuitBreakerProperties(result, sagaProperties);
+        String revertSQLPlanCacheSize = sagaProperties.getProperty(REVERT_SQL_PLAN_CACHE_SIZE);
+        if (!Strings.isNullOrEmpty(revertSQLPlanCacheSize)) {
+            result.setRevertSQLPlanCacheSize(Integer.parseInt(revertSQLPlanCacheSize));
+        }
+        String parallelSnapshotEnabled = sagaProperties.getProperty(PARALLEL_SNAPSHOT_ENABLED);
+        if (!Strings.isNullOrEmpty(parallelSnapshotEnabled)) {
+            result.setParallelSnapshotEnabled(Boolean.parseBoolean(parallelSnapshotEnabled));
+        }
+        String snapshotExecutorSize = sagaProperties.getProperty(SNAPSHOT_EXECUTOR_SIZE);
+        if (!Strings.isNullOrEmpty(snapshotExecutorSize)) {
+            result.setSnapshotExecutorSize(Integer.parseInt(snapshotExecutorSize));
+        }
+        String snapshotFetchSize = sagaProperties.getProperty(SNAPSHOT_FETCH_SIZE);
+        if (!Strings.isNullOrEmpty(snapshotFetchSize)) {
+            result.setSnapshotFetchSize(Integer.parseInt(snapshotFetchSize));
+        }
+        String undoDataMemoryBudgetBytes = sagaProperties.getProperty(UNDO_DATA_MEMORY_BUDGET_BYTES);
+        if (!Strings.isNullOrEmpty(undoDataMemoryBudgetBytes)) {
+            result.setUndoDataMemoryBudgetBytes(Long.parseLong(undoDataMemoryBudgetBytes));
+        }
+        String revertChunkSize = sagaProperties.getProperty(REVERT_CHUNK_SIZE);
+        if (!Strings.isNullOrEmpty(revertChunkSize)) {
+            result.setRevertChunkSize(Integer.parseInt(revertChunkSize));
+        }
+        String localAnchorEnabled = sagaProperties.getProperty(LOCAL_ANCHOR_ENABLED);
+        if (!Strings.isNullOrEmpty(localAnchorEnabled)) {
+            result.setLocalAnchorEnabled(Boolean.parseBoolean(localAnchorEnabled));
+        }
+        String localUndoLogEnabled = sagaProperties.getProperty(LOCAL_UNDO_LOG_ENABLED);
+        if (!Strings.isNullOrEmpty(localUndoLogEnabled)) {
+            result.setLocalUndoLogEnabled(Boolean.parseBoolean(localUndoLogEnabled));
+        }
+        String undoLogTableName = sagaProperties.getProperty(UNDO_LOG_TABLE_NAME);
+        if (!Strings.isNullOrEmpty(undoLogTableName)) {
+            result.setUndoLogTableName(undoLogTableName);
+        }
+        String undoLogOwner = sagaProperties.getProperty(UNDO_LOG_OWNER);
+        if (!Strings.isNullOrEmpty(undoLogOwner)) {
+            result.setUndoLogOwner(undoLogOwner);
+        }
+        String undoLogRecoveryAgeMilliseconds = sagaProperties.getProperty(UNDO_LOG_RECOVERY_AGE_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(undoLogRecoveryAgeMilliseconds)) {
+            result.setUndoLogRecoveryAgeMilliseconds(Long.parseLong(undoLogRecoveryAgeMilliseconds));
+        }
+        String compensationBatchEnabled = sagaProperties.getProperty(COMPENSATION_BATCH_ENABLED);
+        if (!Strings.isNullOrEmpty(compensationBatchEnabled)) {
+            result.setCompensationBatchEnabled(Boolean.parseBoolean(compensationBatchEnabled));
+        }
         result.setSagaPersistenceConfiguration(createSagaPersistenceConfiguration(sagaProperties));
         return result;
     }
     
+    private static void initRetryProperties(final SagaConfiguration result, final Properties sagaProperties) {
+        String retryBackoffEnabled = sagaProperties.getProperty(RETRY_BACKOFF_ENABLED);
+        if (!Strings.isNullOrEmpty(retryBackoffEnabled)) {
+            result.setRetryBackoffEnabled(Boolean.parseBoolean(retryBackoffEnabled));
+        }
+        String retryBaseDelayMilliseconds = sagaProperties.getProperty(RETRY_BASE_DELAY_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retryBaseDelayMilliseconds)) {
+            result.setRetryBaseDelayMilliseconds(Long.parseLong(retryBaseDelayMilliseconds));
+        }
+        String retryMaxDelayMilliseconds = sagaProperties.getProperty(RETRY_MAX_DELAY_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(retryMaxDelayMilliseconds)) {
+            result.setRetryMaxDelayMilliseconds(Long.parseLong(retryMaxDelayMilliseconds));
+        }
+        String retryBudgetPermitsPerSecond = sagaProperties.getProperty(RETRY_BUDGET_PERMITS_PER_SECOND);
+        if (!Strings.isNullOrEmpty(retryBudgetPermitsPerSecond)) {
+            result.setRetryBudgetPermitsPerSecond(Double.parseDouble(retryBudgetPermitsPerSecond));
+        }
+    }
+    
+    private static void initBulkheadProperties(final SagaConfiguration result, final Properties sagaProperties) {
+        String bulkheadEnabled = sagaProperties.getProperty(BULKHEAD_ENABLED);
+        if (!Strings.isNullOrEmpty(bulkheadEnabled)) {
+            result.setBulkheadEnabled(Boolean.parseBoolean(bulkheadEnabled));
+        }
+        String bulkheadMinConcurrency = sagaProperties.getProperty(BULKHEAD_MIN_CONCURRENCY);
+        if (!Strings.isNullOrEmpty(bulkheadMinConcurrency)) {
+            result.setBulkheadMinConcurrency(Integer.parseInt(bulkheadMinConcurrency));
+        }
+        String bulkheadMaxConcurrency = sagaProperties.getProperty(BULKHEAD_MAX_CONCURRENCY);
+        if (!Strings.isNullOrEmpty(bulkheadMaxConcurrency)) {
+            result.setBulkheadMaxConcurrency(Integer.parseInt(bulkheadMaxConcurrency));
+        }
+        String bulkheadLatencyThresholdMilliseconds = sagaProperties.getProperty(BULKHEAD_LATENCY_THRESHOLD_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(bulkheadLatencyThresholdMilliseconds)) {
+            result.setBulkheadLatencyThresholdMilliseconds(Long.parseLong(bulkheadLatencyThresholdMilliseconds));
+        }
+    }
+    
+    private static void initCircuitBreakerProperties(final SagaConfiguration result, final Properties sagaProperties) {
+        String circuitBreakerEnabled = sagaProperties.getProperty(CIRCUIT_BREAKER_ENABLED);
+        if (!Strings.isNullOrEmpty(circuitBreakerEnabled)) {
+            result.setCircuitBreakerEnabled(Boolean.parseBoolean(circuitBreakerEnabled));
+        }
+        String circuitBreakerWindowSize = sagaProperties.getProperty(CIRCUIT_BREAKER_WINDOW_SIZE);
+        if (!Strings.isNullOrEmpty(circuitBreakerWindowSize)) {
+            result.setCircuitBreakerWindowSize(Integer.parseInt(circuitBreakerWindowSize));
+        }
+        String circuitBreakerMinimumCalls = sagaProperties.getProperty(CIRCUIT_BREAKER_MINIMUM_CALLS);
+        if (!Strings.isNullOrEmpty(circuitBreakerMinimumCalls)) {
+            result.setCircuitBreakerMinimumCalls(Integer.parseInt(circuitBreakerMinimumCalls));
+        }
+        String circuitBreakerBadCallRateThreshold = sagaProperties.getProperty(CIRCUIT_BREAKER_BAD_CALL_RATE_THRESHOLD);
+        if (!Strings.isNullOrEmpty(circuitBreakerBadCallRateThreshold)) {
+            result.setCircuitBreakerBadCallRateThreshold(Integer.parseInt(circuitBreakerBadCallRateThreshold));
+        }
+        String circuitBreakerSlowCallThresholdMilliseconds = sagaProperties.getProperty(CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(circuitBreakerSlowCallThresholdMilliseconds)) {
+            result.setCircuitBreakerSlowCallThresholdMilliseconds(Long.parseLong(circuitBreakerSlowCallThresholdMilliseconds));
+        }
+        String circuitBreakerOpenDurationMilliseconds = sagaProperties.getProperty(CIRCUIT_BREAKER_OPEN_DURATION_MILLISECONDS);
+        if (!Strings.isNullOrEmpty(circuitBreakerOpenDurationMilliseconds)) {
+            result.setCircuitBreakerOpenDurationMilliseconds(Long.parseLong(circuitBreakerOpenDurationMilliseconds));
+        }
+    }
+    
     private static SagaPersistenceConfiguration createSagaPersistenceConfiguration(final Properties sagaProperties) {
         SagaPersistenceConfiguration result = new SagaPersistenceConfiguration();
         String enabledPersistence = sagaProperties.getProperty(ENABLED_PERSISTENCE);
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.utils;
+
+import com.google.common.io.BaseEncoding;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Saga parameter codec.
+ *
+ * <p>
+ * Saga definition carries SQL parameters as strings, each value is encoded as {@code <marker><tag>:<value>}
+ * so that transport could bind the original JDBC type rather than a string.
+ * The leading marker is a control character which does not appear in SQL parameters,
+ * so strings persisted by earlier versions without marker are always treated as plain string values,
+ * even if they look like {@code <tag>:<value>}.
+ * </p>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SagaParameterCodec {
+    
+    private static final char MARKER = '\u0001';
+    
+    private static final char SEPARATOR = ':';
+    
+    private static final char STRING = 's';
+    
+    private static final char INTEGER = 'i';
+    
+    private static final char LONG = 'l';
+    
+    private static final char DECIMAL = 'd';
+    
+    private static final char DOUBLE = 'D';
+    
+    private static final char FLOAT = 'F';
+    
+    private static final char BOOLEAN = 'b';
+    
+    private static final char TIMESTAMP = 't';
+    
+    private static final char DATE = 'a';
+    
+    private static final char TIME = 'h';
+    
+    private static final char BYTES = 'x';
+    
+    /**
+     * Encode parameter sets.
+     *
+     * @param parameterSets parameter sets
+     * @return encoded parameter sets
+     */
+    public static List<List<String>> encode(final Collection<? extends Collection<Object>> parameterSets) {
+        List<List<String>> result = new ArrayList<>(parameterSets.size());
+        for (Collection<Object> each : parameterSets) {
+            List<String> parameters = new ArrayList<>(each.size());
+            for (Object parameter : each) {
+                parameters.add(encode(parameter));
+            }
+            result.add(parameters);
+        }
+        return result;
+    }
+    
+    /**
+     * Encode parameter.
+     *
+     * @param parameter parameter
+     * @return encoded parameter, null if parameter is null
+     */
+    public static String encode(final Object parameter) {
+        if (null == parameter) {
+            return null;
+        }
+        if (parameter instanceof String) {
+            return tag(STRING, (String) parameter);
+        }
+        if (parameter instanceof Integer || parameter instanceof Short || parameter instanceof Byte) {
+            return tag(INTEGER, parameter.toString());
+        }
+        if (parameter instanceof Long) {
+            return tag(LONG, parameter.toString());
+        }
+        if (parameter instanceof BigDecimal || parameter instanceof BigInteger) {
+            return tag(DECIMAL, parameter.toString());
+        }
+        if (parameter instanceof Double) {
+            return tag(DOUBLE, parameter.toString());
+        }
+        if (parameter instanceof Float) {
+            return tag(FLOAT, parameter.toString());
+        }
+        if (parameter instanceof Boolean) {
+            return tag(BOOLEAN, parameter.toString());
+        }
+        if (parameter instanceof Date) {
+            return tag(DATE, String.valueOf(((Date) parameter).getTime()));
+        }
+        if (parameter instanceof Time) {
+            return tag(TIME, String.valueOf(((Time) parameter).getTime()));
+        }
+        if (parameter instanceof Timestamp) {
+            return tag(TIMESTAMP, ((Timestamp) parameter).getTime() + "," + ((Timestamp) parameter).getNanos());
+        }
+        if (parameter instanceof java.util.Date) {
+            return encode(new Timestamp(((java.util.Date) parameter).getTime()));
+        }
+        if (parameter instanceof byte[]) {
+            return tag(BYTES, BaseEncoding.base64().encode((byte[]) parameter));
+        }
+        return tag(STRING, parameter.toString());
+    }
+    
+    private static String tag(final char tag, final String value) {
+        return String.valueOf(MARKER) + tag + SEPARATOR + value;
+    }
+    
+    /**
+     * Decode parameter sets.
+     *
+     * @param parameterSets encoded parameter sets
+     * @return parameter sets
+     */
+    public static List<Collection<Object>> decode(final List<? extends List<String>> parameterSets) {
+        List<Collection<Object>> result = new ArrayList<>(parameterSets.size());
+        for (List<String> each : parameterSets) {
+            List<Object> parameters = new ArrayList<>(each.size());
+            for (String parameter : each) {
+                parameters.add(decode(parameter));
+            }
+            result.add(parameters);
+        }
+        return result;
+    }
+    
+    /**
+     * Decode parameter.
+     *
+     * @param encoded encoded parameter
+     * @return parameter of original type
+     */
+    public static Object decode(final String encoded) {
+        if (!isTagged(encoded)) {
+            return encoded;
+        }
+        String value = encoded.substring(3);
+        switch (encoded.charAt(1)) {
+            case STRING:
+                return value;
+            case INTEGER:
+                return Integer.valueOf(value);
+            case LONG:
+                return Long.valueOf(value);
+            case DECIMAL:
+                return new BigDecimal(value);
+            case DOUBLE:
+                return Double.valueOf(value);
+            case FLOAT:
+                return Float.valueOf(value);
+            case BOOLEAN:
+                return Boolean.valueOf(value);
+            case TIMESTAMP:
+                return decodeTimestamp(value);
+            case DATE:
+                return new Date(Long.parseLong(value));
+            case TIME:
+                return new Time(Long.parseLong(value));
+            case BYTES:
+                return BaseEncoding.base64().decode(value);
+            default:
+                return encoded;
+        }
+    }
+    
+    private static boolean isTagged(final String encoded) {
+        if (null == encoded || 3 > encoded.length() || MARKER != encoded.charAt(0) || SEPARATOR != encoded.charAt(2)) {
+            return false;
+        }
+        switch (encoded.charAt(1)) {
+            case STRING:
+            case INTEGER:
+            case LONG:
+            case DECIMAL:
+            case DOUBLE:
+            case FLOAT:
+            case BOOLEAN:
+            case TIMESTAMP:
+            case DATE:
+            case TIME:
+            case BYTES:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static Timestamp decodeTimestamp(final String value) {
+        int index = value.indexOf(',');
+        Timestamp result = new Timestamp(Long.parseLong(-1 == index ? value : value.substring(0, index)));
+        if (-1 != index) {
+            result.setNanos(Integer.parseInt(value.substring(index + 1)));
+        }
+        return result;
+    }
+    
+    /**
+     * Bind encoded parameter to prepared statement with its native JDBC type.
+     *
+     * @param preparedStatement prepared statement
+     * @param parameterIndex parameter index, start from 1
+     * @param encoded encoded parameter
+     * @throws SQLException failed to set parameter, throw this exception
+     */
+    public static void bind(final PreparedStatement preparedStatement, final int parameterIndex, final String encoded) throws SQLException {
+        Object parameter = decode(encoded);
+        if (null == parameter) {
+            preparedStatement.setObject(parameterIndex, null);
+        } else if (parameter instanceof String) {
+            preparedStatement.setString(parameterIndex, (String) parameter);
+        } else if (parameter instanceof Integer) {
+            preparedStatement.setInt(parameterIndex, (Integer) parameter);
+        } else if (parameter instanceof Long) {
+            preparedStatement.setLong(parameterIndex, (Long) parameter);
+        } else if (parameter instanceof BigDecimal) {
+            preparedStatement.setBigDecimal(parameterIndex, (BigDecimal) parameter);
+        } else if (parameter instanceof Double) {
+            preparedStatement.setDouble(parameterIndex, (Double) parameter);
+        } else if (parameter instanceof Float) {
+            preparedStatement.setFloat(parameterIndex, (Float) parameter);
+        } else if (parameter instanceof Boolean) {
+            preparedStatement.setBoolean(parameterIndex, (Boolean) parameter);
+        } else if (parameter instanceof Timestamp) {
+            preparedStatement.setTimestamp(parameterIndex, (Timestamp) parameter);
+        } else if (parameter instanceof Date) {
+            preparedStatement.setDate(parameterIndex, (Date) parameter);
+        } else if (parameter instanceof Time) {
+            preparedStatement.setTime(parameterIndex, (Time) parameter);
+        } else if (parameter instanceof byte[]) {
+            preparedStatement.setBytes(parameterIndex, (byte[]) parameter);
+        } else {
+            preparedStatement.setObject(parameterIndex, parameter);
+        }
+    }
+}
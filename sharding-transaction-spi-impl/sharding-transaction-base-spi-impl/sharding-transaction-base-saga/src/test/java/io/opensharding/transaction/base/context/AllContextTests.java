@@ -23,6 +23,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+        LogicSQLTransactionTest.class,
         SQLTransactionTest.class,
         SagaTransactionTest.class
 })
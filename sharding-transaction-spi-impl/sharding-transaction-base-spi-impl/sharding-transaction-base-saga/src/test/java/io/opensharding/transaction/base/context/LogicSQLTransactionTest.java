@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.context;
+
+import com.google.common.base.Optional;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public final class LogicSQLTransactionTest {
+    
+    private final LogicSQLTransaction logicSQLTransaction = new LogicSQLTransaction("sql");
+    
+    private final RouteUnit routeUnit = mock(RouteUnit.class);
+    
+    @Test
+    public void assertAwaitLoadedRevertExecutor() throws InterruptedException, ExecutionException {
+        SQLRevertExecutor sqlRevertExecutor = mock(SQLRevertExecutor.class);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<SQLRevertExecutor>> actual = executorService.submit(new Callable<Optional<SQLRevertExecutor>>() {
+                
+                @Override
+                public Optional<SQLRevertExecutor> call() {
+                    return logicSQLTransaction.awaitLoadedRevertExecutor(routeUnit);
+                }
+            });
+            assertFalse(actual.isDone());
+            logicSQLTransaction.finishLoadingSnapshots(Collections.singletonMap(routeUnit, sqlRevertExecutor));
+            assertThat(actual.get().get(), is(sqlRevertExecutor));
+        } finally {
+            executorService.shutdown();
+        }
+        assertFalse(logicSQLTransaction.awaitLoadedRevertExecutor(routeUnit).isPresent());
+    }
+    
+    @Test
+    public void assertAwaitLoadedRevertExecutorOfUnloadedRouteUnit() {
+        logicSQLTransaction.finishLoadingSnapshots(Collections.<RouteUnit, SQLRevertExecutor>emptyMap());
+        assertFalse(logicSQLTransaction.awaitLoadedRevertExecutor(routeUnit).isPresent());
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertAwaitLoadedRevertExecutorWithLoadFailure() {
+        logicSQLTransaction.failLoadingSnapshots(new SQLException("test"));
+        logicSQLTransaction.awaitLoadedRevertExecutor(routeUnit);
+    }
+}
@@ -17,6 +17,9 @@
 
 package io.opensharding.transaction.base.context;
 
+import com.google.common.base.Optional;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.SQLRevertEngine;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -24,7 +27,12 @@ import java.util.Collection;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public final class SQLTransactionTest {
     
@@ -39,6 +47,28 @@ public final class SQLTransactionTest {
         assertThat(new SQLTransaction(dataSourceName, sql, getMixedParameterSets()).toString(), is(sqlTransaction.toString()));
     }
     
+    @Test
+    public void assertGetRevertSQLResultLazily() {
+        SQLRevertEngine sqlRevertEngine = mock(SQLRevertEngine.class);
+        RevertSQLResult revertSQLResult = new RevertSQLResult("revert-sql");
+        when(sqlRevertEngine.revert()).thenReturn(Optional.of(revertSQLResult));
+        SQLTransaction sqlTransaction = new SQLTransaction(dataSourceName, sql, getStringParameterSets());
+        sqlTransaction.setSqlRevertEngine(sqlRevertEngine);
+        verify(sqlRevertEngine, never()).revert();
+        assertThat(sqlTransaction.getRevertSQLResult(), is(revertSQLResult));
+        assertThat(sqlTransaction.getRevertSQLResult(), is(revertSQLResult));
+        verify(sqlRevertEngine).revert();
+    }
+    
+    @Test
+    public void assertGetRevertSQLResultWithoutRevert() {
+        SQLRevertEngine sqlRevertEngine = mock(SQLRevertEngine.class);
+        when(sqlRevertEngine.revert()).thenReturn(Optional.<RevertSQLResult>absent());
+        SQLTransaction sqlTransaction = new SQLTransaction(dataSourceName, sql, getStringParameterSets());
+        sqlTransaction.setSqlRevertEngine(sqlRevertEngine);
+        assertNull(sqlTransaction.getRevertSQLResult());
+    }
+    
     private List<Collection<Object>> getStringParameterSets() {
         List<Collection<Object>> result = new ArrayList<>();
         List<Object> parameters = new ArrayList<>();
@@ -17,22 +17,32 @@
 
 package io.opensharding.transaction.base.context;
 
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.TableMetas;
 import org.apache.shardingsphere.core.optimize.api.segment.Tables;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.InsertStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
 import org.apache.shardingsphere.core.route.SQLRouteResult;
+import org.apache.shardingsphere.core.route.SQLUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -94,4 +104,114 @@ public final class SagaTransactionTest {
         assertThat(sagaTransaction.getCurrentLogicSQLTransaction().getSqlTransactions().size(), is(1));
         assertFalse(sagaTransaction.isContainsException());
     }
+    
+    @Test
+    public void assertInitLogicSQLTransactionWithAnchorDataSource() {
+        sagaTransaction.setLocalAnchorEnabled(true);
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Collections.singletonList(new RouteUnit("ds_0", new SQLUnit(actualSQL, Collections.emptyList()))));
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        assertTrue(sagaTransaction.isAnchorDataSource("ds_0"));
+        assertFalse(sagaTransaction.isAnchorDataSource("ds_1"));
+        assertFalse(sagaTransaction.isContainsSQLTransaction());
+        sagaTransaction.addSQLTransaction(new SQLTransaction("ds_1", actualSQL, null, ExecuteStatus.SUCCESS));
+        assertTrue(sagaTransaction.isContainsSQLTransaction());
+    }
+    
+    @Test
+    public void assertCacheConnectionGivesUpAnchorDataSource() {
+        sagaTransaction.setLocalAnchorEnabled(true);
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Collections.singletonList(new RouteUnit("ds_0", new SQLUnit(actualSQL, Collections.emptyList()))));
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        sagaTransaction.cacheConnection("ds_0", mock(Connection.class));
+        sagaTransaction.cacheConnection("ds_0", mock(Connection.class));
+        assertFalse(sagaTransaction.isAnchorDataSource("ds_0"));
+        sagaTransaction.nextLogicSQLTransaction("sql2");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        assertFalse(sagaTransaction.isAnchorDataSource("ds_0"));
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertCacheConnectionOnJoinedAnchorDataSource() {
+        sagaTransaction.setLocalAnchorEnabled(true);
+        when(sqlRouteResult.getRouteUnits()).thenReturn(Collections.singletonList(new RouteUnit("ds_0", new SQLUnit(actualSQL, Collections.emptyList()))));
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        sagaTransaction.cacheConnection("ds_0", mock(Connection.class));
+        sagaTransaction.markAnchorJoined();
+        sagaTransaction.cacheConnection("ds_0", mock(Connection.class));
+    }
+    
+    @Test
+    public void assertIsContainsUncompensatedSQLTransaction() {
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        SQLTransaction sqlTransaction = new SQLTransaction("ds_0", actualSQL, null, ExecuteStatus.SUCCESS);
+        sagaTransaction.addSQLTransaction(sqlTransaction);
+        sagaTransaction.addSQLTransaction(new SQLTransaction("ds_1", actualSQL, null, ExecuteStatus.SUCCESS));
+        assertFalse(sagaTransaction.isContainsUncompensatedSQLTransaction());
+        sqlTransaction.setRevertSQLResult(new RevertSQLResult("DELETE FROM t_order_0 WHERE order_id = ?"));
+        assertTrue(sagaTransaction.isContainsUncompensatedSQLTransaction());
+        sqlTransaction.setCompensated(true);
+        assertFalse(sagaTransaction.isContainsUncompensatedSQLTransaction());
+    }
+    
+    @Test
+    public void assertMarkAnchorFailed() {
+        assertFalse(sagaTransaction.isAnchorFailed());
+        sagaTransaction.markAnchorFailed();
+        assertTrue(sagaTransaction.isAnchorFailed());
+    }
+    
+    @Test
+    public void assertChangeSQLTransactionStatus() {
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        SQLTransaction sqlTransaction = new SQLTransaction("", actualSQL, null, ExecuteStatus.EXECUTING);
+        sagaTransaction.addSQLTransaction(sqlTransaction);
+        assertFalse(sagaTransaction.isContainsException());
+        sqlTransaction.setExecuteStatus(ExecuteStatus.FAILURE);
+        assertTrue(sagaTransaction.isContainsException());
+        sqlTransaction.setExecuteStatus(ExecuteStatus.SUCCESS);
+        assertFalse(sagaTransaction.isContainsException());
+        assertThat(sagaTransaction.getExecuteStatusTracker().getCount(ExecuteStatus.SUCCESS), is(1));
+    }
+    
+    @Test
+    public void assertChangeAllLogicTransactionStatus() {
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        SQLTransaction sqlTransaction = new SQLTransaction("", actualSQL, null, ExecuteStatus.SUCCESS);
+        sagaTransaction.addSQLTransaction(sqlTransaction);
+        sagaTransaction.changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
+        assertThat(sqlTransaction.getExecuteStatus(), is(ExecuteStatus.COMPENSATING));
+    }
+    
+    @Test
+    public void assertFindSQLTransaction() {
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        SQLTransaction sqlTransaction = new SQLTransaction("ds_0", actualSQL, Collections.<Collection<Object>>singletonList(Arrays.<Object>asList(1, "init")), ExecuteStatus.FAILURE);
+        sagaTransaction.addSQLTransaction(sqlTransaction);
+        assertThat(sagaTransaction.findSQLTransaction("ds_0", actualSQL, Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001s:init"))).orNull(), is(sqlTransaction));
+        assertFalse(sagaTransaction.findSQLTransaction("ds_0", actualSQL, Collections.singletonList(Arrays.asList("\u0001i:2", "\u0001s:init"))).isPresent());
+        assertFalse(sagaTransaction.findSQLTransaction("ds_1", actualSQL, Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001s:init"))).isPresent());
+    }
+    
+    @Test
+    public void assertFindCompensatingSQLTransaction() {
+        sagaTransaction.nextLogicSQLTransaction("sql1");
+        sagaTransaction.initLogicSQLTransaction(sqlRouteResult, tableMetas);
+        SQLTransaction sqlTransaction = new SQLTransaction("ds_0", actualSQL, Collections.<Collection<Object>>singletonList(Arrays.<Object>asList(1, "init")), ExecuteStatus.SUCCESS);
+        RevertSQLResult revertSQLResult = new RevertSQLResult("REVERT");
+        revertSQLResult.getParameters().add(Arrays.<Object>asList(1, "new"));
+        sqlTransaction.setRevertSQLResult(revertSQLResult);
+        sagaTransaction.addSQLTransaction(sqlTransaction);
+        sagaTransaction.changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
+        assertThat(sagaTransaction.findSQLTransaction("ds_0", "REVERT", Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001s:new"))).orNull(), is(sqlTransaction));
+        assertFalse(sagaTransaction.findSQLTransaction("ds_0", actualSQL, Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001s:init"))).isPresent());
+        sqlTransaction.setCompensated(true);
+        assertFalse(sagaTransaction.findSQLTransaction("ds_0", "REVERT", Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001s:new"))).isPresent());
+    }
 }
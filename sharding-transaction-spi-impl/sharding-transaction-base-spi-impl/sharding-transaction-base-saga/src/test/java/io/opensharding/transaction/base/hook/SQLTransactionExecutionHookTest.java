@@ -21,18 +21,24 @@ import io.opensharding.transaction.base.context.SQLTransaction;
 import io.opensharding.transaction.base.context.ExecuteStatus;
 import io.opensharding.transaction.base.context.LogicSQLTransaction;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.metadata.ActualTableNames;
 import io.opensharding.transaction.base.hook.revert.utils.MockTestUtil;
 import io.opensharding.transaction.base.SagaShardingTransactionManager;
 import lombok.SneakyThrows;
+import org.apache.shardingsphere.core.exception.ShardingException;
 import org.apache.shardingsphere.core.metadata.table.TableMetaData;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingTransparentOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.statement.SQLStatement;
 import org.apache.shardingsphere.core.route.RouteUnit;
+import org.apache.shardingsphere.core.route.SQLRouteResult;
 import org.apache.shardingsphere.spi.database.DataSourceMetaData;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -45,6 +51,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static io.opensharding.transaction.base.utils.Constant.SAGA_TRANSACTION_KEY;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -89,12 +96,43 @@ public class SQLTransactionExecutionHookTest {
         when(shardingSQLTransaction.getCachedConnections()).thenReturn(cachedConnections);
         SQLStatement sqlStatement = MockTestUtil.mockDeleteStatement("t_order");
         ShardingOptimizedStatement optimizedStatement = new ShardingTransparentOptimizedStatement(sqlStatement);
-        when(logicSQLTransaction.getSqlRouteResult()).thenReturn(MockTestUtil.mockSQLRouteResult(optimizedStatement, "ds", "t_order", "t_order_0"));
+        SQLRouteResult sqlRouteResult = MockTestUtil.mockSQLRouteResult(optimizedStatement, "ds", "t_order", "t_order_0");
+        when(logicSQLTransaction.getSqlRouteResult()).thenReturn(sqlRouteResult);
+        when(logicSQLTransaction.getActualTableNames()).thenReturn(new ActualTableNames(sqlRouteResult.getRoutingResult().getRoutingUnits()));
         RouteUnit routeUnit = MockTestUtil.mockRouteUnit("ds", "delete from t_order_0 where c1=? and c2=? and c3=?", Arrays.<Object>asList(1, 2, 3));
         sqlExecutionHook.start(routeUnit, dataSourceMetaData, true, shardingExecuteDataMap);
         verify(shardingSQLTransaction).addSQLTransaction(any(SQLTransaction.class));
     }
     
+    @Test
+    public void assertStartWithAnchorDataSource() throws SQLException {
+        when(logicSQLTransaction.isWritableTransaction()).thenReturn(true);
+        shardingExecuteDataMap.put(SAGA_TRANSACTION_KEY, shardingSQLTransaction);
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        cachedConnections.put("ds", connection);
+        when(shardingSQLTransaction.getCachedConnections()).thenReturn(cachedConnections);
+        when(shardingSQLTransaction.isAnchorDataSource("ds")).thenReturn(true);
+        RouteUnit routeUnit = MockTestUtil.mockRouteUnit("ds", "delete from t_order_0 where c1=? and c2=? and c3=?", Arrays.<Object>asList(1, 2, 3));
+        sqlExecutionHook.start(routeUnit, dataSourceMetaData, true, shardingExecuteDataMap);
+        verify(connection).setAutoCommit(false);
+        verify(shardingSQLTransaction).markAnchorJoined();
+        verify(shardingSQLTransaction, never()).addSQLTransaction(any(SQLTransaction.class));
+    }
+    
+    @Test
+    public void assertFinishFailureWithAnchorDataSource() throws SQLException {
+        when(logicSQLTransaction.isWritableTransaction()).thenReturn(true);
+        shardingExecuteDataMap.put(SAGA_TRANSACTION_KEY, shardingSQLTransaction);
+        cachedConnections.put("ds", mock(Connection.class));
+        when(shardingSQLTransaction.getCachedConnections()).thenReturn(cachedConnections);
+        when(shardingSQLTransaction.isAnchorDataSource("ds")).thenReturn(true);
+        RouteUnit routeUnit = MockTestUtil.mockRouteUnit("ds", "delete from t_order_0 where c1=? and c2=? and c3=?", Arrays.<Object>asList(1, 2, 3));
+        sqlExecutionHook.start(routeUnit, dataSourceMetaData, true, shardingExecuteDataMap);
+        sqlExecutionHook.finishFailure(new SQLException("failed"));
+        verify(shardingSQLTransaction).markAnchorFailed();
+    }
+    
     @Test
     public void assertStartWithoutTransaction() {
         sqlExecutionHook.start(mock(RouteUnit.class), dataSourceMetaData, true, shardingExecuteDataMap);
@@ -114,6 +152,29 @@ public class SQLTransactionExecutionHookTest {
         verify(sqlTransaction).setExecuteStatus(ExecuteStatus.SUCCESS);
     }
     
+    @Test
+    public void assertFinishSuccessWithoutGeneratedKeys() {
+        setBranchTransaction();
+        InsertSQLRevertExecutor sqlRevertExecutor = mock(InsertSQLRevertExecutor.class);
+        setField("sqlRevertExecutor", sqlRevertExecutor);
+        try {
+            sqlExecutionHook.finishSuccess();
+            fail("Expected ShardingException");
+        } catch (final ShardingException ignored) {
+            verify(sqlTransaction).setSqlRevertEngine(null);
+        }
+    }
+    
+    @Test
+    public void assertFinishSuccessWithGeneratedKeys() {
+        setBranchTransaction();
+        InsertSQLRevertExecutor sqlRevertExecutor = mock(InsertSQLRevertExecutor.class);
+        when(sqlRevertExecutor.acceptGeneratedKeys(ArgumentMatchers.<Object>anyCollection())).thenReturn(true);
+        setField("sqlRevertExecutor", sqlRevertExecutor);
+        sqlExecutionHook.finishSuccess();
+        verify(sqlTransaction, never()).setSqlRevertEngine(null);
+    }
+    
     @Test
     public void assertFinishFailure() {
         setBranchTransaction();
@@ -121,10 +182,32 @@ public class SQLTransactionExecutionHookTest {
         verify(sqlTransaction).setExecuteStatus(ExecuteStatus.FAILURE);
     }
     
-    @SneakyThrows
+    @Test
+    public void assertFinishSuccessRegistersRowImages() {
+        setBranchTransaction();
+        UpdateSQLRevertExecutor sqlRevertExecutor = mock(UpdateSQLRevertExecutor.class);
+        setField("sqlRevertExecutor", sqlRevertExecutor);
+        sqlExecutionHook.finishSuccess();
+        verify(sqlRevertExecutor).registerRowImages();
+    }
+    
+    @Test
+    public void assertFinishFailureWithoutRegisteringRowImages() {
+        setBranchTransaction();
+        UpdateSQLRevertExecutor sqlRevertExecutor = mock(UpdateSQLRevertExecutor.class);
+        setField("sqlRevertExecutor", sqlRevertExecutor);
+        sqlExecutionHook.finishFailure(mock(Exception.class));
+        verify(sqlRevertExecutor, never()).registerRowImages();
+    }
+    
     private void setBranchTransaction() {
-        Field field = sqlExecutionHook.getClass().getDeclaredField("sqlTransaction");
+        setField("sqlTransaction", sqlTransaction);
+    }
+    
+    @SneakyThrows
+    private void setField(final String fieldName, final Object value) {
+        Field field = sqlExecutionHook.getClass().getDeclaredField(fieldName);
         field.setAccessible(true);
-        field.set(sqlExecutionHook, sqlTransaction);
+        field.set(sqlExecutionHook, value);
     }
 }
\ No newline at end of file
@@ -18,10 +18,12 @@
 package io.opensharding.transaction.base.hook.revert.executor;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.Lists;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
 import io.opensharding.transaction.base.hook.revert.snapshot.DeleteSnapshotAccessor;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -29,9 +31,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
@@ -50,24 +51,21 @@ public class DeleteSQLRevertExecutorTest {
     
     private DeleteSQLRevertExecutor deleteSQLRevertExecutor;
     
-    private List<Map<String, Object>> undoData = Lists.newLinkedList();
+    private UndoData undoData = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList("order_id", "user_id", "status"));
     
     private RevertSQLResult revertSQLResult = new RevertSQLResult("");
     
     @Before
     public void setUp() throws SQLException {
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getRevertSQLPlan()).thenReturn(new RevertSQLPlan());
         when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
         addUndoData();
     }
     
     private void addUndoData() {
         for (int i = 1; i <= 10; i++) {
-            Map<String, Object> record = new HashMap<>();
-            record.put("order_id", i);
-            record.put("user_id", i);
-            record.put("status", "init");
-            undoData.add(record);
+            undoData.add(i, i, "init");
         }
     }
     
@@ -81,7 +79,7 @@ public class DeleteSQLRevertExecutorTest {
     
     @Test
     public void assertGenerateRevertSQLWithoutUndoData() throws SQLException {
-        when(snapshotAccessor.queryUndoData()).thenReturn(Lists.<Map<String, Object>>newLinkedList());
+        when(snapshotAccessor.queryUndoData()).thenReturn(new UndoData(new UndoDataBudget(Long.MAX_VALUE), Collections.<String>emptyList()));
         deleteSQLRevertExecutor = new DeleteSQLRevertExecutor(executorContext, snapshotAccessor);
         Optional<String> actual = deleteSQLRevertExecutor.revertSQL();
         assertFalse(actual.isPresent());
@@ -18,6 +18,8 @@
 package io.opensharding.transaction.base.hook.revert.executor;
 
 import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoRecord;
 import org.apache.shardingsphere.core.optimize.api.segment.InsertValue;
 import org.apache.shardingsphere.core.optimize.sharding.statement.dml.ShardingInsertOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.ExpressionSegment;
@@ -31,11 +33,12 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -101,7 +104,7 @@ public class InsertSQLRevertContextTest {
         primaryKeys.add("user_id");
         InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement);
         assertThat(sqlRevertContext.getPrimaryKeyInsertValues().size(), is(10));
-        for (Map<String, Object> each : sqlRevertContext.getPrimaryKeyInsertValues()) {
+        for (UndoRecord each : sqlRevertContext.getPrimaryKeyInsertValues()) {
             assertThat(each.get("user_id"), CoreMatchers.<Object>is(1));
         }
     }
@@ -112,7 +115,7 @@ public class InsertSQLRevertContextTest {
         primaryKeys.add("user_id");
         InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement);
         assertThat(sqlRevertContext.getPrimaryKeyInsertValues().size(), is(10));
-        for (Map<String, Object> each : sqlRevertContext.getPrimaryKeyInsertValues()) {
+        for (UndoRecord each : sqlRevertContext.getPrimaryKeyInsertValues()) {
             assertThat(each.get("order_id"), CoreMatchers.<Object>is(0));
             assertThat(each.get("user_id"), CoreMatchers.<Object>is(1));
         }
@@ -123,4 +126,46 @@ public class InsertSQLRevertContextTest {
         InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement);
         assertTrue(sqlRevertContext.getPrimaryKeyInsertValues().isEmpty());
     }
+    
+    @Test
+    public void assertFillGeneratedKeys() {
+        primaryKeys.add("id");
+        InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement);
+        assertTrue(sqlRevertContext.fillGeneratedKeys(Arrays.<Object>asList(1L, 2L)));
+        assertThat(sqlRevertContext.getPrimaryKeyInsertValues().getColumnNames(), is(Collections.singletonList("id")));
+        assertThat(sqlRevertContext.getPrimaryKeyInsertValues().size(), is(2));
+    }
+    
+    @Test
+    public void assertFillGeneratedKeysWithPrimaryKeyInserted() {
+        primaryKeys.add("user_id");
+        InsertSQLRevertContext sqlRevertContext = new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement);
+        assertFalse(sqlRevertContext.fillGeneratedKeys(Collections.<Object>singletonList(1L)));
+        assertThat(sqlRevertContext.getPrimaryKeyInsertValues().size(), is(10));
+    }
+    
+    @Test
+    public void assertGeneratedKeysAcceptable() {
+        primaryKeys.add("id");
+        assertTrue(new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement).isGeneratedKeysAcceptable());
+    }
+    
+    @Test
+    public void assertGeneratedKeysNotAcceptableWithMultiPrimaryKeys() {
+        primaryKeys.add("id");
+        primaryKeys.add("tenant_id");
+        assertFalse(new InsertSQLRevertContext(dataSourceName, tableName, primaryKeys, shardingInsertOptimizedStatement).isGeneratedKeysAcceptable());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void assertCreateInsertSQLRevertExecutorWithoutPrimaryKeyValues() {
+        primaryKeys.add("id");
+        primaryKeys.add("tenant_id");
+        SQLRevertExecutorContext executorContext = mock(SQLRevertExecutorContext.class);
+        when(executorContext.getDataSourceName()).thenReturn(dataSourceName);
+        when(executorContext.getActualTableName()).thenReturn(tableName);
+        when(executorContext.getPrimaryKeyColumns()).thenReturn(primaryKeys);
+        when(executorContext.getShardingStatement()).thenReturn(shardingInsertOptimizedStatement);
+        new InsertSQLRevertExecutor(executorContext);
+    }
 }
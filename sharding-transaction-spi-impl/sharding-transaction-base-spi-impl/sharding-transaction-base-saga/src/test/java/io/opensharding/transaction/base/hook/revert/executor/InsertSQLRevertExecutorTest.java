@@ -21,6 +21,8 @@ import com.google.common.base.Optional;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertContext;
 import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
 import lombok.SneakyThrows;
 import org.hamcrest.CoreMatchers;
 import org.junit.Before;
@@ -29,11 +31,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -57,14 +57,14 @@ public class InsertSQLRevertExecutorTest {
         insertSQLRevertExecutor = new InsertSQLRevertExecutor(revertSQLContext);
     }
     
-    private Collection<Map<String, Object>> mockPrimaryKeyInsertValues(final int count, final String... primaryKeys) {
-        Collection<Map<String, Object>> result = new LinkedList<>();
+    private UndoData mockPrimaryKeyInsertValues(final int count, final String... primaryKeys) {
+        UndoData result = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList(primaryKeys));
         for (int i = 1; i <= count; i++) {
-            Map<String, Object> primaryKeyInsertValue = new LinkedHashMap<>();
-            for (String each : primaryKeys) {
-                primaryKeyInsertValue.put(each, each + "_" + i);
+            Object[] primaryKeyInsertValue = new Object[primaryKeys.length];
+            for (int j = 0; j < primaryKeys.length; j++) {
+                primaryKeyInsertValue[j] = primaryKeys[j] + "_" + i;
             }
-            if (!primaryKeyInsertValue.isEmpty()) {
+            if (0 != primaryKeyInsertValue.length) {
                 result.add(primaryKeyInsertValue);
             }
         }
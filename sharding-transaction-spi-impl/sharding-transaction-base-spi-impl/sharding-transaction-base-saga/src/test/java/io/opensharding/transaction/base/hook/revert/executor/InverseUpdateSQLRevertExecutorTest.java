@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.executor;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.executor.update.InverseUpdateSQLRevertContext;
+import io.opensharding.transaction.base.hook.revert.executor.update.InverseUpdateSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
+import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.AssignmentSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.SetAssignmentsSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.column.ColumnSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.ExpressionSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.complex.CommonExpressionSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.expr.simple.ParameterMarkerExpressionSegment;
+import org.apache.shardingsphere.core.parse.sql.segment.dml.predicate.WhereSegment;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
+import org.hamcrest.CoreMatchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InverseUpdateSQLRevertExecutorTest {
+    
+    @Mock
+    private SQLRevertExecutorContext executorContext;
+    
+    @Mock
+    private ShardingOptimizedStatement shardingOptimizedStatement;
+    
+    @Mock
+    private UpdateStatement updateStatement;
+    
+    @Mock
+    private SetAssignmentsSegment setAssignmentsSegment;
+    
+    @Mock
+    private UpdateSnapshotAccessor snapshotAccessor;
+    
+    private Collection<AssignmentSegment> assignments = new LinkedList<>();
+    
+    @Before
+    public void setUp() {
+        when(executorContext.getShardingStatement()).thenReturn(shardingOptimizedStatement);
+        when(shardingOptimizedStatement.getSQLStatement()).thenReturn(updateStatement);
+        when(updateStatement.getSetAssignment()).thenReturn(setAssignmentsSegment);
+        when(setAssignmentsSegment.getAssignments()).thenReturn(assignments);
+    }
+    
+    @Test
+    public void assertRevertAdditiveParameterAssignment() {
+        String sql = "update t_account set balance = balance + ? where account_id = ?";
+        mockInvertibleUpdateStatement(sql, Arrays.<Object>asList(100, 1), 1, "balance = balance + ?");
+        Optional<InverseUpdateSQLRevertContext> revertContext = InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor);
+        assertTrue(revertContext.isPresent());
+        InverseUpdateSQLRevertExecutor actual = new InverseUpdateSQLRevertExecutor(executorContext, revertContext.get());
+        assertThat(actual.revertSQL().get(), is("UPDATE t_account_0 SET balance = balance - ? where account_id = ? "));
+        RevertSQLResult revertSQLResult = new RevertSQLResult(actual.revertSQL().get());
+        actual.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(1));
+        assertThat(Lists.newArrayList(revertSQLResult.getParameters().iterator().next()), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(100, 1)));
+    }
+    
+    @Test
+    public void assertRevertSubtractiveLiteralAssignments() {
+        String sql = "update t_account set balance = balance - 5, version = version + 1 where account_id = ?";
+        mockInvertibleUpdateStatement(sql, Arrays.<Object>asList(1), 1, "balance = balance - 5", "version = version + 1");
+        Optional<InverseUpdateSQLRevertContext> revertContext = InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor);
+        assertTrue(revertContext.isPresent());
+        InverseUpdateSQLRevertExecutor actual = new InverseUpdateSQLRevertExecutor(executorContext, revertContext.get());
+        assertThat(actual.revertSQL().get(), is("UPDATE t_account_0 SET balance = balance + 5, version = version - 1 where account_id = ? "));
+        assertThat(revertContext.get().getParameters(), CoreMatchers.<List<Collection<Object>>>is(Collections.<Collection<Object>>singletonList(Arrays.<Object>asList(1))));
+    }
+    
+    @Test
+    public void assertRevertBatchAssignments() {
+        String sql = "update t_account set balance = balance + ? where account_id = ?";
+        mockInvertibleUpdateStatement(sql, Arrays.<Object>asList(100, 1, 200, 2), 2, "balance = balance + ?");
+        Optional<InverseUpdateSQLRevertContext> revertContext = InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor);
+        assertTrue(revertContext.isPresent());
+        InverseUpdateSQLRevertExecutor actual = new InverseUpdateSQLRevertExecutor(executorContext, revertContext.get());
+        RevertSQLResult revertSQLResult = new RevertSQLResult(actual.revertSQL().get());
+        actual.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(2));
+        Iterator<Collection<Object>> parameters = revertSQLResult.getParameters().iterator();
+        assertThat(Lists.newArrayList(parameters.next()), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(100, 1)));
+        assertThat(Lists.newArrayList(parameters.next()), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(200, 2)));
+    }
+    
+    @Test
+    public void assertNotInvertibleWithNullOperandOfBatch() {
+        String sql = "update t_account set balance = balance + ? where account_id = ?";
+        mockUpdateStatement(sql, Arrays.<Object>asList(100, 1, null, 2), 2, "balance = balance + ?");
+        assertFalse(InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor).isPresent());
+    }
+    
+    @Test
+    public void assertNotInvertibleWithInexactColumn() {
+        String sql = "update t_account set balance = balance + ? where account_id = ?";
+        mockUpdateStatement(sql, Arrays.<Object>asList(0.1, 1), 1, "balance = balance + ?");
+        when(executorContext.getInexactColumns()).thenReturn(Collections.singletonList("BALANCE"));
+        assertFalse(InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor).isPresent());
+    }
+    
+    @Test
+    public void assertNotInvertibleWithParameterMarkerAssignment() {
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "balance"), new ParameterMarkerExpressionSegment(0, 0, 0)));
+        when(executorContext.getBatchSize()).thenReturn(1);
+        when(snapshotAccessor.findPrimaryKeyValues()).thenReturn(Optional.<List<Object>>of(Collections.<Object>singletonList(1)));
+        assertFalse(InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor).isPresent());
+    }
+    
+    @Test
+    public void assertNotInvertibleWithoutPrimaryKeyWhereClause() {
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "balance"), new CommonExpressionSegment(0, 0, "balance + ?")));
+        when(snapshotAccessor.findPrimaryKeyValues()).thenReturn(Optional.<List<Object>>absent());
+        assertFalse(InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor).isPresent());
+    }
+    
+    @Test
+    public void assertNotInvertibleWithOtherColumnExpression() {
+        String sql = "update t_account set balance = frozen + ? where account_id = ?";
+        mockUpdateStatement(sql, Arrays.<Object>asList(100, 1), 1, "balance = frozen + ?");
+        assertFalse(InverseUpdateSQLRevertContext.newInstance(executorContext, snapshotAccessor).isPresent());
+    }
+    
+    private void mockUpdateStatement(final String logicSQL, final List<Object> parameters, final int batchSize, final String... assignmentTexts) {
+        when(snapshotAccessor.findPrimaryKeyValues()).thenReturn(Optional.<List<Object>>of(Collections.<Object>singletonList(parameters.get(parameters.size() / batchSize - 1))));
+        when(executorContext.getLogicSQL()).thenReturn(logicSQL);
+        when(executorContext.getParameters()).thenReturn(parameters);
+        when(executorContext.getBatchSize()).thenReturn(batchSize);
+        when(executorContext.getPrimaryKeyColumns()).thenReturn(Lists.newArrayList("account_id"));
+        for (String each : assignmentTexts) {
+            String columnName = each.substring(0, each.indexOf(" = "));
+            String expressionText = each.substring(each.indexOf(" = ") + 3);
+            int expressionStartIndex = logicSQL.indexOf(each) + each.indexOf(expressionText);
+            ExpressionSegment expressionSegment = new CommonExpressionSegment(expressionStartIndex, expressionStartIndex + expressionText.length() - 1, expressionText);
+            assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, columnName), expressionSegment));
+        }
+    }
+    
+    private void mockInvertibleUpdateStatement(final String logicSQL, final List<Object> parameters, final int batchSize, final String... assignmentTexts) {
+        mockUpdateStatement(logicSQL, parameters, batchSize, assignmentTexts);
+        when(executorContext.getActualTableName()).thenReturn("t_account_0");
+        when(executorContext.getLogicTableName()).thenReturn("t_account");
+        when(executorContext.getRevertSQLPlan()).thenReturn(new RevertSQLPlan());
+        int whereStartIndex = logicSQL.indexOf("where");
+        when(updateStatement.getWhere()).thenReturn(Optional.of(new WhereSegment(whereStartIndex, logicSQL.length() - 1, 1)));
+    }
+}
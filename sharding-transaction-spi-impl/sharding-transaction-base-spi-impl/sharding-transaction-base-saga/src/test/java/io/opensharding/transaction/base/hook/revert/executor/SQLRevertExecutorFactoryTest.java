@@ -21,6 +21,7 @@ import com.google.common.base.Optional;
 import io.opensharding.transaction.base.hook.revert.executor.delete.DeleteSQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
 import io.opensharding.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.optimize.sharding.statement.dml.ShardingInsertOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.SetAssignmentsSegment;
@@ -101,6 +102,7 @@ public class SQLRevertExecutorFactoryTest {
     public void assertNewSQLRevertExecutor() {
         when(executorContext.getShardingStatement()).thenReturn(shardingInsertOptimizedStatement);
         when(shardingInsertOptimizedStatement.getSQLStatement()).thenReturn(insertStatement);
+        when(executorContext.getPrimaryKeyColumns()).thenReturn(primaryKeyColumns);
         SQLRevertExecutor actual = SQLRevertExecutorFactory.newInstance(executorContext);
         assertThat(actual, instanceOf(InsertSQLRevertExecutor.class));
     }
@@ -109,6 +111,7 @@ public class SQLRevertExecutorFactoryTest {
     public void assertNewDeleteSQLRevertExecutor() throws SQLException {
         when(shardingStatement.getSQLStatement()).thenReturn(deleteStatement);
         when(executorContext.getConnection()).thenReturn(connection);
+        when(executorContext.getRevertSQLPlan()).thenReturn(new RevertSQLPlan());
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
         when(resultSet.getMetaData()).thenReturn(resultSetMetaData);
@@ -120,6 +123,7 @@ public class SQLRevertExecutorFactoryTest {
     public void assertNewUpdateSQLRevertExecutor() throws SQLException {
         when(shardingStatement.getSQLStatement()).thenReturn(updateStatement);
         when(executorContext.getConnection()).thenReturn(connection);
+        when(executorContext.getRevertSQLPlan()).thenReturn(new RevertSQLPlan());
         when(executorContext.getPrimaryKeyColumns()).thenReturn(primaryKeyColumns);
         when(executorContext.getParameters()).thenReturn(Arrays.<Object>asList(1, 2, 3));
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
@@ -19,8 +19,12 @@ package io.opensharding.transaction.base.hook.revert.executor;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import io.opensharding.transaction.base.context.RowImageRegistry;
 import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
 import io.opensharding.transaction.base.hook.revert.executor.update.UpdateSQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoData;
+import io.opensharding.transaction.base.hook.revert.snapshot.UndoDataBudget;
 import io.opensharding.transaction.base.hook.revert.snapshot.UpdateSnapshotAccessor;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.assignment.AssignmentSegment;
@@ -43,14 +47,15 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -77,7 +82,7 @@ public class UpdateSQLRevertExecutorTest {
     
     private List<Object> parameters = new LinkedList<>();
     
-    private List<Map<String, Object>> undoData = Lists.newLinkedList();
+    private final RowImageRegistry rowImageRegistry = new RowImageRegistry();
     
     private UpdateSQLRevertExecutor sqlRevertExecutor;
     
@@ -85,12 +90,14 @@ public class UpdateSQLRevertExecutorTest {
     public void setUp() throws SQLException {
         when(updateStatement.getSetAssignment()).thenReturn(setAssignmentsSegment);
         when(setAssignmentsSegment.getAssignments()).thenReturn(assignments);
-        when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
         when(executorContext.getShardingStatement()).thenReturn(shardingOptimizedStatement);
         when(shardingOptimizedStatement.getSQLStatement()).thenReturn(updateStatement);
         when(executorContext.getParameters()).thenReturn(parameters);
         when(executorContext.getActualTableName()).thenReturn("t_order_0");
+        when(executorContext.getRevertSQLPlan()).thenReturn(new RevertSQLPlan());
         when(executorContext.getPrimaryKeyColumns()).thenReturn(Lists.newLinkedList(Collections.singleton("order_id")));
+        when(executorContext.getRowImageRegistry()).thenReturn(rowImageRegistry);
+        when(snapshotAccessor.findPrimaryKeyValues()).thenReturn(Optional.<List<Object>>absent());
     }
     
     private void setUpdateAssignments(final String tableName, String... columns) {
@@ -111,14 +118,16 @@ public class UpdateSQLRevertExecutorTest {
         }
     }
     
-    private void setSnapshot(final int count, String... columns) {
+    private void setSnapshot(final int count, String... columns) throws SQLException {
+        UndoData undoData = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList(columns));
         for (int i = 1; i <= count; i++) {
-            Map<String, Object> record = new HashMap<>();
-            for (String each : columns) {
-                record.put(each, each + "_" + i);
+            Object[] record = new Object[columns.length];
+            for (int j = 0; j < columns.length; j++) {
+                record[j] = columns[j] + "_" + i;
             }
             undoData.add(record);
         }
+        when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
     }
     
     @Test
@@ -206,4 +215,110 @@ public class UpdateSQLRevertExecutorTest {
             offset++;
         }
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void assertRevertSQLWithImagedPrimaryKey() throws SQLException {
+        when(executorContext.getDataSourceName()).thenReturn("ds_0");
+        when(snapshotAccessor.findPrimaryKeyValues()).thenReturn(Optional.<List<Object>>of(Collections.<Object>singletonList(1L)));
+        rowImageRegistry.registerImage("ds_0", "t_order_0", Collections.<Object>singletonList(1), Arrays.asList("user_id", "status"));
+        setUpdateAssignments("t_order", "status");
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertFalse(sqlRevertExecutor.revertSQL().isPresent());
+        verify(snapshotAccessor, never()).queryUndoData();
+    }
+    
+    @Test
+    public void assertRevertSQLWithImagedPrimaryKeyOfBatch() throws SQLException {
+        when(executorContext.getBatchSize()).thenReturn(2);
+        when(executorContext.getDataSourceName()).thenReturn("ds_0");
+        rowImageRegistry.registerImage("ds_0", "t_order_0", Collections.<Object>singletonList("order_id_1"), Collections.singletonList("status"));
+        setUpdateAssignments("t_order", "status");
+        setSnapshot(2, "status", "order_id");
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        verify(snapshotAccessor).queryUndoData();
+        verify(snapshotAccessor, never()).findPrimaryKeyValues();
+        sqlRevertExecutor.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(2));
+    }
+    
+    @Test
+    public void assertFillParametersWithCoalescedRows() throws SQLException {
+        when(executorContext.getDataSourceName()).thenReturn("ds_0");
+        rowImageRegistry.registerImage("ds_0", "t_order_0", Collections.<Object>singletonList("order_id_2"), Collections.singletonList("status"));
+        setUpdateAssignments("t_order", "status");
+        setSnapshot(3, "status", "order_id");
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertTrue(sqlRevertExecutor.revertSQL().isPresent());
+        sqlRevertExecutor.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(2));
+        List<Collection<Object>> actual = Lists.newArrayList(revertSQLResult.getParameters());
+        assertThat(actual.get(0), CoreMatchers.<Collection<Object>>is(Arrays.<Object>asList("status_1", "order_id_1")));
+        assertThat(actual.get(1), CoreMatchers.<Collection<Object>>is(Arrays.<Object>asList("status_3", "order_id_3")));
+    }
+    
+    @Test
+    public void assertRevertSQLAfterFailedUpdateOfSameRow() throws SQLException {
+        when(executorContext.getDataSourceName()).thenReturn("ds_0");
+        setUpdateAssignments("t_order", "status");
+        setSnapshot(1, "status", "order_id");
+        new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertTrue(sqlRevertExecutor.revertSQL().isPresent());
+        sqlRevertExecutor.registerRowImages();
+        assertFalse(new UpdateSQLRevertExecutor(executorContext, snapshotAccessor).revertSQL().isPresent());
+    }
+    
+    @Test
+    public void assertRevertSQLWithAllRowsCoalesced() throws SQLException {
+        rowImageRegistry.registerInsertedRow(null, "t_order_0", Collections.<Object>singletonList("order_id_1"));
+        setUpdateAssignments("t_order", "status");
+        setSnapshot(1, "status", "order_id");
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertFalse(sqlRevertExecutor.revertSQL().isPresent());
+    }
+    
+    @Test
+    public void assertRevertSQLWithUnchangedRowsAndColumns() throws SQLException {
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "status"), new ParameterMarkerExpressionSegment(0, 0, 0)));
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "user_id"), new LiteralExpressionSegment(0, 0, 1L)));
+        parameters.add("paid");
+        UndoData undoData = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList("status", "user_id", "order_id"));
+        undoData.add("init", 1, 1);
+        undoData.add("paid", 1, 2);
+        when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertThat(sqlRevertExecutor.revertSQL().get(), is("UPDATE t_order_0 SET status = ? WHERE order_id = ?"));
+        sqlRevertExecutor.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(1));
+        assertThat(revertSQLResult.getParameters().iterator().next(), CoreMatchers.<Collection<Object>>is(Arrays.<Object>asList("init", 1)));
+    }
+    
+    @Test
+    public void assertRevertSQLWithAllRowsUnchanged() throws SQLException {
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "status"), new ParameterMarkerExpressionSegment(0, 0, 0)));
+        parameters.add("paid");
+        UndoData undoData = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList("status", "order_id"));
+        undoData.add("paid", 1);
+        when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertFalse(sqlRevertExecutor.revertSQL().isPresent());
+    }
+    
+    @Test
+    public void assertRevertSQLWithBatchUnchangedRows() throws SQLException {
+        assignments.add(new AssignmentSegment(0, 0, new ColumnSegment(0, 0, "status"), new ParameterMarkerExpressionSegment(0, 0, 0)));
+        parameters.add("paid");
+        parameters.add(1);
+        parameters.add("closed");
+        parameters.add(2);
+        when(executorContext.getBatchSize()).thenReturn(2);
+        UndoData undoData = new UndoData(new UndoDataBudget(Long.MAX_VALUE), Arrays.asList("status", "order_id"));
+        undoData.add("paid", 1);
+        undoData.add("paid", 2);
+        when(snapshotAccessor.queryUndoData()).thenReturn(undoData);
+        sqlRevertExecutor = new UpdateSQLRevertExecutor(executorContext, snapshotAccessor);
+        assertThat(sqlRevertExecutor.revertSQL().get(), is("UPDATE t_order_0 SET status = ? WHERE order_id = ?"));
+        sqlRevertExecutor.fillParameters(revertSQLResult);
+        assertThat(revertSQLResult.getParameters().size(), is(2));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.keygen;
+
+import com.google.common.base.Suppliers;
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GeneratedKeysConnectionProxyTest {
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    @Mock
+    private Statement statement;
+    
+    @Mock
+    private ResultSet resultSet;
+    
+    @Mock
+    private ResultSetMetaData resultSetMetaData;
+    
+    private Connection connectionProxy;
+    
+    @Before
+    public void setUp() {
+        connectionProxy = GeneratedKeysConnectionProxy.newInstance(connection);
+    }
+    
+    @After
+    public void tearDown() {
+        GeneratedKeysHolder.poll();
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysOfPreparedStatement() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.getHoldability()).thenReturn(ResultSet.HOLD_CURSORS_OVER_COMMIT);
+        when(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(preparedStatement);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(resultSetMetaData);
+        when(resultSetMetaData.getColumnCount()).thenReturn(1);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getObject(1)).thenReturn(1L, 2L);
+        GeneratedKeysHolder.arm("order_id");
+        connectionProxy.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT).executeBatch();
+        verify(preparedStatement).executeBatch();
+        assertThat(GeneratedKeysHolder.poll(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(1L, 2L)));
+    }
+    
+    @Test
+    public void assertNotCaptureGeneratedKeysWithoutArmed() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(preparedStatement);
+        connectionProxy.prepareStatement(sql).executeUpdate();
+        verify(preparedStatement, never()).getGeneratedKeys();
+        assertTrue(GeneratedKeysHolder.poll().isEmpty());
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysOfStatement() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (1, 'init')";
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.getGeneratedKeys()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(resultSetMetaData);
+        when(resultSetMetaData.getColumnCount()).thenReturn(1);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getObject(1)).thenReturn(1L);
+        GeneratedKeysHolder.arm("order_id");
+        connectionProxy.createStatement().executeUpdate(sql);
+        verify(statement).executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+        assertThat(GeneratedKeysHolder.poll(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(1L)));
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysByColumnName() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(preparedStatement);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(createGeneratedKeys());
+        GeneratedKeysHolder.arm("ORDER_ID");
+        connectionProxy.prepareStatement(sql).executeUpdate();
+        assertThat(GeneratedKeysHolder.poll(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(1L, 2L)));
+    }
+    
+    @Test
+    public void assertPrepareStatementWithOtherHoldability() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.getHoldability()).thenReturn(ResultSet.HOLD_CURSORS_OVER_COMMIT);
+        when(connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.CLOSE_CURSORS_AT_COMMIT)).thenReturn(preparedStatement);
+        assertThat(connectionProxy.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.CLOSE_CURSORS_AT_COMMIT), is(preparedStatement));
+        verify(connection, never()).prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysRequestedByFlag() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(preparedStatement);
+        assertCaptureRequestedGeneratedKeys(connectionProxy.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS));
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysRequestedByColumnIndexes() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        int[] columnIndexes = new int[]{2};
+        when(connection.prepareStatement(sql, columnIndexes)).thenReturn(preparedStatement);
+        assertCaptureRequestedGeneratedKeys(connectionProxy.prepareStatement(sql, columnIndexes));
+    }
+    
+    @Test
+    public void assertCaptureGeneratedKeysRequestedByColumnNames() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        String[] columnNames = new String[]{"order_id"};
+        when(connection.prepareStatement(sql, columnNames)).thenReturn(preparedStatement);
+        assertCaptureRequestedGeneratedKeys(connectionProxy.prepareStatement(sql, columnNames));
+    }
+    
+    private void assertCaptureRequestedGeneratedKeys(final PreparedStatement actual) throws SQLException {
+        when(preparedStatement.getGeneratedKeys()).thenReturn(createGeneratedKeys());
+        GeneratedKeysHolder.arm("order_id");
+        actual.executeUpdate();
+        assertThat(GeneratedKeysHolder.poll(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(1L, 2L)));
+        ResultSet generatedKeys = actual.getGeneratedKeys();
+        assertTrue(generatedKeys.next());
+        assertThat(generatedKeys.getLong("order_id"), is(1L));
+        assertTrue(generatedKeys.next());
+        assertThat(generatedKeys.getLong("order_id"), is(2L));
+        assertFalse(generatedKeys.next());
+    }
+    
+    @Test
+    public void assertPrepareStatementWithoutCapturing() throws SQLException {
+        String sql = "INSERT INTO t_order_0 (user_id, status) VALUES (?, ?)";
+        when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        Connection actual = GeneratedKeysConnectionProxy.newInstance(connection, Suppliers.ofInstance(false));
+        assertThat(actual.prepareStatement(sql), is(preparedStatement));
+        verify(connection, never()).prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+    
+    @Test
+    public void assertCreateStatementWithoutCapturing() throws SQLException {
+        when(connection.createStatement()).thenReturn(statement);
+        Connection actual = GeneratedKeysConnectionProxy.newInstance(connection, Suppliers.ofInstance(false));
+        assertThat(actual.createStatement(), is(statement));
+    }
+    
+    @Test
+    public void assertNewInstanceWithVendorConnection() {
+        assertTrue(GeneratedKeysConnectionProxy.newInstance(mock(VendorConnection.class)) instanceof VendorConnection);
+    }
+    
+    @Test
+    public void assertPrepareStatementWithoutInsert() throws SQLException {
+        String sql = "UPDATE t_order_0 SET status = ? WHERE order_id = ?";
+        when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        assertThat(connectionProxy.prepareStatement(sql), is(preparedStatement));
+    }
+    
+    @Test
+    public void assertNewInstanceWithProxy() {
+        assertThat(GeneratedKeysConnectionProxy.newInstance(connectionProxy), is(connectionProxy));
+    }
+    
+    private CachedRowSet createGeneratedKeys() throws SQLException {
+        CachedRowSet result = RowSetProvider.newFactory().createCachedRowSet();
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(2);
+        metaData.setColumnName(1, "user_id");
+        metaData.setColumnLabel(1, "user_id");
+        metaData.setColumnType(1, Types.BIGINT);
+        metaData.setColumnName(2, "order_id");
+        metaData.setColumnLabel(2, "order_id");
+        metaData.setColumnType(2, Types.BIGINT);
+        result.setMetaData(metaData);
+        for (long i = 1; i <= 2; i++) {
+            result.moveToInsertRow();
+            result.updateLong(1, i * 10);
+            result.updateLong(2, i);
+            result.insertRow();
+        }
+        result.moveToCurrentRow();
+        result.beforeFirst();
+        return result;
+    }
+    
+    public interface VendorConnection extends Connection {
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.metadata;
+
+import io.opensharding.transaction.base.hook.revert.utils.MockTestUtil;
+import org.apache.shardingsphere.core.metadata.column.ColumnMetaData;
+import org.apache.shardingsphere.core.metadata.table.TableMetaData;
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public final class RevertTableMetaDataCacheTest {
+    
+    private final RevertTableMetaDataCache revertTableMetaDataCache = new RevertTableMetaDataCache();
+    
+    @Test
+    public void assertGet() {
+        TableMetaData tableMetaData = MockTestUtil.mockTableMetaData("status");
+        MockTestUtil.addPrimaryKeyColumn(tableMetaData, "order_id");
+        RevertTableMetaData actual = revertTableMetaDataCache.get(tableMetaData);
+        assertThat(actual.getPrimaryKeyColumns(), CoreMatchers.<List<String>>is(Collections.singletonList("order_id")));
+        assertThat(revertTableMetaDataCache.get(tableMetaData), sameInstance(actual));
+    }
+    
+    @Test
+    public void assertGetInexactColumns() {
+        TableMetaData tableMetaData = MockTestUtil.mockTableMetaData("status");
+        tableMetaData.getColumns().put("amount", new ColumnMetaData("amount", "DOUBLE", false));
+        tableMetaData.getColumns().put("price", new ColumnMetaData("price", "DECIMAL", false));
+        assertThat(new ArrayList<>(revertTableMetaDataCache.get(tableMetaData).getInexactColumns()), CoreMatchers.<List<String>>is(Collections.singletonList("amount")));
+    }
+    
+    @Test
+    public void assertGetWithRefreshedTableMetaData() {
+        TableMetaData tableMetaData = MockTestUtil.mockTableMetaData("status");
+        RevertTableMetaData actual = revertTableMetaDataCache.get(tableMetaData);
+        assertThat(revertTableMetaDataCache.get(MockTestUtil.mockTableMetaData("status")), not(sameInstance(actual)));
+    }
+    
+    @Test
+    public void assertFindActualTableName() {
+        ActualTableNames actualTableNames = new ActualTableNames(
+            MockTestUtil.mockSQLRouteResult(null, "ds_0", "t_order", "t_order_1").getRoutingResult().getRoutingUnits());
+        assertThat(actualTableNames.find("DS_0", "T_ORDER").get(), is("t_order_1"));
+        assertFalse(actualTableNames.find("ds_1", "t_order").isPresent());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.plan;
+
+import io.opensharding.transaction.base.hook.revert.metadata.RevertTableMetaData;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.DeleteStatement;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.UpdateStatement;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public final class RevertSQLPlanCacheTest {
+    
+    private final RevertSQLPlanCache revertSQLPlanCache = new RevertSQLPlanCache(2);
+    
+    private final RevertTableMetaData tableMetaData = mock(RevertTableMetaData.class);
+    
+    @Test
+    public void assertGetSameRevertSQLPlan() {
+        RevertSQLPlan actual = revertSQLPlanCache.getRevertSQLPlan("DELETE FROM t_order WHERE order_id = ?", "t_order_0", new DeleteStatement(), tableMetaData);
+        assertThat(revertSQLPlanCache.getRevertSQLPlan("DELETE FROM t_order WHERE order_id = ?", "t_order_0", new DeleteStatement(), tableMetaData), sameInstance(actual));
+        assertThat(revertSQLPlanCache.getRevertSQLPlan("DELETE FROM t_order WHERE order_id = ?", "t_order_1", new DeleteStatement(), tableMetaData), not(sameInstance(actual)));
+    }
+    
+    @Test
+    public void assertGetRevertSQLPlanWithDifferentStatementType() {
+        RevertSQLPlan actual = revertSQLPlanCache.getRevertSQLPlan("SQL", "t_order_0", new DeleteStatement(), tableMetaData);
+        assertThat(revertSQLPlanCache.getRevertSQLPlan("SQL", "t_order_0", new UpdateStatement(), tableMetaData), not(sameInstance(actual)));
+    }
+    
+    @Test
+    public void assertGetRevertSQLPlanWithRefreshedTableMetaData() {
+        RevertSQLPlan actual = revertSQLPlanCache.getRevertSQLPlan("DELETE FROM t_order WHERE order_id = ?", "t_order_0", new DeleteStatement(), tableMetaData);
+        RevertTableMetaData refreshedTableMetaData = mock(RevertTableMetaData.class);
+        assertThat(revertSQLPlanCache.getRevertSQLPlan("DELETE FROM t_order WHERE order_id = ?", "t_order_0", new DeleteStatement(), refreshedTableMetaData), not(sameInstance(actual)));
+    }
+    
+    @Test
+    public void assertCacheIsBounded() {
+        for (int i = 0; i < 10; i++) {
+            revertSQLPlanCache.getRevertSQLPlan("SQL" + i, "t_order_0", new DeleteStatement(), tableMetaData);
+        }
+        assertTrue(revertSQLPlanCache.size() <= 2);
+    }
+    
+    @Test
+    public void assertPrepareSnapshot() {
+        RevertSQLPlan actual = new RevertSQLPlan();
+        assertFalse(actual.isSnapshotPrepared());
+        actual.prepareSnapshot("SELECT * FROM t_order_0 WHERE order_id = ?", new int[]{2});
+        assertTrue(actual.isSnapshotPrepared());
+        List<Object> parameters = Arrays.<Object>asList("init", 10, 1);
+        Collection<Object> snapshotParameters = actual.bindSnapshotParameters(parameters);
+        assertThat(snapshotParameters.size(), is(1));
+        assertThat(snapshotParameters.iterator().next(), is((Object) 1));
+    }
+    
+    @Test
+    public void assertBindAllSnapshotParameters() {
+        RevertSQLPlan actual = new RevertSQLPlan();
+        actual.prepareSnapshot("SELECT * FROM t_order_0 WHERE order_id = ?", null);
+        List<Object> parameters = Arrays.<Object>asList(1, 2);
+        assertThat(actual.bindSnapshotParameters(parameters), is((Collection<Object>) parameters));
+    }
+    
+    @Test
+    public void assertGetPlaceholderCount() {
+        RevertSQLPlan actual = new RevertSQLPlan();
+        assertThat(actual.getPlaceholderCount("INSERT INTO t_order_0 VALUES (?, ?)"), is(2));
+        assertThat(actual.getPlaceholderCount("INSERT INTO t_order_0 VALUES (?, ?)"), is(2));
+        assertThat(actual.getPlaceholderCount("INSERT INTO t_order_0 VALUES (?, ?), (?, ?)"), is(4));
+    }
+}
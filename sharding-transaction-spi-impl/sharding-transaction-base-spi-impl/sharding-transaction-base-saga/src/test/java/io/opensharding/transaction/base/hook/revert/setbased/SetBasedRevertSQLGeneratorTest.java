@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.setbased;
+
+import com.google.common.collect.Lists;
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public final class SetBasedRevertSQLGeneratorTest {
+    
+    @Test
+    public void assertGenerateDeleteBySingleKey() {
+        SetBasedRevert revert = SetBasedRevert.deleteByKeys("t_order_0", Collections.singletonList("order_id"));
+        Iterator<SetBasedRevertSQL> actual = new SetBasedRevertSQLGenerator(RevertDialect.MYSQL, 2).generate(revert, createRows(3, 1)).iterator();
+        SetBasedRevertSQL first = actual.next();
+        assertThat(first.getSql(), is("DELETE FROM t_order_0 WHERE order_id IN (?, ?)"));
+        assertThat(first.getParameters(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList("1_0", "2_0")));
+        assertThat(actual.next().getSql(), is("DELETE FROM t_order_0 WHERE order_id IN (?)"));
+        assertFalse(actual.hasNext());
+    }
+    
+    @Test
+    public void assertGenerateDeleteByCompositeKeys() {
+        SetBasedRevert revert = SetBasedRevert.deleteByKeys("t_order_0", Arrays.asList("order_id", "user_id"));
+        SetBasedRevertSQL actual = new SetBasedRevertSQLGenerator(RevertDialect.MYSQL, 10).generate(revert, createRows(2, 2)).iterator().next();
+        assertThat(actual.getSql(), is("DELETE FROM t_order_0 WHERE (order_id = ? AND user_id = ?) OR (order_id = ? AND user_id = ?)"));
+        assertThat(actual.getParameters(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList("1_0", "1_1", "2_0", "2_1")));
+    }
+    
+    @Test
+    public void assertGenerateMultiRowInsert() {
+        SetBasedRevert revert = SetBasedRevert.insertRows("t_order_0", 2);
+        SetBasedRevertSQL actual = new SetBasedRevertSQLGenerator(RevertDialect.MYSQL, 10).generate(revert, createRows(2, 2)).iterator().next();
+        assertThat(actual.getSql(), is("INSERT INTO t_order_0 VALUES (?,?), (?,?)"));
+        assertThat(actual.getParameters().size(), is(4));
+    }
+    
+    @Test
+    public void assertGenerateOracleInsertAll() {
+        SetBasedRevert revert = SetBasedRevert.insertRows("t_order_0", 2);
+        SetBasedRevertSQL actual = new SetBasedRevertSQLGenerator(RevertDialect.ORACLE, 10).generate(revert, createRows(2, 2)).iterator().next();
+        assertThat(actual.getSql(), is("INSERT ALL INTO t_order_0 VALUES (?,?) INTO t_order_0 VALUES (?,?) SELECT 1 FROM DUAL"));
+    }
+    
+    @Test
+    public void assertGenerateCaseUpdateWithKeyAssignedLast() {
+        SetBasedRevert revert = SetBasedRevert.updateByKeys("t_order_0", Arrays.asList("order_id", "status"), Collections.singletonList("order_id"));
+        SetBasedRevertSQL actual = new SetBasedRevertSQLGenerator(RevertDialect.MYSQL, 10).generate(revert, createRows(2, 3)).iterator().next();
+        assertThat(actual.getSql(), is("UPDATE t_order_0 SET status = CASE WHEN order_id = ? THEN ? WHEN order_id = ? THEN ? ELSE status END, "
+            + "order_id = CASE WHEN order_id = ? THEN ? WHEN order_id = ? THEN ? ELSE order_id END WHERE order_id IN (?, ?)"));
+        assertThat(actual.getParameters(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList("1_2", "1_1", "2_2", "2_1", "1_2", "1_0", "2_2", "2_0", "1_2", "2_2")));
+    }
+    
+    @Test
+    public void assertGetChunkRowsWithDialectLimits() {
+        SetBasedRevert revert = SetBasedRevert.insertRows("t_order_0", 10);
+        assertThat(new SetBasedRevertSQLGenerator(RevertDialect.SQLSERVER, 5000).getChunkRows(revert), is(200));
+        assertThat(new SetBasedRevertSQLGenerator(RevertDialect.ORACLE, 5000).getChunkRows(revert), is(1000));
+        assertThat(new SetBasedRevertSQLGenerator(RevertDialect.MYSQL, 500).getChunkRows(revert), is(500));
+    }
+    
+    @Test
+    public void assertDialectOf() {
+        assertThat(RevertDialect.of("MySQL"), is(RevertDialect.MYSQL));
+        assertThat(RevertDialect.of("PostgreSQL"), is(RevertDialect.POSTGRESQL));
+        assertThat(RevertDialect.of("Microsoft SQL Server"), is(RevertDialect.SQLSERVER));
+        assertThat(RevertDialect.of("Oracle"), is(RevertDialect.ORACLE));
+        assertThat(RevertDialect.of(null), is(RevertDialect.OTHER));
+    }
+    
+    private List<Collection<Object>> createRows(final int rowCount, final int columnCount) {
+        List<Collection<Object>> result = new ArrayList<>(rowCount);
+        for (int i = 1; i <= rowCount; i++) {
+            List<Object> row = Lists.newArrayList();
+            for (int j = 0; j < columnCount; j++) {
+                row.add(i + "_" + j);
+            }
+            result.add(row);
+        }
+        return result;
+    }
+}
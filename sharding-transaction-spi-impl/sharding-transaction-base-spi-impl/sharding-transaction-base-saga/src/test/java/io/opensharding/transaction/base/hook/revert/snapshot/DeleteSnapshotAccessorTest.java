@@ -19,6 +19,7 @@ package io.opensharding.transaction.base.hook.revert.snapshot;
 
 import com.google.common.base.Optional;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
 import org.apache.shardingsphere.core.parse.sql.segment.dml.predicate.WhereSegment;
 import org.apache.shardingsphere.core.parse.sql.statement.dml.DeleteStatement;
@@ -34,6 +35,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -74,6 +76,8 @@ public class DeleteSnapshotAccessorTest {
     
     private List<Object> parameters = new LinkedList<>();
     
+    private final RevertSQLPlan revertSQLPlan = new RevertSQLPlan();
+    
     private DeleteSnapshotAccessor deleteSnapshotAccessor;
     
     @Before
@@ -86,6 +90,7 @@ public class DeleteSnapshotAccessorTest {
         when(whereSegment.getStopIndex()).thenReturn(37);
         when(deleteStatement.getWhere()).thenReturn(Optional.of(whereSegment));
         when(executorContext.getConnection()).thenReturn(connection);
+        when(executorContext.getRevertSQLPlan()).thenReturn(revertSQLPlan);
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
         when(resultSet.getMetaData()).thenReturn(resultSetMetaData);
@@ -107,4 +112,24 @@ public class DeleteSnapshotAccessorTest {
         deleteSnapshotAccessor.queryUndoData();
         verify(connection).prepareStatement("SELECT * FROM t_order_0 WHERE order_id = ? ");
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void assertQueryBatchUndoData() throws SQLException {
+        when(executorContext.getBatchSize()).thenReturn(2);
+        when(executorContext.getParameters()).thenReturn(Arrays.<Object>asList(1, 2));
+        deleteSnapshotAccessor.queryUndoData();
+        verify(connection).prepareStatement("SELECT * FROM t_order_0 WHERE (order_id = ?) OR (order_id = ?) ");
+        verify(preparedStatement).setObject(1, 1);
+        verify(preparedStatement).setObject(2, 2);
+        assertThat(revertSQLPlan.getBatchSnapshotSQL(2), is("SELECT * FROM t_order_0 WHERE (order_id = ?) OR (order_id = ?) "));
+    }
+    
+    @Test
+    public void assertQueryBatchUndoDataWithPreparedBatchSnapshotSQL() throws SQLException {
+        when(executorContext.getBatchSize()).thenReturn(2);
+        when(executorContext.getParameters()).thenReturn(Arrays.<Object>asList(1, 2));
+        revertSQLPlan.prepareBatchSnapshotSQL(2, "SELECT * FROM t_order_0 WHERE order_id IN (?, ?)");
+        deleteSnapshotAccessor.queryUndoData();
+        verify(connection).prepareStatement("SELECT * FROM t_order_0 WHERE order_id IN (?, ?)");
+    }
+}
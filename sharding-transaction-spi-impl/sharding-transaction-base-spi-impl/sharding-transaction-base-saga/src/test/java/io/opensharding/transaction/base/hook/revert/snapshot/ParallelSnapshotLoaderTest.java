@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutor;
+import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.executor.insert.InsertSQLRevertExecutor;
+import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
+import org.apache.shardingsphere.core.optimize.sharding.statement.dml.ShardingInsertOptimizedStatement;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.DMLStatement;
+import org.apache.shardingsphere.core.parse.sql.statement.dml.InsertStatement;
+import org.apache.shardingsphere.core.route.RouteUnit;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public final class ParallelSnapshotLoaderTest {
+    
+    private final ParallelSnapshotLoader parallelSnapshotLoader = new ParallelSnapshotLoader(2);
+    
+    @Test
+    public void assertLoad() {
+        SQLRevertExecutorContext context1 = mockInsertContext("ds_0");
+        SQLRevertExecutorContext context2 = mockInsertContext("ds_0");
+        SQLRevertExecutorContext context3 = mockInsertContext("ds_1");
+        Map<RouteUnit, SQLRevertExecutor> actual = parallelSnapshotLoader.load(Arrays.asList(context1, context2, context3));
+        assertThat(actual.size(), is(3));
+        assertThat(actual.get(context1.getRouteUnit()), instanceOf(InsertSQLRevertExecutor.class));
+        assertThat(actual.get(context2.getRouteUnit()), instanceOf(InsertSQLRevertExecutor.class));
+        assertThat(actual.get(context3.getRouteUnit()), instanceOf(InsertSQLRevertExecutor.class));
+    }
+    
+    @Test
+    public void assertLoadWithoutContext() {
+        assertTrue(parallelSnapshotLoader.load(Collections.<SQLRevertExecutorContext>emptyList()).isEmpty());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void assertLoadFailure() {
+        SQLRevertExecutorContext unsupportedContext = mock(SQLRevertExecutorContext.class);
+        ShardingOptimizedStatement shardingStatement = mock(ShardingOptimizedStatement.class);
+        when(shardingStatement.getSQLStatement()).thenReturn(mock(DMLStatement.class));
+        when(unsupportedContext.getShardingStatement()).thenReturn(shardingStatement);
+        when(unsupportedContext.getDataSourceName()).thenReturn("ds_1");
+        parallelSnapshotLoader.load(Arrays.asList(mockInsertContext("ds_0"), unsupportedContext));
+    }
+    
+    private SQLRevertExecutorContext mockInsertContext(final String dataSourceName) {
+        SQLRevertExecutorContext result = mock(SQLRevertExecutorContext.class);
+        ShardingInsertOptimizedStatement shardingStatement = mock(ShardingInsertOptimizedStatement.class);
+        when(shardingStatement.getSQLStatement()).thenReturn(mock(InsertStatement.class));
+        when(result.getShardingStatement()).thenReturn(shardingStatement);
+        when(result.getDataSourceName()).thenReturn(dataSourceName);
+        when(result.getActualTableName()).thenReturn("t_order_0");
+        when(result.getRouteUnit()).thenReturn(mock(RouteUnit.class));
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.snapshot;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class UndoDataTest {
+    
+    private static final List<String> COLUMN_NAMES = Arrays.asList("order_id", "status");
+    
+    @Test
+    public void assertAddWithinBudget() {
+        UndoData actual = new UndoData(new UndoDataBudget(Long.MAX_VALUE), COLUMN_NAMES);
+        for (int i = 1; i <= 10; i++) {
+            actual.add(i, "status_" + i);
+        }
+        assertThat(actual.size(), is(10));
+        assertFalse(actual.isSpilled());
+        UndoRecord record = actual.iterator().next();
+        assertThat(record.get("order_id"), is((Object) 1));
+        assertThat(record.get("ORDER_ID"), is((Object) 1));
+        assertThat(record.get(1), is((Object) "status_1"));
+        assertThat(record.get("absent_column"), nullValue());
+    }
+    
+    @Test
+    public void assertAddMixedTypesAndNulls() {
+        UndoData actual = new UndoData(new UndoDataBudget(Long.MAX_VALUE), COLUMN_NAMES);
+        actual.add(null, null);
+        actual.add(1L, "init");
+        actual.add(new BigDecimal("2"), null);
+        Iterator<UndoRecord> iterator = actual.iterator();
+        assertThat(iterator.next().getValues(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(null, null)));
+        assertThat(iterator.next().getValues(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(1L, "init")));
+        assertThat(iterator.next().getValues(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(new BigDecimal("2"), null)));
+        assertFalse(iterator.hasNext());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertAddWithWrongColumnCount() {
+        new UndoData(new UndoDataBudget(Long.MAX_VALUE), COLUMN_NAMES).add(1);
+    }
+    
+    @Test
+    public void assertAddBeyondBudget() {
+        UndoDataBudget undoDataBudget = new UndoDataBudget(1024);
+        UndoData actual = new UndoData(undoDataBudget, COLUMN_NAMES);
+        for (int i = 1; i <= 3000; i++) {
+            actual.add(i, "status_" + i);
+        }
+        assertThat(actual.size(), is(3000));
+        assertTrue(actual.isSpilled());
+        assertTrue(undoDataBudget.getUsedBytes() <= 1024);
+        int count = 0;
+        for (UndoRecord each : actual) {
+            count++;
+            assertThat(each.get("order_id"), is((Object) count));
+            assertThat(each.get("status"), is((Object) ("status_" + count)));
+        }
+        assertThat(count, is(3000));
+        undoDataBudget.release();
+        assertThat(undoDataBudget.getUsedBytes(), is(0L));
+    }
+    
+    @Test
+    public void assertSpillNotSerializableValuesAndNulls() {
+        UndoData actual = new UndoData(new UndoDataBudget(0), COLUMN_NAMES);
+        actual.add(new BigDecimal("1.5"), new Object() {
+            
+            @Override
+            public String toString() {
+                return "vendor_value";
+            }
+        });
+        actual.add(null, null);
+        assertTrue(actual.isSpilled());
+        Iterator<UndoRecord> iterator = actual.iterator();
+        assertThat(iterator.next().getValues(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(new BigDecimal("1.5"), "vendor_value")));
+        assertThat(iterator.next().getValues(), CoreMatchers.<List<Object>>is(Arrays.<Object>asList(null, null)));
+        assertFalse(iterator.hasNext());
+    }
+    
+    @Test
+    public void assertIterateSpilledDataRepeatedly() {
+        UndoData actual = new UndoData(new UndoDataBudget(0), COLUMN_NAMES);
+        actual.add(1, "init");
+        actual.add(2, "init");
+        assertTrue(actual.isSpilled());
+        for (int i = 0; i < 2; i++) {
+            Iterator<UndoRecord> iterator = actual.iterator();
+            assertThat(iterator.next().get("order_id"), is((Object) 1));
+            assertThat(iterator.next().get("order_id"), is((Object) 2));
+            assertFalse(iterator.hasNext());
+        }
+    }
+}
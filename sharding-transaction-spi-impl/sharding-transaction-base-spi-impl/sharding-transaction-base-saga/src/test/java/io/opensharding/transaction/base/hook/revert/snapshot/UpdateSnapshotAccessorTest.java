@@ -20,6 +20,7 @@ package io.opensharding.transaction.base.hook.revert.snapshot;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import io.opensharding.transaction.base.hook.revert.executor.SQLRevertExecutorContext;
+import io.opensharding.transaction.base.hook.revert.plan.RevertSQLPlan;
 import org.apache.shardingsphere.core.optimize.api.segment.Table;
 import org.apache.shardingsphere.core.optimize.api.segment.Tables;
 import org.apache.shardingsphere.core.optimize.sharding.statement.ShardingOptimizedStatement;
@@ -49,9 +50,12 @@ import java.util.LinkedList;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -177,6 +181,56 @@ public class UpdateSnapshotAccessorTest {
         verify(connection).prepareStatement("SELECT order_id, status, modifier FROM t_order_0 t where t.order_id=? and t.user_id=? ");
     }
     
+    @Test
+    public void assertQueryUndoDataWithPreparedSnapshot() throws SQLException {
+        String sql = "update t_order set status=?, modifier=? where order_id=? and user_id=?";
+        setMockUpdateStatement(sql, "t_order", "", 40, 69, "status", "modifier");
+        updateSnapshotAccessor.queryUndoData();
+        updateSnapshotAccessor.queryUndoData();
+        verify(connection, times(2)).prepareStatement("SELECT status, modifier, order_id FROM t_order_0 where order_id=? and user_id=? ");
+    }
+    
+    @Test
+    public void assertQueryUndoDataWithFetchSize() throws SQLException {
+        String sql = "update t_order set status=?, modifier=? where order_id=? and user_id=?";
+        setMockUpdateStatement(sql, "t_order", "", 40, 69, "status", "modifier");
+        when(executorContext.getSnapshotFetchSize()).thenReturn(500);
+        updateSnapshotAccessor.queryUndoData();
+        verify(preparedStatement).setFetchSize(500);
+    }
+    
+    @Test
+    public void assertQueryUndoDataWithRows() throws SQLException {
+        String sql = "update t_order set status=?, modifier=? where order_id=? and user_id=?";
+        setMockUpdateStatement(sql, "t_order", "", 40, 69, "status", "modifier");
+        when(executorContext.getUndoDataBudget()).thenReturn(new UndoDataBudget(Long.MAX_VALUE));
+        when(resultSetMetaData.getColumnCount()).thenReturn(1);
+        when(resultSetMetaData.getColumnName(1)).thenReturn("status");
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getObject(1)).thenReturn("init", "paid");
+        UndoData actual = updateSnapshotAccessor.queryUndoData();
+        assertThat(actual.size(), is(2));
+        assertThat(actual.getColumnNames(), CoreMatchers.<List<String>>is(Lists.newArrayList("status")));
+        assertThat(actual.iterator().next().get("status"), CoreMatchers.<Object>is("init"));
+    }
+    
+    @Test
+    public void assertFindPrimaryKeyValues() {
+        String sql = "update t_order set status=?, modifier=? where order_id=? and user_id=?";
+        setMockWhereSegment(sql, 40, 69);
+        when(executorContext.getPrimaryKeyColumns()).thenReturn(Lists.newArrayList("user_id", "order_id"));
+        Optional<List<Object>> actual = updateSnapshotAccessor.findPrimaryKeyValues();
+        assertTrue(actual.isPresent());
+        assertThat(actual.get(), CoreMatchers.<List<Object>>is(Lists.<Object>newArrayList(2, 1)));
+    }
+    
+    @Test
+    public void assertFindPrimaryKeyValuesWithNonPrimaryKeyCondition() {
+        String sql = "update t_order set status=?, modifier=? where order_id=? and user_id=?";
+        setMockWhereSegment(sql, 40, 69);
+        assertFalse(updateSnapshotAccessor.findPrimaryKeyValues().isPresent());
+    }
+    
     private void setMockUpdateStatement(final String logicSQL, final String tableName, final String tableAlias, final int whereStartIndex, final int whereStopIndex, final String... updateColumns) {
         when(executorContext.getLogicTableName()).thenReturn(tableName);
         when(executorContext.getLogicSQL()).thenReturn(logicSQL);
@@ -187,6 +241,11 @@ public class UpdateSnapshotAccessorTest {
         when(tableSegment.getAlias()).thenReturn(Optional.of(tableAlias));
     }
     
+    private void setMockWhereSegment(final String logicSQL, final int whereStartIndex, final int whereStopIndex) {
+        when(executorContext.getLogicSQL()).thenReturn(logicSQL);
+        when(updateStatement.getWhere()).thenReturn(Optional.of(new WhereSegment(whereStartIndex, whereStopIndex, 1)));
+    }
+    
     private SetAssignmentsSegment mockUpdateAssignments(final String tableName, String... columns) {
         Collection<AssignmentSegment> assignments = new LinkedList<>();
         TableSegment tableSegment = new TableSegment(0, 0, tableName);
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.hook.revert.undo;
+
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalUndoLogTest {
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    @Mock
+    private ResultSet resultSet;
+    
+    private final LocalUndoLog localUndoLog = new LocalUndoLog("undo_log", "node_1");
+    
+    @Test
+    public void assertWrite() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        RevertSQLResult revertSQLResult = new RevertSQLResult("DELETE FROM t_order_0 WHERE order_id = ?");
+        revertSQLResult.getParameters().add(Arrays.<Object>asList(1, "init"));
+        localUndoLog.write(connection, "tx_1", "branch_1", revertSQLResult);
+        verify(connection).prepareStatement("INSERT INTO undo_log (transaction_id, branch_id, owner, revert_sql, revert_parameters) VALUES (?, ?, ?, ?, ?)");
+        verify(preparedStatement).setString(1, "tx_1");
+        verify(preparedStatement).setString(2, "branch_1");
+        verify(preparedStatement).setString(3, "node_1");
+        verify(preparedStatement).setString(4, "DELETE FROM t_order_0 WHERE order_id = ?");
+        verify(preparedStatement).setString(5, "[[\"\\u0001i:1\",\"\\u0001s:init\"]]");
+        verify(preparedStatement).executeUpdate();
+    }
+    
+    @Test
+    public void assertWriteCommitDecision() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        localUndoLog.writeCommitDecision(connection, "tx_1");
+        verify(preparedStatement).setString(1, "tx_1");
+        verify(preparedStatement).setString(2, "COMMITTED");
+        verify(preparedStatement).setString(3, "node_1");
+        verify(preparedStatement).setString(4, "");
+        verify(preparedStatement).setString(5, "[]");
+        verify(preparedStatement).executeUpdate();
+    }
+    
+    @Test
+    public void assertFindCommittedTransactionIds() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("tx_1");
+        assertThat(localUndoLog.findCommittedTransactionIds(connection), is((Collection<String>) Collections.singleton("tx_1")));
+        verify(connection).prepareStatement("SELECT transaction_id FROM undo_log WHERE branch_id = ?");
+        verify(preparedStatement).setString(1, "COMMITTED");
+    }
+    
+    @Test
+    public void assertLoad() throws SQLException {
+        mockUndoLog();
+        List<UndoLogRecord> actual = localUndoLog.load(connection, "tx_1");
+        assertThat(actual.size(), is(1));
+        assertThat(actual.get(0).getBranchId(), is("branch_1"));
+        assertThat(actual.get(0).getRevertSQL(), is("DELETE FROM t_order_0 WHERE order_id = ?"));
+        assertThat(actual.get(0).getRevertParameters().iterator().next(), is((Collection<Object>) Arrays.<Object>asList(1, "init")));
+    }
+    
+    @Test
+    public void assertCompensate() throws SQLException {
+        mockUndoLog();
+        when(connection.getAutoCommit()).thenReturn(true);
+        assertTrue(localUndoLog.compensate(connection, "tx_1", "branch_1"));
+        InOrder inOrder = inOrder(connection, preparedStatement);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).prepareStatement("DELETE FROM t_order_0 WHERE order_id = ?");
+        inOrder.verify(preparedStatement).executeBatch();
+        inOrder.verify(connection).prepareStatement("DELETE FROM undo_log WHERE transaction_id = ? AND branch_id = ?");
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(true);
+    }
+    
+    @Test
+    public void assertCompensateWithoutUndoLog() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        assertFalse(localUndoLog.compensate(connection, "tx_1", "branch_1"));
+        verify(connection, never()).commit();
+    }
+    
+    @Test
+    public void assertRecoverExpired() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false, true, false);
+        when(resultSet.getString(1)).thenReturn("tx_1", "branch_1");
+        when(resultSet.getString(2)).thenReturn("DELETE FROM t_order_0 WHERE order_id = ?");
+        when(resultSet.getString(3)).thenReturn("[[\"\\u0001i:1\",\"\\u0001s:init\"]]");
+        Timestamp createdBefore = new Timestamp(System.currentTimeMillis());
+        assertThat(localUndoLog.recoverExpired(connection, createdBefore, Collections.<String>emptySet()), is(1));
+        verify(connection).prepareStatement("SELECT transaction_id FROM undo_log WHERE owner = ? AND branch_id <> ? AND create_time < ? ORDER BY id");
+        verify(preparedStatement).setString(1, "node_1");
+        verify(preparedStatement).setTimestamp(3, createdBefore);
+        verify(connection).prepareStatement("SELECT branch_id, revert_sql, revert_parameters FROM undo_log WHERE transaction_id = ? AND branch_id <> ? ORDER BY id DESC");
+        verify(connection).prepareStatement("DELETE FROM t_order_0 WHERE order_id = ?");
+        verify(connection).prepareStatement("DELETE FROM undo_log WHERE transaction_id = ? AND branch_id = ?");
+    }
+    
+    @Test
+    public void assertRecoverExpiredWithCommittedTransaction() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("tx_1");
+        assertThat(localUndoLog.recoverExpired(connection, new Timestamp(System.currentTimeMillis()), Collections.singleton("tx_1")), is(0));
+        verify(connection).prepareStatement("DELETE FROM undo_log WHERE transaction_id = ? AND branch_id <> ?");
+        verify(connection, never()).prepareStatement("DELETE FROM t_order_0 WHERE order_id = ?");
+    }
+    
+    @Test
+    public void assertRecoverExpiredWithoutUndoLog() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        assertThat(localUndoLog.recoverExpired(connection, new Timestamp(System.currentTimeMillis()), Collections.<String>emptySet()), is(0));
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+    
+    @Test
+    public void assertCleanCommitDecisions() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        Timestamp createdBefore = new Timestamp(System.currentTimeMillis());
+        localUndoLog.cleanCommitDecisions(connection, createdBefore);
+        verify(connection).prepareStatement("DELETE FROM undo_log WHERE owner = ? AND branch_id = ? AND create_time < ?");
+        verify(preparedStatement).setString(1, "node_1");
+        verify(preparedStatement).setString(2, "COMMITTED");
+        verify(preparedStatement).setTimestamp(3, createdBefore);
+    }
+    
+    private void mockUndoLog() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("branch_1");
+        when(resultSet.getString(2)).thenReturn("DELETE FROM t_order_0 WHERE order_id = ?");
+        when(resultSet.getString(3)).thenReturn("[[\"\\u0001i:1\",\"\\u0001s:init\"]]");
+    }
+}
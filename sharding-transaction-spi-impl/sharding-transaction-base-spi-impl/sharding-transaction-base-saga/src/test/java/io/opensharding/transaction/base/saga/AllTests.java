@@ -22,6 +22,7 @@ import io.opensharding.transaction.base.saga.actuator.AllActuatorTests;
 import io.opensharding.transaction.base.saga.config.SagaConfigurationLoaderTest;
 import io.opensharding.transaction.base.context.AllContextTests;
 import io.opensharding.transaction.base.saga.persistence.AllPersistenceTests;
+import io.opensharding.transaction.base.utils.SagaParameterCodecTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -29,10 +30,12 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
         SagaConfigurationLoaderTest.class,
+        ShardingSQLTransactionManagerTest.class,
         AllContextTests.class,
         AllHookTests.class,
         AllPersistenceTests.class,
-        AllActuatorTests.class
+        AllActuatorTests.class,
+        SagaParameterCodecTest.class
 })
 public final class AllTests {
 }
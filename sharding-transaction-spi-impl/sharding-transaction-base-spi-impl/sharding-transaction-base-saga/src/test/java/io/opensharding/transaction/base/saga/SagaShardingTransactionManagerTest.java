@@ -112,8 +112,8 @@ public class SagaShardingTransactionManagerTest {
         when(dataSource.getConnection()).thenReturn(connection);
         transactionManager.begin();
         Connection actual = transactionManager.getConnection("ds1");
-        assertThat(actual, is(connection));
-        assertThat(transactionManager.getCurrentTransaction().getCachedConnections().get("ds1"), is(connection));
+        assertThat(actual.unwrap(Connection.class), is(connection));
+        assertThat(transactionManager.getCurrentTransaction().getCachedConnections().get("ds1"), is(actual));
     }
     
     @Test
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga;
+
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public final class ShardingSQLTransactionManagerTest {
+    
+    private final ShardingSQLTransactionManager transactionManager = ShardingSQLTransactionManager.getInstance();
+    
+    @After
+    public void tearDown() {
+        transactionManager.clear();
+    }
+    
+    @Test
+    public void assertCommit() {
+        transactionManager.begin();
+        transactionManager.commit();
+        assertFalse(transactionManager.isInTransaction());
+    }
+    
+    @Test
+    public void assertCommitWithAnchorFailed() {
+        transactionManager.begin();
+        transactionManager.getCurrentTransaction().markAnchorFailed();
+        try {
+            transactionManager.commit();
+            fail("Expected ShardingException");
+        } catch (final ShardingException ignored) {
+            assertFalse(transactionManager.isInTransaction());
+        }
+    }
+}
@@ -18,7 +18,16 @@
 package io.opensharding.transaction.base.saga.actuator;
 
 import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionFactoryTest;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionHandoffTest;
 import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionTest;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaSQLOperationTest;
+import io.opensharding.transaction.base.saga.actuator.engine.NativeSagaEngineTest;
+import io.opensharding.transaction.base.saga.actuator.engine.SagaEngineConsistencyTest;
+import io.opensharding.transaction.base.saga.actuator.retry.BackoffSagaRetryPolicyTest;
+import io.opensharding.transaction.base.saga.actuator.transport.DataSourceBulkheadTest;
+import io.opensharding.transaction.base.saga.actuator.transport.DataSourceCircuitBreakerTest;
+import io.opensharding.transaction.base.saga.actuator.transport.LocalTransactionCompensatorTest;
+import io.opensharding.transaction.base.saga.actuator.transport.SagaSQLTransportTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -26,7 +35,16 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     SagaActuatorFactoryTest.class,
     SagaDefinitionFactoryTest.class,
-    SagaDefinitionTest.class
+    SagaDefinitionHandoffTest.class,
+    SagaDefinitionTest.class,
+    SagaSQLOperationTest.class,
+    NativeSagaEngineTest.class,
+    SagaEngineConsistencyTest.class,
+    BackoffSagaRetryPolicyTest.class,
+    DataSourceBulkheadTest.class,
+    DataSourceCircuitBreakerTest.class,
+    LocalTransactionCompensatorTest.class,
+    SagaSQLTransportTest.class
 })
 public final class AllActuatorTests {
 }
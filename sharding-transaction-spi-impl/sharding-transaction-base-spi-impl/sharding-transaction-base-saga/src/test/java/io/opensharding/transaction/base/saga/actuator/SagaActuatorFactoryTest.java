@@ -17,6 +17,8 @@
 
 package io.opensharding.transaction.base.saga.actuator;
 
+import io.opensharding.transaction.base.saga.actuator.engine.NativeSagaEngine;
+import io.opensharding.transaction.base.saga.actuator.engine.ServiceCombSagaEngine;
 import io.opensharding.transaction.base.saga.config.SagaConfiguration;
 import io.opensharding.transaction.base.saga.persistence.impl.EmptySagaPersistence;
 import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
@@ -38,6 +40,14 @@ public final class SagaActuatorFactoryTest {
         assertCreateWithCachedExecutors();
     }
     
+    @Test
+    public void assertCreateSagaEngine() {
+        SagaConfiguration sagaConfiguration = new SagaConfiguration();
+        assertThat(SagaActuatorFactory.newEngine(sagaConfiguration, new EmptySagaPersistence()), instanceOf(ServiceCombSagaEngine.class));
+        sagaConfiguration.setNativeEngineEnabled(true);
+        assertThat(SagaActuatorFactory.newEngine(sagaConfiguration, new EmptySagaPersistence()), instanceOf(NativeSagaEngine.class));
+    }
+    
     private void assertCreateWithFixedExecutors() throws NoSuchFieldException, IllegalAccessException {
         SagaConfiguration sagaConfiguration = new SagaConfiguration();
         SagaExecutionComponent sagaExecutionComponent = SagaActuatorFactory.newInstance(sagaConfiguration, new EmptySagaPersistence());
@@ -30,12 +30,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -52,40 +52,6 @@ public class SagaDefinitionFactoryTest {
     public void setUp() {
     }
     
-    @Test
-    public void assertNewInstanceOfBackwardRecovery() {
-        shardingSQLTransaction.getLogicSQLTransactions().addAll(mockLogicSQLTransactions(3, 2));
-        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, sagaConfiguration, shardingSQLTransaction);
-        assertThat(actual.getPolicy(), is(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY));
-        assertThat(actual.getRequests().size(), is(7));
-        int i = 0;
-        for (SagaRequest each : actual.getRequests()) {
-            if (i <= 1) {
-                assertThat(each.getParents().size(), is(0));
-            } else {
-                assertThat(each.getParents().size(), is(2));
-            }
-            if (i <= 5) {
-                assertThat(each.getDatasource(), is("ds"));
-                assertThat(each.getTransaction().getSql(), is("tx-sql"));
-                assertThat(each.getTransaction().getParams().size(), is(3));
-                assertThat(each.getId(), instanceOf(String.class));
-                assertThat(each.getType(), is("sql"));
-                assertThat(each.getFailRetryDelayMilliseconds(), is(sagaConfiguration.getTransactionRetryDelayMilliseconds()));
-                assertThat(each.getCompensation().getSql(), is("revert-sql"));
-                assertThat(each.getCompensation().getParams().size(), is(3));
-                assertThat(each.getCompensation().getRetries(), is(sagaConfiguration.getCompensationMaxRetries()));
-            } else {
-                assertThat(each.getDatasource(), is("rollbackTag"));
-                assertThat(each.getTransaction().getSql(), is("rollbackTag"));
-                assertThat(each.getTransaction().getParams().size(), is(0));
-                assertThat(each.getCompensation().getSql(), is("rollbackTag"));
-                assertThat(each.getCompensation().getParams().size(), is(0));
-            }
-            i++;
-        }
-    }
-    
     @Test
     public void assertNewInstanceOfForwardRecovery() {
         shardingSQLTransaction.getLogicSQLTransactions().addAll(mockLogicSQLTransactions(2, 4));
@@ -101,6 +67,90 @@ public class SagaDefinitionFactoryTest {
         }
     }
     
+    @Test
+    public void assertNewInstanceWithoutRevertSQL() {
+        LogicSQLTransaction logicSQLTransaction = mock(LogicSQLTransaction.class);
+        Queue<SQLTransaction> sqlTransactions = new ConcurrentLinkedQueue<>();
+        sqlTransactions.offer(new SQLTransaction("ds", "tx-sql", mockParameters()));
+        when(logicSQLTransaction.getSqlTransactions()).thenReturn(sqlTransactions);
+        shardingSQLTransaction.getLogicSQLTransactions().add(logicSQLTransaction);
+        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, shardingSQLTransaction);
+        SagaRequest sagaRequest = actual.getRequests().iterator().next();
+        assertThat(sagaRequest.getCompensation().getSql(), is(""));
+        assertThat(sagaRequest.getCompensation().getParams().size(), is(0));
+    }
+    
+    @Test
+    public void assertNewInstanceWithConflictingTables() {
+        SQLTransaction order0 = newSQLTransaction("ds_0", "t_order_0");
+        SQLTransaction order1 = newSQLTransaction("ds_1", "t_order_0");
+        SQLTransaction orderUpdate = newSQLTransaction("ds_0", "t_order_0");
+        SQLTransaction orderItem = newSQLTransaction("ds_0", "t_order_item_0");
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(order0, order1));
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(orderUpdate, orderItem));
+        SagaDefinition actual = SagaDefinitionFactory.newInstance(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, sagaConfiguration, shardingSQLTransaction);
+        List<SagaRequest> sagaRequests = new LinkedList<>(actual.getRequests());
+        assertThat(sagaRequests.size(), is(4));
+        assertThat(sagaRequests.get(0).getParents().size(), is(0));
+        assertThat(sagaRequests.get(1).getParents().size(), is(0));
+        assertThat(new LinkedList<>(sagaRequests.get(2).getParents()), is(Collections.singletonList(order0.getSqlTransactionId())));
+        assertThat(sagaRequests.get(3).getParents().size(), is(0));
+    }
+    
+    @Test
+    public void assertNewCompensationInstance() {
+        shardingSQLTransaction.getLogicSQLTransactions().addAll(mockLogicSQLTransactions(3, 2));
+        SagaDefinition actual = SagaDefinitionFactory.newCompensationInstance(sagaConfiguration, shardingSQLTransaction);
+        assertThat(actual.getPolicy(), is(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY));
+        assertThat(actual.getRequests().size(), is(6));
+        int i = 0;
+        for (SagaRequest each : actual.getRequests()) {
+            assertThat(each.getParents().size(), is(i <= 1 ? 0 : 2));
+            assertThat(each.getDatasource(), is("ds"));
+            assertThat(each.getType(), is("sql"));
+            assertThat(each.getTransaction().getSql(), is("revert-sql"));
+            assertThat(each.getTransaction().getParams().size(), is(3));
+            assertThat(each.getTransaction().getRetries(), is(sagaConfiguration.getCompensationMaxRetries()));
+            assertThat(each.getCompensation().getSql(), is(""));
+            assertThat(each.getCompensation().getParams().size(), is(0));
+            assertThat(each.getFailRetryDelayMilliseconds(), is(sagaConfiguration.getCompensationRetryDelayMilliseconds()));
+            i++;
+        }
+    }
+    
+    @Test
+    public void assertNewCompensationInstanceWithConflictingTables() {
+        SQLTransaction order0 = newSQLTransaction("ds_0", "t_order_0");
+        SQLTransaction order1 = newSQLTransaction("ds_1", "t_order_0");
+        SQLTransaction orderUpdate = newSQLTransaction("ds_0", "t_order_0");
+        SQLTransaction orderItem = newSQLTransaction("ds_0", "t_order_item_0");
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(order0, order1));
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(orderUpdate, orderItem));
+        List<SagaRequest> sagaRequests = new LinkedList<>(SagaDefinitionFactory.newCompensationInstance(sagaConfiguration, shardingSQLTransaction).getRequests());
+        assertThat(sagaRequests.size(), is(4));
+        assertThat(sagaRequests.get(0).getId(), is(orderItem.getSqlTransactionId()));
+        assertThat(sagaRequests.get(0).getParents().size(), is(0));
+        assertThat(sagaRequests.get(1).getId(), is(orderUpdate.getSqlTransactionId()));
+        assertThat(sagaRequests.get(1).getParents().size(), is(0));
+        assertThat(sagaRequests.get(2).getId(), is(order1.getSqlTransactionId()));
+        assertThat(sagaRequests.get(2).getParents().size(), is(0));
+        assertThat(sagaRequests.get(3).getId(), is(order0.getSqlTransactionId()));
+        assertThat(new LinkedList<>(sagaRequests.get(3).getParents()), is(Collections.singletonList(orderUpdate.getSqlTransactionId())));
+        assertThat(sagaRequests.get(3).getTransaction().getSql(), is(""));
+    }
+    
+    private SQLTransaction newSQLTransaction(final String dataSourceName, final String actualTableName) {
+        SQLTransaction result = new SQLTransaction(dataSourceName, "tx-sql", mockParameters());
+        result.setActualTableName(actualTableName);
+        return result;
+    }
+    
+    private LogicSQLTransaction mockLogicSQLTransaction(final SQLTransaction... sqlTransactions) {
+        LogicSQLTransaction result = mock(LogicSQLTransaction.class);
+        when(result.getSqlTransactions()).thenReturn(new ConcurrentLinkedQueue<>(Arrays.asList(sqlTransactions)));
+        return result;
+    }
+    
     private List<LogicSQLTransaction> mockLogicSQLTransactions(final int logicSQLCount, int branchCount) {
         List<LogicSQLTransaction> result = new LinkedList<>();
         for (int i = 0; i < logicSQLCount; i++) {
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import org.apache.servicecomb.saga.core.BackwardRecovery;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.core.application.SagaExecutionComponent;
+import org.apache.servicecomb.saga.core.application.interpreter.FromJsonFormat;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class SagaDefinitionHandoffTest {
+    
+    @Mock
+    private SagaExecutionComponent sagaExecutionComponent;
+    
+    @Mock
+    private FromJsonFormat<org.apache.servicecomb.saga.core.SagaDefinition> fromJsonFormat;
+    
+    @Mock
+    private TransportFactory<SQLTransport> transportFactory;
+    
+    @Mock
+    private SQLTransport transport;
+    
+    @Test
+    public void assertRunInMemory() {
+        final SagaDefinitionHandoff sagaDefinitionHandoff = new SagaDefinitionHandoff(fromJsonFormat, transportFactory, false, null);
+        final AtomicReference<org.apache.servicecomb.saga.core.SagaDefinition> actual = new AtomicReference<>();
+        when(transportFactory.getTransport()).thenReturn(transport);
+        doAnswer(new Answer<Object>() {
+            
+            @Override
+            public Object answer(final InvocationOnMock invocation) {
+                actual.set(sagaDefinitionHandoff.fromJson((String) invocation.getArgument(0)));
+                return null;
+            }
+        }).when(sagaExecutionComponent).run(anyString());
+        sagaDefinitionHandoff.run(sagaExecutionComponent, newSagaDefinition());
+        verify(sagaExecutionComponent).run("{}");
+        verify(fromJsonFormat, never()).fromJson(anyString());
+        assertThat(actual.get().policy(), instanceOf(BackwardRecovery.class));
+        assertThat(actual.get().requests().length, is(1));
+        assertThat(actual.get().requests()[0].serviceName(), is("ds"));
+        actual.get().requests()[0].transaction().send("ds");
+        verify(transport).with("ds", "sql", Collections.singletonList(Collections.singletonList("i:1")));
+    }
+    
+    @Test
+    public void assertRunWithJson() {
+        SagaDefinitionHandoff sagaDefinitionHandoff = new SagaDefinitionHandoff(fromJsonFormat, transportFactory, true, null);
+        SagaDefinition sagaDefinition = newSagaDefinition();
+        sagaDefinitionHandoff.run(sagaExecutionComponent, sagaDefinition);
+        verify(sagaExecutionComponent).run(sagaDefinition.toJson());
+    }
+    
+    @Test
+    public void assertFromJsonWithoutHandoff() {
+        SagaDefinitionHandoff sagaDefinitionHandoff = new SagaDefinitionHandoff(fromJsonFormat, transportFactory, false, null);
+        sagaDefinitionHandoff.fromJson("json");
+        verify(fromJsonFormat).fromJson("json");
+        verify(transportFactory, never()).getTransport();
+    }
+    
+    private SagaDefinition newSagaDefinition() {
+        List<List<String>> params = Collections.singletonList(Collections.singletonList("i:1"));
+        SagaRequest sagaRequest = new SagaRequest("id", "ds", "sql", new SagaSQLUnit("sql", params, 0), new SagaSQLUnit("revert", params, 0), Collections.<String>emptyList(), 10);
+        return new SagaDefinition(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, Collections.singletonList(sagaRequest));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.definition;
+
+import io.opensharding.transaction.base.saga.actuator.retry.SagaRetryPolicy;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class SagaSQLOperationTest {
+    
+    @Mock
+    private SQLTransport transport;
+    
+    @Mock
+    private SagaRetryPolicy retryPolicy;
+    
+    private final List<List<String>> params = Collections.singletonList(Collections.singletonList("i:1"));
+    
+    @Test
+    public void assertSendWithRetryDelay() throws InterruptedException {
+        SagaSQLOperation sagaSQLOperation = new SagaSQLOperation(transport, "sql", params, 3, retryPolicy);
+        when(transport.with("ds", "sql", params)).thenThrow(new TransportFailedException("test")).thenReturn(null);
+        when(retryPolicy.tryAcquire("ds")).thenReturn(true);
+        when(retryPolicy.getDelayMilliseconds(0L)).thenReturn(1L);
+        sendWithFailure(sagaSQLOperation);
+        sagaSQLOperation.send("ds");
+        verify(transport, times(2)).with("ds", "sql", params);
+        verify(retryPolicy).getDelayMilliseconds(0L);
+    }
+    
+    @Test
+    public void assertSendWithRetryBudgetExhausted() throws InterruptedException {
+        SagaSQLOperation sagaSQLOperation = new SagaSQLOperation(transport, "sql", params, 3, retryPolicy);
+        when(transport.with("ds", "sql", params)).thenThrow(new TransportFailedException("test"));
+        when(retryPolicy.tryAcquire("ds")).thenReturn(false);
+        sendWithFailure(sagaSQLOperation);
+        sendWithFailure(sagaSQLOperation);
+        verify(transport).with("ds", "sql", params);
+    }
+    
+    private void sendWithFailure(final SagaSQLOperation sagaSQLOperation) {
+        try {
+            sagaSQLOperation.send("ds");
+            fail("TransportFailedException expected");
+        } catch (final TransportFailedException ignored) {
+        }
+    }
+}
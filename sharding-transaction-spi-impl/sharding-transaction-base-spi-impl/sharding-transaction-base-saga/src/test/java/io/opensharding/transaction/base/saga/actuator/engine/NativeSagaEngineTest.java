@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.engine;
+
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinition;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaRequest;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaSQLUnit;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.core.TransportFailedException;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.apache.shardingsphere.core.exception.ShardingException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class NativeSagaEngineTest {
+    
+    @Mock
+    private TransportFactory<SQLTransport> transportFactory;
+    
+    @Mock
+    private SQLTransport transport;
+    
+    private final List<List<String>> params = Collections.singletonList(Collections.singletonList("i:1"));
+    
+    private final List<String> events = Collections.synchronizedList(new LinkedList<String>());
+    
+    private ExecutorService executorService;
+    
+    private NativeSagaEngine nativeSagaEngine;
+    
+    @Before
+    public void setUp() {
+        when(transportFactory.getTransport()).thenReturn(transport);
+        executorService = Executors.newFixedThreadPool(2);
+        nativeSagaEngine = new NativeSagaEngine(executorService, transportFactory, null, new SagaEventListener() {
+            
+            @Override
+            public void onEvent(final SagaEventType eventType, final SagaRequest sagaRequest) {
+                events.add(eventType + ":" + sagaRequest.getId());
+            }
+        });
+    }
+    
+    @After
+    public void tearDown() {
+        executorService.shutdown();
+    }
+    
+    @Test
+    public void assertRunInTopologicalOrder() {
+        nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY,
+            Arrays.asList(newSagaRequest("a"), newSagaRequest("b", "a"), newSagaRequest("c", "a"), newSagaRequest("d", "b", "c"))));
+        List<String> endedIds = new LinkedList<>();
+        for (String each : events) {
+            if (each.startsWith(SagaEventType.TRANSACTION_ENDED.name())) {
+                endedIds.add(each.substring(each.indexOf(':') + 1));
+            }
+        }
+        assertThat(endedIds.size(), is(4));
+        assertThat(endedIds.get(0), is("a"));
+        assertThat(endedIds.get(3), is("d"));
+        verify(transport).with("ds", "sql_d", params);
+    }
+    
+    @Test
+    public void assertRunWithRetry() {
+        when(transport.with("ds", "sql_a", params)).thenThrow(new TransportFailedException("test")).thenReturn(null);
+        nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, Collections.singletonList(newSagaRequest("a"))));
+        verify(transport, times(2)).with("ds", "sql_a", params);
+        assertThat(events, is(Arrays.asList("TRANSACTION_STARTED:a", "TRANSACTION_ENDED:a")));
+    }
+    
+    @Test
+    public void assertRunWithRetryForever() {
+        when(transport.with("ds", "sql_a", params)).thenThrow(new TransportFailedException("test")).thenThrow(new TransportFailedException("test"))
+            .thenThrow(new TransportFailedException("test")).thenThrow(new TransportFailedException("test")).thenReturn(null);
+        nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, Collections.singletonList(newSagaRequest("a", 0))));
+        verify(transport, times(5)).with("ds", "sql_a", params);
+        assertThat(events, is(Arrays.asList("TRANSACTION_STARTED:a", "TRANSACTION_ENDED:a")));
+    }
+    
+    @Test
+    public void assertRunForwardRecoveryAborted() {
+        when(transport.with("ds", "sql_a", params)).thenThrow(new TransportFailedException("test"));
+        try {
+            nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, Arrays.asList(newSagaRequest("a"), newSagaRequest("b", "a"))));
+            fail("ShardingException expected");
+        } catch (final ShardingException ex) {
+            verify(transport, times(3)).with("ds", "sql_a", params);
+            verify(transport, never()).with("ds", "revert_sql_a", params);
+            assertThat(events.get(events.size() - 1), is("TRANSACTION_ABORTED:a"));
+        }
+    }
+    
+    @Test
+    public void assertRunBackwardRecovery() {
+        when(transport.with("ds", "sql_b", params)).thenThrow(new TransportFailedException("test"));
+        try {
+            nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_BACKWARD_RECOVERY_POLICY, Arrays.asList(newSagaRequest("a"), newSagaRequest("b", "a"), newSagaRequest("c", "b"))));
+            fail("ShardingException expected");
+        } catch (final ShardingException ex) {
+            verify(transport, times(3)).with("ds", "sql_b", params);
+            verify(transport, never()).with("ds", "sql_c", params);
+            verify(transport).with("ds", "revert_sql_a", params);
+            verify(transport, never()).with("ds", "revert_sql_b", params);
+            assertThat(events.get(events.size() - 1), is("COMPENSATION_ENDED:a"));
+        }
+    }
+    
+    @Test(expected = ShardingException.class)
+    public void assertRunWithUnknownParent() {
+        nativeSagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, Collections.singletonList(newSagaRequest("a", "unknown"))));
+    }
+    
+    private SagaRequest newSagaRequest(final String id, final String... parents) {
+        return newSagaRequest(id, 2, parents);
+    }
+    
+    private SagaRequest newSagaRequest(final String id, final int retries, final String... parents) {
+        return new SagaRequest(id, "ds", "sql", new SagaSQLUnit("sql_" + id, params, retries), new SagaSQLUnit("revert_sql_" + id, params, retries), Arrays.asList(parents), 0);
+    }
+}
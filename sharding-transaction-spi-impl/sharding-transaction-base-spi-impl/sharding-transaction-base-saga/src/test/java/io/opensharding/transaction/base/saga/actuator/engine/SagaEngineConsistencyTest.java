@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.engine;
+
+import io.opensharding.transaction.base.saga.actuator.SagaActuatorFactory;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinition;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionHandoff;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaRequest;
+import io.opensharding.transaction.base.saga.actuator.definition.SagaSQLUnit;
+import io.opensharding.transaction.base.saga.config.SagaConfiguration;
+import io.opensharding.transaction.base.saga.persistence.impl.EmptySagaPersistence;
+import org.apache.servicecomb.saga.core.RecoveryPolicy;
+import org.apache.servicecomb.saga.core.SagaResponse;
+import org.apache.servicecomb.saga.core.SuccessfulSagaResponse;
+import org.apache.servicecomb.saga.transports.SQLTransport;
+import org.apache.servicecomb.saga.transports.TransportFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SagaEngineConsistencyTest {
+    
+    private static final int LAYERS = 4;
+    
+    private static final int BRANCHES = 3;
+    
+    private final Queue<String> executedRequestIds = new ConcurrentLinkedQueue<>();
+    
+    private final TransportFactory<SQLTransport> transportFactory = new TransportFactory<SQLTransport>() {
+        
+        @Override
+        public SQLTransport getTransport() {
+            return new SQLTransport() {
+                
+                @Override
+                public SagaResponse with(final String datasource, final String sql, final List<List<String>> params) {
+                    executedRequestIds.add(params.get(0).get(0));
+                    return new SuccessfulSagaResponse("{}");
+                }
+            };
+        }
+    };
+    
+    private final SagaConfiguration sagaConfiguration = new SagaConfiguration();
+    
+    private ExecutorService executorService;
+    
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(sagaConfiguration.getExecutorSize());
+    }
+    
+    @After
+    public void tearDown() {
+        executorService.shutdown();
+    }
+    
+    @Test
+    public void assertRunWithServiceCombSagaEngine() {
+        SagaDefinitionHandoff sagaDefinitionHandoff = new SagaDefinitionHandoff(null, transportFactory, false, null);
+        assertRun(new ServiceCombSagaEngine(SagaActuatorFactory.newInstance(sagaConfiguration, new EmptySagaPersistence(), sagaDefinitionHandoff), sagaDefinitionHandoff));
+    }
+    
+    @Test
+    public void assertRunWithNativeSagaEngine() {
+        assertRun(new NativeSagaEngine(executorService, transportFactory, null, null));
+    }
+    
+    private void assertRun(final SagaEngine sagaEngine) {
+        Collection<SagaRequest> requests = newSagaRequests();
+        sagaEngine.run(new SagaDefinition(RecoveryPolicy.SAGA_FORWARD_RECOVERY_POLICY, requests));
+        List<String> actual = new ArrayList<>(executedRequestIds);
+        assertThat(actual.size(), is(requests.size()));
+        assertThat(new HashSet<>(actual).size(), is(requests.size()));
+        for (SagaRequest each : requests) {
+            for (String parent : each.getParents()) {
+                assertTrue(actual.indexOf(parent) < actual.indexOf(each.getId()));
+            }
+        }
+    }
+    
+    private Collection<SagaRequest> newSagaRequests() {
+        Collection<SagaRequest> result = new LinkedList<>();
+        Collection<String> parents = Collections.emptyList();
+        for (int layer = 0; layer < LAYERS; layer++) {
+            Collection<String> ids = new LinkedList<>();
+            for (int branch = 0; branch < BRANCHES; branch++) {
+                String id = layer + "-" + branch;
+                List<List<String>> params = Collections.singletonList(Collections.singletonList(id));
+                result.add(new SagaRequest(id, "ds_" + branch, "sql", new SagaSQLUnit("sql", params, 3), new SagaSQLUnit("", params, 3), parents, 0));
+                ids.add(id);
+            }
+            parents = ids;
+        }
+        return result;
+    }
+}
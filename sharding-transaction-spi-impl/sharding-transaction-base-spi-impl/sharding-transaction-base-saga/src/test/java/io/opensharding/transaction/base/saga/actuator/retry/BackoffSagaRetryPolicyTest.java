@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.retry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class BackoffSagaRetryPolicyTest {
+    
+    private final BackoffSagaRetryPolicy retryPolicy = new BackoffSagaRetryPolicy(100L, 1000L, 1D);
+    
+    @Test
+    public void assertGetDelayMilliseconds() {
+        long previousDelayMilliseconds = 0L;
+        for (int i = 0; i < 20; i++) {
+            long actual = retryPolicy.getDelayMilliseconds(previousDelayMilliseconds);
+            assertTrue(actual >= 100L);
+            assertTrue(actual <= 1000L);
+            assertTrue(actual <= Math.max(100L, previousDelayMilliseconds * 3));
+            previousDelayMilliseconds = actual;
+        }
+    }
+    
+    @Test
+    public void assertTryAcquirePerDataSource() throws InterruptedException {
+        BackoffSagaRetryPolicy actual = new BackoffSagaRetryPolicy(10L, 50L, 0.1D);
+        assertTrue(actual.tryAcquire("ds_0"));
+        long startTime = System.currentTimeMillis();
+        assertFalse(actual.tryAcquire("ds_0"));
+        assertTrue(System.currentTimeMillis() - startTime >= 50L);
+        assertTrue(actual.tryAcquire("ds_1"));
+    }
+    
+    @Test
+    public void assertTryAcquireWaitsForPermit() throws InterruptedException {
+        BackoffSagaRetryPolicy actual = new BackoffSagaRetryPolicy(10L, 1000L, 10D);
+        assertTrue(actual.tryAcquire("ds_0"));
+        assertTrue(actual.tryAcquire("ds_0"));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class DataSourceBulkheadTest {
+    
+    private final DataSourceBulkhead dataSourceBulkhead = new DataSourceBulkhead(1, 2, 100L);
+    
+    @Test
+    public void assertAcquireWithinConcurrencyLimit() {
+        assertTrue(dataSourceBulkhead.acquire("ds_0"));
+        assertTrue(dataSourceBulkhead.acquire("ds_0"));
+        assertFalse(dataSourceBulkhead.acquire("ds_0"));
+        assertTrue(dataSourceBulkhead.acquire("ds_1"));
+        BulkheadMetrics actual = dataSourceBulkhead.getMetrics("ds_0");
+        assertThat(actual.getActiveCount(), is(2));
+        assertThat(actual.getAcceptedCount(), is(2L));
+        assertThat(actual.getRejectedCount(), is(1L));
+    }
+    
+    @Test
+    public void assertReleaseAdaptsConcurrencyLimit() {
+        dataSourceBulkhead.acquire("ds_0");
+        dataSourceBulkhead.release("ds_0", 1000L, true);
+        assertThat(dataSourceBulkhead.getMetrics("ds_0").getConcurrencyLimit(), is(1));
+        dataSourceBulkhead.acquire("ds_0");
+        assertFalse(dataSourceBulkhead.acquire("ds_0"));
+        dataSourceBulkhead.release("ds_0", 10L, true);
+        assertThat(dataSourceBulkhead.getMetrics("ds_0").getConcurrencyLimit(), is(2));
+        assertThat(dataSourceBulkhead.getMetrics("ds_0").getActiveCount(), is(0));
+    }
+}
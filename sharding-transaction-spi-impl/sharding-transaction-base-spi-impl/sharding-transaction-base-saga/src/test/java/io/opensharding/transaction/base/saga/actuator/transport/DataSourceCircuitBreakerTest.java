@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class DataSourceCircuitBreakerTest {
+    
+    @Test
+    public void assertOpenWithBadCallRate() {
+        DataSourceCircuitBreaker circuitBreaker = new DataSourceCircuitBreaker(4, 4, 50, 100L, 60000L);
+        circuitBreaker.record("ds_0", 10L, true);
+        circuitBreaker.record("ds_0", 10L, false);
+        circuitBreaker.record("ds_0", 10L, true);
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.CLOSED));
+        circuitBreaker.record("ds_0", 1000L, true);
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.OPEN));
+        assertFalse(circuitBreaker.tryAcquire("ds_0"));
+        assertTrue(circuitBreaker.tryAcquire("ds_1"));
+        assertThat(circuitBreaker.getMetrics("ds_0").getRejectedCount(), is(1L));
+    }
+    
+    @Test
+    public void assertHalfOpenProbe() {
+        DataSourceCircuitBreaker circuitBreaker = new DataSourceCircuitBreaker(1, 1, 50, 100L, 0L);
+        circuitBreaker.record("ds_0", 10L, false);
+        assertTrue(circuitBreaker.tryAcquire("ds_0"));
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.HALF_OPEN));
+        assertFalse(circuitBreaker.tryAcquire("ds_0"));
+        circuitBreaker.record("ds_0", 10L, true);
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.CLOSED));
+    }
+    
+    @Test
+    public void assertReopenWithFailedProbe() {
+        DataSourceCircuitBreaker circuitBreaker = new DataSourceCircuitBreaker(1, 1, 50, 100L, 0L);
+        circuitBreaker.record("ds_0", 10L, false);
+        assertTrue(circuitBreaker.tryAcquire("ds_0"));
+        circuitBreaker.record("ds_0", 10L, false);
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.OPEN));
+    }
+    
+    @Test
+    public void assertReleaseProbe() {
+        DataSourceCircuitBreaker circuitBreaker = new DataSourceCircuitBreaker(1, 1, 50, 100L, 0L);
+        circuitBreaker.record("ds_0", 10L, false);
+        assertTrue(circuitBreaker.tryAcquire("ds_0"));
+        circuitBreaker.release("ds_0");
+        assertThat(circuitBreaker.getMetrics("ds_0").getState(), is(DataSourceCircuitBreaker.State.HALF_OPEN));
+        assertThat(circuitBreaker.getMetrics("ds_0").getBadCallCount(), is(0));
+        assertTrue(circuitBreaker.tryAcquire("ds_0"));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.saga.actuator.transport;
+
+import io.opensharding.transaction.base.context.LogicSQLTransaction;
+import io.opensharding.transaction.base.context.SQLTransaction;
+import io.opensharding.transaction.base.context.ShardingSQLTransaction;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.undo.LocalUndoLog;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class LocalTransactionCompensatorTest {
+    
+    @Mock
+    private Connection connection;
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    private final ShardingSQLTransaction shardingSQLTransaction = new ShardingSQLTransaction();
+    
+    private SQLTransaction first;
+    
+    private SQLTransaction second;
+    
+    @Before
+    public void setUp() throws SQLException {
+        shardingSQLTransaction.getCachedConnections().put("ds_0", connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        first = newSQLTransaction(1);
+        second = newSQLTransaction(2);
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(first));
+        shardingSQLTransaction.getLogicSQLTransactions().add(mockLogicSQLTransaction(second));
+    }
+    
+    @Test
+    public void assertCompensate() throws SQLException {
+        new LocalTransactionCompensator(shardingSQLTransaction).compensate();
+        InOrder inOrder = inOrder(connection, preparedStatement);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).prepareStatement("DELETE FROM t_order_0 WHERE order_id = ?");
+        inOrder.verify(preparedStatement).setObject(1, 2);
+        inOrder.verify(preparedStatement).setObject(1, 1);
+        inOrder.verify(preparedStatement).executeBatch();
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(true);
+        verify(preparedStatement, times(2)).addBatch();
+        assertTrue(first.isCompensated());
+        assertTrue(second.isCompensated());
+    }
+    
+    @Test
+    public void assertCompensateWithLocalUndoLog() throws SQLException {
+        LocalUndoLog localUndoLog = mock(LocalUndoLog.class);
+        new LocalTransactionCompensator(shardingSQLTransaction, localUndoLog).compensate();
+        InOrder inOrder = inOrder(preparedStatement, localUndoLog, connection);
+        inOrder.verify(preparedStatement).executeBatch();
+        inOrder.verify(localUndoLog).clean(connection, shardingSQLTransaction.getId(), second.getSqlTransactionId());
+        inOrder.verify(localUndoLog).clean(connection, shardingSQLTransaction.getId(), first.getSqlTransactionId());
+        inOrder.verify(connection).commit();
+    }
+    
+    @Test
+    public void assertCompensateFailure() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("test"));
+        new LocalTransactionCompensator(shardingSQLTransaction).compensate();
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection).setAutoCommit(true);
+        assertFalse(first.isCompensated());
+        assertFalse(second.isCompensated());
+    }
+    
+    private SQLTransaction newSQLTransaction(final int orderId) {
+        SQLTransaction result = new SQLTransaction("ds_0", "INSERT INTO t_order_0 (order_id) VALUES (?)", Collections.<Collection<Object>>singletonList(Collections.<Object>singletonList(orderId)));
+        RevertSQLResult revertSQLResult = new RevertSQLResult("DELETE FROM t_order_0 WHERE order_id = ?");
+        revertSQLResult.getParameters().add(Collections.<Object>singletonList(orderId));
+        result.setRevertSQLResult(revertSQLResult);
+        return result;
+    }
+    
+    private LogicSQLTransaction mockLogicSQLTransaction(final SQLTransaction... sqlTransactions) {
+        LogicSQLTransaction result = mock(LogicSQLTransaction.class);
+        when(result.getSqlTransactions()).thenReturn(new ConcurrentLinkedQueue<>(Arrays.asList(sqlTransactions)));
+        return result;
+    }
+}
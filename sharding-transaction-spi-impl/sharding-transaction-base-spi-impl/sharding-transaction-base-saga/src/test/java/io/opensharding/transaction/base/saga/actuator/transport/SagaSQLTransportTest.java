@@ -22,7 +22,8 @@ import com.google.common.collect.Lists;
 import io.opensharding.transaction.base.context.SQLTransaction;
 import io.opensharding.transaction.base.context.ExecuteStatus;
 import io.opensharding.transaction.base.context.ShardingSQLTransaction;
-import io.opensharding.transaction.base.saga.actuator.definition.SagaDefinitionFactory;
+import io.opensharding.transaction.base.hook.revert.RevertSQLResult;
+import io.opensharding.transaction.base.hook.revert.setbased.SetBasedRevert;
 import org.apache.servicecomb.saga.core.TransportFailedException;
 import org.apache.shardingsphere.transaction.core.TransactionOperationType;
 import org.junit.Before;
@@ -33,15 +34,23 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -72,16 +81,6 @@ public class SagaSQLTransportTest {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
     }
     
-    @Test(expected = TransportFailedException.class)
-    public void assertTransportWithRollback() {
-        try {
-            sagaSQLTransport.with("ds1", SagaDefinitionFactory.ROLLBACK_TAG, Lists.<List<String>>newLinkedList());
-        } catch (final TransportFailedException ex) {
-            verify(shardingSQLTransaction).changeAllLogicTransactionStatus(ExecuteStatus.COMPENSATING);
-            throw ex;
-        }
-    }
-    
     @Test
     public void assertWithBranchTransactionNotPresent() {
         when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.<SQLTransaction>absent());
@@ -106,6 +105,16 @@ public class SagaSQLTransportTest {
         verify(connection, never()).prepareStatement("xxx");
     }
     
+    @Test
+    public void assertWithExecuteStatusFailedOfCommit() throws SQLException {
+        when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.FAILURE);
+        when(shardingSQLTransaction.getOperationType()).thenReturn(TransactionOperationType.COMMIT);
+        when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(sqlTransaction));
+        sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        verify(preparedStatement).executeUpdate();
+        verify(sqlTransaction).setExecuteStatus(ExecuteStatus.SUCCESS);
+    }
+    
     @Test
     public void assertWithExecuteSQL() throws SQLException {
         when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
@@ -113,6 +122,52 @@ public class SagaSQLTransportTest {
         sagaSQLTransport.with("ds1", "xxx", Lists.<List<String>>newLinkedList());
         verify(connection).prepareStatement("xxx");
         verify(preparedStatement).executeUpdate();
+        verify(sqlTransaction).setCompensated(true);
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithBulkheadRejected() throws SQLException {
+        when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(sqlTransaction));
+        DataSourceBulkhead dataSourceBulkhead = new DataSourceBulkhead(1, 1, 1000L);
+        dataSourceBulkhead.acquire("ds1");
+        try {
+            new SagaSQLTransport(shardingSQLTransaction, 0, null, dataSourceBulkhead, null).with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        } catch (final TransportFailedException ex) {
+            verify(connection, never()).prepareStatement("xxx");
+            throw ex;
+        }
+    }
+    
+    @Test
+    public void assertWithBulkheadRejectedInHalfOpenCircuit() throws SQLException {
+        when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(sqlTransaction));
+        DataSourceBulkhead dataSourceBulkhead = new DataSourceBulkhead(1, 1, 1000L);
+        dataSourceBulkhead.acquire("ds1");
+        DataSourceCircuitBreaker dataSourceCircuitBreaker = new DataSourceCircuitBreaker(1, 1, 50, 1000L, 0L);
+        dataSourceCircuitBreaker.record("ds1", 0L, false);
+        try {
+            new SagaSQLTransport(shardingSQLTransaction, 0, null, dataSourceBulkhead, dataSourceCircuitBreaker).with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+            fail("TransportFailedException expected");
+        } catch (final TransportFailedException ex) {
+            assertThat(dataSourceCircuitBreaker.getMetrics("ds1").getState(), is(DataSourceCircuitBreaker.State.HALF_OPEN));
+            assertTrue(dataSourceCircuitBreaker.tryAcquire("ds1"));
+        }
+    }
+    
+    @Test(expected = TransportFailedException.class)
+    public void assertWithCircuitOpen() throws SQLException {
+        when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(sqlTransaction));
+        DataSourceCircuitBreaker dataSourceCircuitBreaker = new DataSourceCircuitBreaker(1, 1, 50, 1000L, 60000L);
+        dataSourceCircuitBreaker.record("ds1", 0L, false);
+        try {
+            new SagaSQLTransport(shardingSQLTransaction, 0, null, null, dataSourceCircuitBreaker).with("ds1", "xxx", Lists.<List<String>>newLinkedList());
+        } catch (final TransportFailedException ex) {
+            verify(connection, never()).prepareStatement("xxx");
+            throw ex;
+        }
     }
     
     @Test
@@ -125,4 +180,26 @@ public class SagaSQLTransportTest {
         verify(connection).prepareStatement("xxx");
         verify(preparedStatement).executeBatch();
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void assertWithExecuteSetBasedRevertSQL() throws SQLException {
+        RevertSQLResult revertSQLResult = new RevertSQLResult("DELETE FROM t_order_0 WHERE order_id = ?");
+        revertSQLResult.setSetBasedRevert(SetBasedRevert.deleteByKeys("t_order_0", Collections.singletonList("order_id")));
+        List<List<String>> parameters = Lists.newLinkedList();
+        for (int i = 1; i <= 3; i++) {
+            revertSQLResult.getParameters().add(Collections.<Object>singletonList(i));
+            parameters.add(Collections.singletonList(String.valueOf(i)));
+        }
+        when(sqlTransaction.getExecuteStatus()).thenReturn(ExecuteStatus.COMPENSATING);
+        when(sqlTransaction.getRevertSQLResult()).thenReturn(revertSQLResult);
+        when(shardingSQLTransaction.findSQLTransaction(anyString(), anyString(), ArgumentMatchers.<List<String>>anyList())).thenReturn(Optional.of(sqlTransaction));
+        DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+        when(databaseMetaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(connection.getMetaData()).thenReturn(databaseMetaData);
+        new SagaSQLTransport(shardingSQLTransaction, 2).with("ds1", revertSQLResult.getSql(), parameters);
+        verify(connection).prepareStatement("DELETE FROM t_order_0 WHERE order_id IN (?, ?)");
+        verify(connection).prepareStatement("DELETE FROM t_order_0 WHERE order_id IN (?)");
+        verify(preparedStatement, times(2)).executeUpdate();
+        verify(preparedStatement, never()).executeBatch();
+    }
+}
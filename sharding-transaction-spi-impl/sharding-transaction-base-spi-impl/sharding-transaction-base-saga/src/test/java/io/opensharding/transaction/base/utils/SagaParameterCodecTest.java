@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opensharding.transaction.base.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SagaParameterCodecTest {
+    
+    @Mock
+    private PreparedStatement preparedStatement;
+    
+    @Test
+    public void assertEncode() {
+        List<List<String>> actual = SagaParameterCodec.encode(Collections.<Collection<Object>>singletonList(Arrays.<Object>asList(1, 2L, "init", null, new BigDecimal("1.10"), true)));
+        assertThat(actual, is(Collections.singletonList(Arrays.asList("\u0001i:1", "\u0001l:2", "\u0001s:init", null, "\u0001d:1.10", "\u0001b:true"))));
+    }
+    
+    @Test
+    public void assertDecode() {
+        assertThat(SagaParameterCodec.decode("\u0001l:2"), is((Object) 2L));
+        assertThat(SagaParameterCodec.decode("\u0001d:1.10"), is((Object) new BigDecimal("1.10")));
+        assertThat(SagaParameterCodec.decode("\u0001s:i:1"), is((Object) "i:1"));
+        assertThat(SagaParameterCodec.decode("init"), is((Object) "init"));
+        assertNull(SagaParameterCodec.decode((String) null));
+    }
+    
+    @Test
+    public void assertDecodeWithoutMarker() {
+        assertThat(SagaParameterCodec.decode("d:x"), is((Object) "d:x"));
+        assertThat(SagaParameterCodec.decode("i:1"), is((Object) "i:1"));
+        assertThat(SagaParameterCodec.decode("\u0001"), is((Object) "\u0001"));
+    }
+    
+    @Test
+    public void assertDecodeTimestamp() {
+        Timestamp expected = new Timestamp(1570000000123L);
+        expected.setNanos(123456789);
+        assertThat(SagaParameterCodec.decode(SagaParameterCodec.encode(expected)), is((Object) expected));
+    }
+    
+    @Test
+    public void assertDecodeBytes() {
+        byte[] actual = (byte[]) SagaParameterCodec.decode(SagaParameterCodec.encode(new byte[]{1, 2, 3}));
+        assertThat(actual.length, is(3));
+        assertThat(actual[2], is((byte) 3));
+    }
+    
+    @Test
+    public void assertBind() throws SQLException {
+        SagaParameterCodec.bind(preparedStatement, 1, "\u0001l:2");
+        SagaParameterCodec.bind(preparedStatement, 2, "\u0001s:init");
+        SagaParameterCodec.bind(preparedStatement, 3, "\u0001i:1");
+        SagaParameterCodec.bind(preparedStatement, 4, null);
+        verify(preparedStatement).setLong(1, 2L);
+        verify(preparedStatement).setString(2, "init");
+        verify(preparedStatement).setInt(3, 1);
+        verify(preparedStatement).setObject(4, null);
+    }
+}